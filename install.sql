@@ -1,4 +1,5 @@
-/*This sql script creates all the tables used by the project.*/
+/*This sql script creates all the tables used by the project.
+  The schema is also created and upgraded automatically at startup by virtualPlanner.io.SchemaMigrator, which adds the indexes the queries rely on.*/
 CREATE TABLE `assignment` (
   `id` int(11) unsigned NOT NULL AUTO_INCREMENT,
   `name` varchar(40) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL DEFAULT '',
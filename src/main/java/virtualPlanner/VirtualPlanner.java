@@ -2,7 +2,7 @@ package virtualPlanner;
 
 import virtualPlanner.backend.Controller;
 import virtualPlanner.gui.GUIController;
-import virtualPlanner.io.DatabaseController;
+import virtualPlanner.io.Storage;
 import virtualPlanner.reference.Images;
 import virtualPlanner.reference.Preferences;
 
@@ -18,8 +18,14 @@ public class VirtualPlanner {
 	
 	public static void main(String[] args) {
 		init();
-		DatabaseController dbController = new DatabaseController();
-		Controller controller = new Controller(dbController);
+		Storage storage;
+		try {storage = Storage.open();}
+		catch (IllegalStateException e) {
+			System.err.println(e.getMessage());
+			return;
+		}
+		Controller controller = new Controller(storage);
+		Runtime.getRuntime().addShutdownHook(new Thread(controller::shutdown));
 		new GUIController(controller);
 	}
 	
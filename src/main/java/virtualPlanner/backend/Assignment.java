@@ -11,6 +11,139 @@ import virtualPlanner.util.Date;
  */
 public class Assignment implements Comparable<Assignment> {
 	
+	/**
+	 * Flag for the name field in a dirty field mask.
+	 */
+	public static final int NAME = 1;
+	/**
+	 * Flag for the description field in a dirty field mask.
+	 */
+	public static final int DESCRIPTION = 1 << 1;
+	/**
+	 * Flag for the completeness field in a dirty field mask.
+	 */
+	public static final int COMPLETE = 1 << 2;
+	/**
+	 * Flag for the type field in a dirty field mask.
+	 */
+	public static final int TYPE = 1 << 3;
+	/**
+	 * Flag for the assigned date field in a dirty field mask.
+	 */
+	public static final int ASSIGNED = 1 << 4;
+	/**
+	 * Flag for the due date field in a dirty field mask.
+	 */
+	public static final int DUE = 1 << 5;
+	
+	/**
+	 * The fields of an {@code Assignment} which had changed since they were last saved, with the values of every field at the moment they were taken,
+	 * so that they can be saved on another thread without reading the {@code Assignment} while it is being changed.
+	 * 
+	 * @author JeremiahDeGreeff
+	 */
+	public static class Changes {
+		/**
+		 * The mask of the changed fields.
+		 */
+		private final int fields;
+		/**
+		 * The name.
+		 */
+		private final String name;
+		/**
+		 * The description.
+		 */
+		private final String descrip;
+		/**
+		 * The completeness.
+		 */
+		private final boolean isComplete;
+		/**
+		 * The type.
+		 */
+		private final AssignmentTypes type;
+		/**
+		 * The assigned date.
+		 */
+		private final Date assignedDate;
+		/**
+		 * The due date.
+		 */
+		private final Date dueDate;
+		
+		/**
+		 * @param fields The mask of the changed fields.
+		 * @param assignment The {@code Assignment}, whose lock must be held.
+		 */
+		private Changes(int fields, Assignment assignment) {
+			this.fields = fields;
+			name = assignment.name;
+			descrip = assignment.descrip;
+			isComplete = assignment.isComplete;
+			type = assignment.type;
+			assignedDate = assignment.assignedDate;
+			dueDate = assignment.dueDate;
+		}
+		
+		/**
+		 * @return A mask of the changed fields, made of {@link #NAME}, {@link #DESCRIPTION}, {@link #COMPLETE}, {@link #TYPE}, {@link #ASSIGNED}, and {@link #DUE}.
+		 */
+		public int getFields() {
+			return fields;
+		}
+		
+		/**
+		 * @param field The flag of a field.
+		 * @return {@code true} if the field had changed, {@code false} otherwise.
+		 */
+		public boolean isChanged(int field) {
+			return (fields & field) != 0;
+		}
+		
+		/**
+		 * @return The name.
+		 */
+		public String getName() {
+			return name;
+		}
+		
+		/**
+		 * @return The description.
+		 */
+		public String getDescrip() {
+			return descrip;
+		}
+		
+		/**
+		 * @return The completeness.
+		 */
+		public boolean isComplete() {
+			return isComplete;
+		}
+		
+		/**
+		 * @return The type.
+		 */
+		public AssignmentTypes getAssignmentType() {
+			return type;
+		}
+		
+		/**
+		 * @return The assigned date.
+		 */
+		public Date getAssignedDate() {
+			return assignedDate;
+		}
+		
+		/**
+		 * @return The due date.
+		 */
+		public Date getDue() {
+			return dueDate;
+		}
+	}
+	
 	/**
 	 * The unique id of this {@code Course} as it is identified in the database.
 	 */
@@ -46,6 +179,11 @@ public class Assignment implements Comparable<Assignment> {
 	 */
 	private String descrip;
 	
+	/**
+	 * mask of the fields which have changed since they were last saved
+	 */
+	private int dirty;
+	
 	/**
 	 * Constructor for Assignment class. isComplete is set to false by default.
 	 * 
@@ -119,9 +257,11 @@ public class Assignment implements Comparable<Assignment> {
 	 * @param newAssn new assigned date
 	 * @return old assigned date
 	 */
-	protected Date changeAssignedDate(Date newAssn) {
+	protected synchronized Date changeAssignedDate(Date newAssn) {
 		Date oldAssn = assignedDate;
 		assignedDate = newAssn;
+		if(!newAssn.equals(oldAssn))
+			dirty |= ASSIGNED;
 		return oldAssn;
 	}
 	
@@ -130,9 +270,11 @@ public class Assignment implements Comparable<Assignment> {
 	 * @param newDue new due date
 	 * @return old due date
 	 */
-	protected Date changeDueDate(Date newDue) {
+	protected synchronized Date changeDueDate(Date newDue) {
 		Date oldDue = dueDate;
 		dueDate = newDue;
+		if(!newDue.equals(oldDue))
+			dirty |= DUE;
 		return oldDue;
 	}
 	
@@ -141,7 +283,9 @@ public class Assignment implements Comparable<Assignment> {
 	 * 
 	 * @param newType The type to change to.
 	 */
-	protected void setType(AssignmentTypes newType) {
+	protected synchronized void setType(AssignmentTypes newType) {
+		if(newType != type)
+			dirty |= TYPE;
 		type = newType;
 	}
 	
@@ -150,7 +294,9 @@ public class Assignment implements Comparable<Assignment> {
 	 * 
 	 * @param isComplete {@code true} if complete, {@code false} if incomplete.
 	 */
-	protected void setComplete(boolean isComplete) {
+	protected synchronized void setComplete(boolean isComplete) {
+		if(isComplete != this.isComplete)
+			dirty |= COMPLETE;
 		this.isComplete = isComplete;
 	}
 	
@@ -159,7 +305,9 @@ public class Assignment implements Comparable<Assignment> {
 	 * 
 	 * @param newName The new name for this {@code Assignment}.
 	 */
-	protected void setName(String newName) {
+	protected synchronized void setName(String newName) {
+		if(!newName.equals(name))
+			dirty |= NAME;
 		name = newName;
 	}
 	
@@ -168,10 +316,49 @@ public class Assignment implements Comparable<Assignment> {
 	 * 
 	 * @param newDescrip The new description for this {@code Assignment}.
 	 */
-	protected void setDescrip(String newDescrip) {
+	protected synchronized void setDescrip(String newDescrip) {
+		if(!newDescrip.equals(descrip))
+			dirty |= DESCRIPTION;
 		descrip = newDescrip;
 	}
 	
+	/**
+	 * Replaces every field with its stored value, from an instance built from the same record, without marking it as changed.
+	 * The {@code Assignment} must not be in any {@code Course} while its dates change.
+	 * 
+	 * @param stored An instance holding the stored values.
+	 */
+	protected synchronized void reload(Assignment stored) {
+		assignedDate = stored.assignedDate;
+		dueDate = stored.dueDate;
+		type = stored.type;
+		isComplete = stored.isComplete;
+		name = stored.name;
+		descrip = stored.descrip;
+	}
+	
+	/**
+	 * Retrieves the fields which have changed since they were last saved, with the current value of every field, and marks them as clean.
+	 * Every setter changes a field and marks it under the same lock, so the values always include the changes in the mask.
+	 * If saving the fields fails, their mask should be passed to {@link #restoreDirtyFields(int)}.
+	 * 
+	 * @return The changed fields and the values to save.
+	 */
+	public synchronized Changes takeDirtyFields() {
+		Changes changes = new Changes(dirty, this);
+		dirty = 0;
+		return changes;
+	}
+	
+	/**
+	 * Marks fields as changed again after an attempt to save them failed.
+	 * 
+	 * @param fields A mask of the fields which were not saved.
+	 */
+	public synchronized void restoreDirtyFields(int fields) {
+		dirty |= fields;
+	}
+	
 	/**
 	 * Returns a String representation of this {@code Assignment}.
 	 */
@@ -188,9 +375,12 @@ public class Assignment implements Comparable<Assignment> {
 		return other != null && other instanceof Assignment && this.id == ((Assignment) other).id;
 	}
 	
+	/**
+	 * Returns a hash code for this {@code Assignment}, which is its id.
+	 */
 	@Override
 	public int hashCode() {
-		return ("" + id).hashCode();
+		return id;
 	}
 	
 	/**
@@ -0,0 +1,117 @@
+package virtualPlanner.backend;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import virtualPlanner.util.Date;
+
+/**
+ * Tracks which windows of dates have had their {@code Assignment}s loaded.
+ * Dates are divided into fixed windows of {@link #WINDOW_DAYS} days, and the least recently used windows are evicted once too many are loaded.
+ * 
+ * @author JeremiahDeGreeff
+ */
+public class AssignmentWindows {
+	
+	/**
+	 * The number of days in each window.
+	 */
+	public static final int WINDOW_DAYS = 28;
+	/**
+	 * The least number of windows which may be loaded at once.
+	 */
+	private static final int MIN_CAPACITY = 8;
+	
+	/**
+	 * The loaded windows in order from least to most recently used.
+	 */
+	private final LinkedHashMap<Long, Boolean> loaded;
+	/**
+	 * The maximum number of windows which may be loaded at once.
+	 */
+	private int capacity;
+	
+	/**
+	 * Creates an instance with no windows loaded.
+	 */
+	public AssignmentWindows() {
+		loaded = new LinkedHashMap<Long, Boolean>(16, 0.75f, true);
+		capacity = MIN_CAPACITY;
+	}
+	
+	/**
+	 * @param date A {@code Date}.
+	 * @return The window containing the {@code Date}.
+	 */
+	public static long windowOf(Date date) {
+		return Math.floorDiv(date.getEpochDay(), WINDOW_DAYS);
+	}
+	
+	/**
+	 * @param window A window.
+	 * @return The first {@code Date} in the window.
+	 */
+	public static Date getStart(long window) {
+		return Date.ofEpochDay(window * WINDOW_DAYS);
+	}
+	
+	/**
+	 * @param window A window.
+	 * @return The last {@code Date} in the window.
+	 */
+	public static Date getEnd(long window) {
+		return Date.ofEpochDay(window * WINDOW_DAYS + WINDOW_DAYS - 1);
+	}
+	
+	/**
+	 * Marks a range of windows as the only ones loaded.
+	 * At least that many windows may be loaded before any is evicted.
+	 * 
+	 * @param first The first window of the range.
+	 * @param last The last window of the range.
+	 */
+	public void reset(long first, long last) {
+		loaded.clear();
+		capacity = (int) Math.max(MIN_CAPACITY, last - first + 1);
+		for(long window = first; window <= last; window++)
+			loaded.put(window, true);
+	}
+	
+	/**
+	 * Checks whether a window is loaded and if so marks it as the most recently used.
+	 * 
+	 * @param window The window to check.
+	 * @return {@code true} if the window is loaded, {@code false} otherwise.
+	 */
+	public boolean touch(long window) {
+		return loaded.get(window) != null;
+	}
+	
+	/**
+	 * @param date A {@code Date}.
+	 * @return {@code true} if the window containing the {@code Date} is loaded, {@code false} otherwise.
+	 */
+	public boolean contains(Date date) {
+		return loaded.containsKey(windowOf(date));
+	}
+	
+	/**
+	 * Marks a window as loaded and evicts the least recently used windows if too many are loaded.
+	 * 
+	 * @param window The window which was loaded.
+	 * @return The windows which were evicted.
+	 */
+	public List<Long> add(long window) {
+		loaded.put(window, true);
+		List<Long> evicted = new ArrayList<Long>();
+		Iterator<Long> iter = loaded.keySet().iterator();
+		while(loaded.size() > capacity) {
+			evicted.add(iter.next());
+			iter.remove();
+		}
+		return evicted;
+	}
+	
+}
@@ -1,10 +1,35 @@
 package virtualPlanner.backend;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
-import virtualPlanner.io.DatabaseController;
+import virtualPlanner.io.AssignmentExporter;
+import virtualPlanner.io.AssignmentImporter;
+import virtualPlanner.io.ChangeSet;
+import virtualPlanner.io.IOExecutor;
+import virtualPlanner.io.ImportReport;
 import virtualPlanner.io.LoginException;
+import virtualPlanner.io.SnapshotCache;
+import virtualPlanner.io.Storage;
+import virtualPlanner.io.WriteBehindQueue;
 import virtualPlanner.reference.AssignmentTypes;
+import virtualPlanner.reference.Paths;
 import virtualPlanner.reference.Preferences;
 import virtualPlanner.util.Block;
 import virtualPlanner.util.Date;
@@ -12,22 +37,100 @@ import virtualPlanner.util.Date;
 /**
  * Central controller for the VirtualPlanner project.
  * All communication between the GUI, backend, and IO packages must go through an instance of this class.
+ * Changes are applied to the in-memory model immediately and persisted to storage in the background by a {@link WriteBehindQueue}.
+ * The model is saved to a {@link SnapshotCache} on shutdown so that the next login can be displayed before storage responds.
+ * Changes made elsewhere are merged into the model by {@link #sync(Executor, Runnable)}.
+ * Operations which change several records are persisted as a single transaction by a {@link UnitOfWork}, and are undone in memory if the transaction fails.
+ * Only the {@code Assignment}s near today are loaded at login, and other {@link AssignmentWindows windows} are loaded when they are first viewed.
  * 
  * @author JeremiahDeGreeff
  */
 public class Controller {
 	
 	/**
-	 * The {@code DatabaseController} instance.
+	 * The number of milliseconds to wait for queued writes to finish when shutting down.
 	 */
-	private DatabaseController dbController;
+	private static final long SHUTDOWN_TIMEOUT = 10 * 1000;
+	/**
+	 * The maximum number of imported {@code Assignment}s stored by each transaction.
+	 */
+	private static final int IMPORT_BATCH_SIZE = 100;
+	
+	/**
+	 * The {@code Storage} instance.
+	 */
+	private Storage storage;
+	/**
+	 * The queue which persists changes in the background.
+	 */
+	private WriteBehindQueue writes;
+	/**
+	 * The local copy of the last logged in user.
+	 */
+	private SnapshotCache snapshot;
 	/**
 	 * The {@code User} instance/.
 	 */
-	private User user;
+	private volatile User user;
+	/**
+	 * The version of storage which the user's data reflects, or 0 if it is unknown.
+	 */
+	private volatile long syncVersion;
+	/**
+	 * Whether a sync is in progress.
+	 */
+	private final AtomicBoolean syncing = new AtomicBoolean();
+	/**
+	 * The windows of dates whose {@code Assignment}s are loaded.
+	 */
+	private final AssignmentWindows windows = new AssignmentWindows();
+	/**
+	 * The windows whose {@code Assignment}s are being loaded in the background.
+	 */
+	private final Set<Long> faulting = new HashSet<Long>();
+	/**
+	 * The executor which performs storage reads in the background.
+	 */
+	private final IOExecutor io;
+	/**
+	 * The executor on which changes made in the background are applied to the model, as given at login.
+	 */
+	private volatile Executor callbackExecutor;
+	/**
+	 * Called on {@link #callbackExecutor} after the model has changed in the background, as given at login.
+	 */
+	private volatile Runnable onRefresh;
+	/**
+	 * The week of the user's schedule last shown, or {@code null} if none has been shown since the user was loaded.
+	 */
+	private WeekModel week;
+	
+	public Controller(Storage storage) {
+		this.storage = storage;
+		writes = new WriteBehindQueue(storage);
+		snapshot = new SnapshotCache(Paths.SNAPSHOT);
+		io = new IOExecutor("Controller-io", storage.getMaxConcurrency());
+		storage.prefetchIDs(io);
+	}
+	
+	/**
+	 * Waits for all queued changes to be persisted, saves the user to the snapshot, and then closes the storage.
+	 * Should be called once when the program exits.
+	 */
+	public void shutdown() {
+		io.shutdownNow();
+		if(!writes.close(SHUTDOWN_TIMEOUT))
+			System.out.println("Timed out persisting changes: " + writes);
+		if(user != null)
+			snapshot.save(user);
+		storage.close();
+	}
 	
-	public Controller(DatabaseController dbController) {
-		this.dbController = dbController;
+	/**
+	 * @return The queue which persists changes in the background, which reports its depth and other metrics.
+	 */
+	public WriteBehindQueue getWriteQueue() {
+		return writes;
 	}
 	
 	/**
@@ -39,22 +142,299 @@ public class Controller {
 	 * @return 0 if successful or a negative error code as specified in {@link LoginException}.
 	 */
 	public int signUp(String username, String password, String name) {
-		try {dbController.createUser(username, password, name);}
+		try {storage.createUser(username, password, name);}
 		catch (LoginException e) {return e.getErrorCode();}
 		return 0;
 	}
 	
 	/**
-	 * Attempts to login and load a user's data.
+	 * Attempts to login and load a user's data in the background.
+	 * If a snapshot was saved with the same credentials, the user's data is loaded from it immediately
+	 * and then reloaded from storage in the background.
+	 * Otherwise the user's schedule is loaded first and then the {@code Assignment}s of each {@code Course} are loaded in parallel.
+	 * Cancelling the returned future abandons the login.
 	 * 
 	 * @param username The user's username.
 	 * @param password The user's password.
-	 * @return 0 if successful or a negative error code as specified in {@link LoginException}.
+	 * @param callbackExecutor The executor on which the loaded data is swapped in and the returned future is completed, which should be the thread that makes all other calls to this {@code Controller}.
+	 * @param onProgress Called on {@code callbackExecutor} with the number of {@code Course}s loaded so far and the total number of {@code Course}s.
+	 * @param onRefresh Called on {@code callbackExecutor} once data reloaded after a snapshot has been swapped in, once a failed change has been undone, or once the {@code Assignment}s of a window being viewed have been loaded.
+	 * @return A future which completes with 0 if successful or a negative error code as specified in {@link LoginException}.
 	 */
-	public int login(String username, String password) {
-		try {user = dbController.login(username, password);}
-		catch (LoginException e) {return e.getErrorCode();}
-		return 0;
+	public CompletableFuture<Integer> login(String username, String password, Executor callbackExecutor, BiConsumer<Integer, Integer> onProgress, Runnable onRefresh) {
+		this.callbackExecutor = callbackExecutor;
+		this.onRefresh = onRefresh;
+		CompletableFuture<Integer> result = new CompletableFuture<Integer>();
+		io.execute(() -> {
+			User cached = snapshot.load(username, password);
+			if(cached == null) {
+				load(username, password, callbackExecutor, onProgress, result);
+				return;
+			}
+			long first = firstWindow(), last = lastWindow();
+			callbackExecutor.execute(() -> {
+				if(result.isDone()) // Cancelled.
+					return;
+				user = cached;
+				syncVersion = 0;
+				windows.reset(first, last);
+				faulting.clear();
+				snapshot.setCredentials(username, password);
+				io.execute(() -> refresh(cached, username, password, callbackExecutor, onRefresh));
+				result.complete(0);
+			});
+		});
+		return result;
+	}
+	
+	/**
+	 * Loads a user's schedule and then the {@code Assignment}s of each of their {@code Course}s in parallel, and swaps them in once all are loaded.
+	 * 
+	 * @param username The user's username.
+	 * @param password The user's password.
+	 * @param callbackExecutor The executor on which the loaded data is swapped in and {@code result} is completed.
+	 * @param onProgress Called on {@code callbackExecutor} with the number of {@code Course}s loaded so far and the total number of {@code Course}s.
+	 * @param result The future to complete with 0 if successful or a negative error code as specified in {@link LoginException}.
+	 */
+	private void load(String username, String password, Executor callbackExecutor, BiConsumer<Integer, Integer> onProgress, CompletableFuture<Integer> result) {
+		long version = storage.currentVersion();
+		long first = firstWindow(), last = lastWindow();
+		Date from = AssignmentWindows.getStart(first), to = AssignmentWindows.getEnd(last);
+		User loaded;
+		try {loaded = storage.loadSchedule(username, password);}
+		catch (LoginException e) {
+			callbackExecutor.execute(() -> result.complete(e.getErrorCode()));
+			return;
+		}
+		Course[] courses = loaded.getAllCourses();
+		AtomicInteger done = new AtomicInteger();
+		callbackExecutor.execute(() -> {
+			if(!result.isDone())
+				onProgress.accept(0, courses.length);
+		});
+		// The tasks only read, since every course shares the user's listeners; the assignments are added on callbackExecutor once every task has finished.
+		List<CompletableFuture<List<Assignment>>> loads = new ArrayList<CompletableFuture<List<Assignment>>>(courses.length);
+		for(Course course : courses)
+			loads.add(CompletableFuture.supplyAsync(() -> {
+				if(result.isDone()) // Cancelled.
+					return null;
+				List<Assignment> assignments = storage.loadAssignments(course, from, to);
+				if(assignments == null)
+					throw new IllegalStateException("Failed to load the assignments of " + course);
+				int count = done.incrementAndGet();
+				callbackExecutor.execute(() -> {
+					if(!result.isDone())
+						onProgress.accept(count, courses.length);
+				});
+				return assignments;
+			}, io));
+		CompletableFuture.allOf(loads.toArray(new CompletableFuture<?>[0])).whenComplete((v, e) -> callbackExecutor.execute(() -> {
+			if(result.isDone()) // Cancelled.
+				return;
+			if(e != null) {
+				result.complete(LoginException.SQL_ERROR);
+				return;
+			}
+			for(int i = 0; i < courses.length; i++)
+				for(Assignment assignment : loads.get(i).join())
+					courses[i].addAssignment(assignment);
+			user = loaded;
+			syncVersion = version;
+			windows.reset(first, last);
+			faulting.clear();
+			snapshot.setCredentials(username, password);
+			result.complete(0);
+		}));
+	}
+	
+	/**
+	 * Reloads a user's data from storage and swaps it in for the data loaded from the snapshot.
+	 * The swap is skipped if any change was made in the meantime, since those changes are already queued to be persisted.
+	 * 
+	 * @param cached The {@code User} loaded from the snapshot.
+	 * @param username The user's username.
+	 * @param password The user's password.
+	 * @param callbackExecutor The executor on which the reloaded data is swapped in.
+	 * @param onRefresh Called on {@code callbackExecutor} once the reloaded data has been swapped in.
+	 */
+	private void refresh(User cached, String username, String password, Executor callbackExecutor, Runnable onRefresh) {
+		long mark = writes.getEnqueueCount();
+		// Changes queued before the mark must be stored before reloading or the reloaded data would not include them.
+		writes.flush(SHUTDOWN_TIMEOUT);
+		long version = storage.currentVersion();
+		long first = firstWindow(), last = lastWindow();
+		User fresh;
+		try {fresh = storage.login(username, password, AssignmentWindows.getStart(first), AssignmentWindows.getEnd(last));}
+		catch (LoginException e) {
+			if(e.getErrorCode() == LoginException.SQL_ERROR)
+				System.out.println("Failed to refresh from storage - showing the snapshot.");
+			else // The account has changed since the snapshot was saved.
+				snapshot.clear();
+			return;
+		}
+		callbackExecutor.execute(() -> {
+			if(user != cached || writes.getEnqueueCount() != mark)
+				return;
+			user = fresh;
+			syncVersion = version;
+			windows.reset(first, last);
+			faulting.clear();
+			onRefresh.run();
+		});
+	}
+	
+	/**
+	 * Retrieves the changes made to the user's data in storage since the last sync and merges them into the model in place.
+	 * The changes are retrieved in the background, and the merge is skipped if any change is made in the meantime, to be retried by the next sync.
+	 * Does nothing if a sync is already in progress.
+	 * 
+	 * @param callbackExecutor The executor on which the changes are merged, which should be the thread that makes all other calls to this {@code Controller}.
+	 * @param onSync Called on {@code callbackExecutor} once changes have been merged, if there were any.
+	 */
+	public void sync(Executor callbackExecutor, Runnable onSync) {
+		User synced = user;
+		if(synced == null || !syncing.compareAndSet(false, true))
+			return;
+		long since = syncVersion;
+		io.execute(() -> {
+			long mark = writes.getEnqueueCount();
+			// Local changes must be stored first so that they are not overwritten by older values.
+			writes.flush(SHUTDOWN_TIMEOUT);
+			ChangeSet changes = storage.sync(synced, since);
+			if(changes == null) {
+				syncing.set(false);
+				return;
+			}
+			callbackExecutor.execute(() -> {
+				try {
+					if(user != synced || writes.getEnqueueCount() != mark)
+						return;
+					merge(changes);
+					syncVersion = changes.getVersion();
+					if(!changes.isEmpty())
+						onSync.run();
+				} finally {
+					syncing.set(false);
+				}
+			});
+		});
+	}
+	
+	/**
+	 * Applies a set of changes to the user's schedule and to the date maps of their {@code Course}s.
+	 * 
+	 * @param changes The changes to apply.
+	 */
+	private void merge(ChangeSet changes) {
+		Map<Integer, Course> courses = new HashMap<Integer, Course>();
+		for(Course course : user.getAllCourses())
+			courses.put(course.getID(), course);
+		for(Course changed : changes.getCourses()) {
+			Course course = courses.get(changed.getID());
+			if(course == null)
+				courses.put(changed.getID(), course = storage.adopt(changed));
+			if(course != changed)
+				course.reload(changed.getName(), changed.getAbbreviation(), changed.getTeacher());
+		}
+		// Every moved course is removed before any is added so that courses which swapped blocks do not conflict.
+		for(int courseid : changes.getSchedule().keySet())
+			if(courses.containsKey(courseid))
+				user.removeCourse(courses.get(courseid));
+		for(Map.Entry<Integer, Integer[]> entry : changes.getSchedule().entrySet())
+			if(courses.containsKey(entry.getKey()) && entry.getValue().length > 0)
+				user.addCourse(entry.getValue(), courses.get(entry.getKey()));
+		for(Map.Entry<Integer, List<Integer>> entry : changes.getUnlinked().entrySet()) {
+			Course course = courses.get(entry.getKey());
+			if(course != null)
+				for(int assignmentid : entry.getValue()) {
+					Assignment assignment = course.getAssignment(assignmentid);
+					if(assignment != null)
+						course.removeAssignment(assignment);
+				}
+		}
+		for(Map.Entry<Integer, List<Assignment>> entry : changes.getLinked().entrySet()) {
+			Course course = courses.get(entry.getKey());
+			if(course != null)
+				for(Assignment assignment : entry.getValue()) {
+					// The live instance keeps its identity and takes the new values, so that every reference to it sees them.
+					Assignment live = course.getAssignment(assignment.getID());
+					if(live != null)
+						course.removeAssignment(live);
+					else if(isLoaded(assignment))
+						live = storage.adopt(assignment);
+					else
+						continue;
+					if(live != assignment)
+						live.reload(assignment);
+					if(isLoaded(live))
+						course.addAssignment(live);
+				}
+		}
+	}
+	
+	/**
+	 * @return The first window to load at login.
+	 */
+	private static long firstWindow() {
+		return AssignmentWindows.windowOf(Date.ofEpochDay(new Date().getEpochDay() - Preferences.loadDaysAround()));
+	}
+	
+	/**
+	 * @return The last window to load at login.
+	 */
+	private static long lastWindow() {
+		return AssignmentWindows.windowOf(Date.ofEpochDay(new Date().getEpochDay() + Preferences.loadDaysAround()));
+	}
+	
+	/**
+	 * @param assignment An {@code Assignment}.
+	 * @return {@code true} if the {@code Assignment} is assigned or due in a loaded window, {@code false} otherwise.
+	 */
+	private boolean isLoaded(Assignment assignment) {
+		return windows.contains(assignment.getAssignedDate()) || windows.contains(assignment.getDue());
+	}
+	
+	/**
+	 * Starts loading the {@code Assignment}s in the window containing a {@code Date} in the background if it is not already loaded or being loaded.
+	 * Once they arrive they are added to the model on {@link #callbackExecutor}, any windows which are evicted to make room have their {@code Assignment}s removed,
+	 * and {@link #onRefresh} is called so that the view can be shown again.
+	 * The load is started again if any change is made in the meantime, since the loaded {@code Assignment}s may not include it.
+	 * 
+	 * @param date The {@code Date} which is about to be viewed.
+	 */
+	private void ensureLoaded(Date date) {
+		long window = AssignmentWindows.windowOf(date);
+		if(windows.touch(window) || !faulting.add(window))
+			return;
+		User loading = user;
+		long mark = writes.getEnqueueCount();
+		Executor callbackExecutor = this.callbackExecutor;
+		Runnable onRefresh = this.onRefresh;
+		io.execute(() -> {
+			// Queued changes must be stored first or the loaded assignments would not include them.
+			writes.flush(SHUTDOWN_TIMEOUT);
+			Map<Integer, List<Assignment>> loaded = storage.loadAssignments(loading, AssignmentWindows.getStart(window), AssignmentWindows.getEnd(window));
+			callbackExecutor.execute(() -> {
+				faulting.remove(window);
+				if(user != loading || loaded == null) // Try again the next time the window is viewed.
+					return;
+				if(writes.getEnqueueCount() != mark) {
+					ensureLoaded(date);
+					return;
+				}
+				if(windows.touch(window))
+					return;
+				for(Course course : user.getAllCourses())
+					if(loaded.containsKey(course.getID()))
+						for(Assignment assignment : loaded.get(course.getID()))
+							if(course.getAssignment(assignment.getID()) == null) // Otherwise it is already loaded and may have unsaved changes.
+								course.addAssignment(assignment);
+				if(!windows.add(window).isEmpty())
+					for(Course course : user.getAllCourses())
+						course.removeAssignmentsIf(assignment -> !isLoaded(assignment));
+				onRefresh.run();
+			});
+		});
 	}
 	
 	/**
@@ -94,34 +474,74 @@ public class Controller {
 	
 	/**
 	 * Retrieves the user's {@code Assignment}s for a particular {@code Block} on a particular {@code Date}.
+	 * If the {@code Date} is not loaded yet only the {@code Assignment}s already in the model are returned, and the rest are loaded in the background.
 	 * 
 	 * @param date The {@code Date} to query.
 	 * @param block The {@code Block} to query.
 	 * @return The {@code Assignment}s which the user has for the specified {@code Date} and {@code Block} or {@code null} if the {@code User} has no {@code Course} in the specified {@code Block}..
 	 */
 	public ArrayList<Assignment> getAssignments(Date date, Block block) {
+		ensureLoaded(date);
 		return user.getAssignments(date, block, Preferences.displayOnDue());
 	}
 	
+	/**
+	 * Shows a week of the user's schedule with the {@code Assignment}s already in the model, loading the rest in the background if necessary.
+	 * The {@link WeekModel} is kept up to date as the schedule changes, so only the cells which changed since the week was last shown are recomputed,
+	 * and a new one is only made once a different user has been loaded.
+	 * 
+	 * @param weekStart The first {@code Date} of the week.
+	 * @return The cells whose contents differ from when they were last shown, which is every cell the first time.
+	 */
+	public List<WeekModel.Cell> showWeek(Date weekStart) {
+		ensureLoaded(weekStart);
+		ensureLoaded(weekStart.getUpcomingDate(6));
+		if(week == null || week.getUser() != user) {
+			if(week != null)
+				week.close();
+			week = new WeekModel(user);
+		}
+		return week.show(weekStart, Preferences.displayOnDue());
+	}
+	
 	/**
 	 * Retrieves String representations of the user's {@code Assignment}s for a particular {@code Block} that are due on a particular {@code Date}.
+	 * If the {@code Date} is not loaded yet only the {@code Assignment}s already in the model are included, and the rest are loaded in the background.
 	 * 
 	 * @param date The {@code Date} to query.
 	 * @param block The {@code Block} to query.
 	 * @return String representations of any {@code Assignment}s which the user has for the specified {@code Date} and {@code Block}.
 	 */
 	public ArrayList<String> getAssignmentNames(Date date, Block block) {
+		ensureLoaded(date);
 		return user.getAssignmentNames(date, block);
 	}
 	
+	/**
+	 * Retrieves String representations of the user's {@code Assignment}s that are due in a range of {@code Date}s, in order of {@code Date}, then of priority, then of id.
+	 * If part of the range is not loaded yet only the {@code Assignment}s already in the model are included, and the rest are loaded in the background.
+	 * 
+	 * @param from The first {@code Date} of the range.
+	 * @param to The last {@code Date} of the range.
+	 * @return String representations of any {@code Assignment}s which the user has due in the range.
+	 */
+	public ArrayList<String> getAssignmentNames(Date from, Date to) {
+		for(long window = AssignmentWindows.windowOf(from); window <= AssignmentWindows.windowOf(to); window++)
+			ensureLoaded(AssignmentWindows.getStart(window));
+		return user.getAssignmentNames(from, to);
+	}
+	
 	/**
 	 * Changes the name of the {@code User}.
 	 * 
 	 * @param newName The new name for the {@code User}.
+	 * @return {@code true} if successful, {@code false} if too many changes are already waiting to be saved, in which case nothing is changed.
 	 */
-	public void setUserName(String newName) {
+	public boolean setUserName(String newName) {
+		if(writes.isFull())
+			return false;
 		user.setName(newName);
-		dbController.update(user);
+		return writes.enqueue(key(user), db -> db.update(user));
 	}
 	
 	/**
@@ -131,25 +551,35 @@ public class Controller {
 	 * @param name The name of the new {@code Course}.
 	 * @param abbreviation The abbrevation of the new {@code Course}.
 	 * @param teacher The name the teacher of the new {@code Course}.
-	 * @return {@code true} if the operation was successful; {@code false} if a conflict occurs because one or more of the specified {@code Block}s is already filled with another {@code Course} in the user's schedule.
+	 * @return {@code true} if the operation was successful; {@code false} if a conflict occurs because one or more of the specified {@code Block}s is already filled with another {@code Course} in the user's schedule, if no id could be allocated for the {@code Course}, or if too many changes are already waiting to be saved.
 	 */
 	public boolean addCourse(Block[] blocks, String name, String abbreviation, String teacher) {
-		if(!user.checkAvailability(blocks, null))
+		if(writes.isFull() || !user.checkAvailability(blocks, null))
+			return false;
+		int id = storage.allocateCourseID();
+		if(id == -1)
 			return false;
-		Course course = dbController.createCourse(name, abbreviation, teacher);
-		dbController.link(user, course, blocks);
-		user.addCourse(blocks, course);
-		return true;
+		Course course = new Course(id, name, abbreviation, teacher);
+		User user = this.user;
+		return new UnitOfWork()
+			.apply(() -> user.addCourse(blocks, course), () -> user.removeCourse(course))
+			.commit(writes, db -> db.insert(user, course, blocks), callbackExecutor, onRefresh, key(course));
 	}
 	
 	/**
 	 * Removes a {@code Course} from the user's schedule entirely.
 	 * 
 	 * @param course The {@code Course} to remove.
+	 * @return {@code true} if successful, {@code false} if too many changes are already waiting to be saved, in which case nothing is changed.
 	 */
-	public void removeCourse(Course course) {
-		user.removeCourse(course);
-		dbController.delete(course);
+	public boolean removeCourse(Course course) {
+		if(writes.isFull())
+			return false;
+		User user = this.user;
+		Integer[] blockids = user.getBlockIDs(course);
+		return new UnitOfWork()
+			.apply(() -> user.removeCourse(course), () -> user.addCourse(blockids, course))
+			.commit(writes, db -> db.delete(course), callbackExecutor, onRefresh);
 	}
 	
 	/**
@@ -158,10 +588,21 @@ public class Controller {
 	 * 
 	 * @param newBlocks The updated {@code Block}s for the {@code Course}.
 	 * @param course The {@code Course} to update.
-	 * @return {@code true} if the operation was successful; {@code false} if a conflict occurs because one or more of the specified {@code Block}s is already filled with another {@code Course} in the user's schedule.
+	 * @return {@code true} if the operation was successful; {@code false} if a conflict occurs because one or more of the specified {@code Block}s is already filled with another {@code Course} in the user's schedule, or if too many changes are already waiting to be saved.
 	 */
 	public boolean changeCourseBlocks(Block[] newBlocks, Course course) {
-		return dbController.unlink(user, course) && user.updateCourse(newBlocks, course) && dbController.link(user, course, newBlocks);
+		if(writes.isFull())
+			return false;
+		User user = this.user;
+		Integer[] oldBlockIDs = user.getBlockIDs(course);
+		if(!user.updateCourse(newBlocks, course))
+			return false;
+		return new UnitOfWork()
+			.onRollback(() -> {
+				user.removeCourse(course);
+				user.addCourse(oldBlockIDs, course);
+			})
+			.commit(writes, db -> db.relink(user, course, newBlocks), callbackExecutor, onRefresh);
 	}
 	
 	/**
@@ -169,10 +610,13 @@ public class Controller {
 	 * 
 	 * @param course The {@code Course} to update.
 	 * @param newName The new name for the {@code Course}.
+	 * @return {@code true} if successful, {@code false} if too many changes are already waiting to be saved, in which case nothing is changed.
 	 */
-	public void setCourseName(Course course, String newName) {
+	public boolean setCourseName(Course course, String newName) {
+		if(writes.isFull())
+			return false;
 		course.setName(newName);
-		dbController.update(course);
+		return writes.enqueue(key(course), db -> db.update(course));
 	}
 	
 	/**
@@ -180,10 +624,13 @@ public class Controller {
 	 * 
 	 * @param course The {@code Course} to update.
 	 * @param newAbbreviation The new abbreviation for the {@code Course}.
+	 * @return {@code true} if successful, {@code false} if too many changes are already waiting to be saved, in which case nothing is changed.
 	 */
-	public void setCourseAbbreviation(Course course, String newAbbreviation) {
+	public boolean setCourseAbbreviation(Course course, String newAbbreviation) {
+		if(writes.isFull())
+			return false;
 		course.setAbbreviation(newAbbreviation);
-		dbController.update(course);
+		return writes.enqueue(key(course), db -> db.update(course));
 	}
 	
 	/**
@@ -191,10 +638,13 @@ public class Controller {
 	 * 
 	 * @param course The {@code Course} to update.
 	 * @param newTeacher The new teacher for the {@code Course}.
+	 * @return {@code true} if successful, {@code false} if too many changes are already waiting to be saved, in which case nothing is changed.
 	 */
-	public void setCourseTeacher(Course course, String newTeacher) {
+	public boolean setCourseTeacher(Course course, String newTeacher) {
+		if(writes.isFull())
+			return false;
 		course.setTeacher(newTeacher);
-		dbController.update(course);
+		return writes.enqueue(key(course), db -> db.update(course));
 	}
 	
 	/**
@@ -206,11 +656,128 @@ public class Controller {
 	 * @param type The type for the new {@code Assignment}.
 	 * @param name The name for the new {@code Assignment}.
 	 * @param description The description for the new {@code Assignment}.
+	 * @return {@code true} if the operation was successful; {@code false} if no id could be allocated for the {@code Assignment}, or if too many changes are already waiting to be saved.
+	 */
+	public boolean addAssignment(Course course, Date assigned, Date due, AssignmentTypes type, String name, String description) {
+		if(writes.isFull())
+			return false;
+		int id = storage.allocateAssignmentID();
+		if(id == -1)
+			return false;
+		Assignment assignment = new Assignment(id, assigned, due, type, name, description, false);
+		return new UnitOfWork()
+			.apply(() -> course.addAssignment(assignment), () -> course.removeAssignment(assignment))
+			.commit(writes, db -> db.insert(course, assignment), callbackExecutor, onRefresh, key(assignment));
+	}
+	
+	/**
+	 * Imports {@code Assignment}s in bulk from a CSV or iCalendar file in the background, as described by {@link AssignmentImporter}.
+	 * The file is read and validated a row at a time, and valid rows are stored in transactions of up to {@link #IMPORT_BATCH_SIZE} {@code Assignment}s.
+	 * The {@code Assignment}s of each transaction are added to the model on the callback executor given at login, and are removed again if the transaction fails.
+	 * 
+	 * @param file The file to import, which must end in .csv or .ics.
+	 * @param defaultCourse The {@code Course} of rows which do not name one, or {@code null} if every row must name one.
+	 * @return A future which completes on the callback executor given at login with the report of the import, once every valid row has been stored.
+	 */
+	public CompletableFuture<ImportReport> importAssignments(File file, Course defaultCourse) {
+		CompletableFuture<ImportReport> result = new CompletableFuture<ImportReport>();
+		ImportReport report = new ImportReport(file.getName());
+		AssignmentImporter.Format format = AssignmentImporter.Format.of(file.getName());
+		AssignmentImporter importer = new AssignmentImporter(user.getAllCourses(), defaultCourse, storage::allocateAssignmentID);
+		Executor callbackExecutor = this.callbackExecutor;
+		io.execute(() -> {
+			Map<Course, List<Assignment>> batch = new LinkedHashMap<Course, List<Assignment>>();
+			AtomicInteger size = new AtomicInteger();
+			if(format == null)
+				report.readFailed("Only .csv and .ics files can be imported.");
+			else
+				try (BufferedReader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+					importer.read(in, format, report, (course, assignment) -> {
+						batch.computeIfAbsent(course, c -> new ArrayList<Assignment>()).add(assignment);
+						if(size.incrementAndGet() == IMPORT_BATCH_SIZE) {
+							commitImport(new LinkedHashMap<Course, List<Assignment>>(batch), size.getAndSet(0), report, callbackExecutor);
+							batch.clear();
+						}
+					});
+				} catch (IOException e) {report.readFailed(e.getMessage());}
+			if(!batch.isEmpty())
+				commitImport(batch, size.get(), report, callbackExecutor);
+			// The callback executor runs tasks in order, so every batch has been queued by the time this runs.
+			callbackExecutor.execute(() -> io.execute(() -> {
+				writes.flush(SHUTDOWN_TIMEOUT);
+				// Batches which failed are reported on the callback executor, so the report is finished there too.
+				callbackExecutor.execute(() -> {
+					report.finish();
+					result.complete(report);
+				});
+			}));
+		});
+		return result;
+	}
+	
+	/**
+	 * Exports {@code Assignment}s to a CSV or iCalendar file in the background, as described by {@link AssignmentExporter}.
+	 * Queued changes are stored first so that the export includes them.
+	 * 
+	 * @param file The file to write, which must end in .csv or .ics.
+	 * @param course The {@code Course} whose {@code Assignment}s should be exported, or {@code null} to export those of every {@code Course} in the user's schedule.
+	 * @param from The first due {@code Date} to export, or {@code null} for no limit.
+	 * @param to The last due {@code Date} to export, or {@code null} for no limit.
+	 * @param types The types of {@code Assignment} to export, or {@code null} to export every type.
+	 * @return A future which completes on the callback executor given at login with the number of {@code Assignment}s exported, or exceptionally with an {@code IOException} if the file cannot be written.
+	 */
+	public CompletableFuture<Integer> exportAssignments(File file, Course course, Date from, Date to, Set<AssignmentTypes> types) {
+		CompletableFuture<Integer> result = new CompletableFuture<Integer>();
+		AssignmentImporter.Format format = AssignmentImporter.Format.of(file.getName());
+		if(format == null) {
+			result.completeExceptionally(new IOException("Only .csv and .ics files can be exported."));
+			return result;
+		}
+		Course[] courses = course == null ? user.getAllCourses() : new Course[] {course};
+		Executor callbackExecutor = this.callbackExecutor;
+		io.execute(() -> {
+			// Queued changes must be stored first or the export would not include them.
+			writes.flush(SHUTDOWN_TIMEOUT);
+			try (BufferedWriter out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+				int count = new AssignmentExporter(storage, format, from, to, types).export(courses, out);
+				callbackExecutor.execute(() -> result.complete(count));
+			} catch (IOException e) {callbackExecutor.execute(() -> result.completeExceptionally(e));}
+		});
+		return result;
+	}
+	
+	/**
+	 * Adds a batch of imported {@code Assignment}s to the model and queues the transaction which stores them.
+	 * Only the {@code Assignment}s in loaded windows are added to the model, since the rest will be loaded when their windows are viewed.
+	 * 
+	 * @param batch The new {@code Assignment}s by the {@code Course} they belong to.
+	 * @param size The total number of {@code Assignment}s in the batch.
+	 * @param report The report to record the batch in if it cannot be stored.
+	 * @param callbackExecutor The executor on which the model is changed.
 	 */
-	public void addAssignment(Course course, Date assigned, Date due, AssignmentTypes type, String name, String description) {
-		Assignment assignment = dbController.createAssignemnt(name, description, type, assigned, due);
-		course.addAssignment(assignment);
-		dbController.link(course, assignment);
+	private void commitImport(Map<Course, List<Assignment>> batch, int size, ImportReport report, Executor callbackExecutor) {
+		Runnable onRefresh = this.onRefresh;
+		callbackExecutor.execute(() -> {
+			UnitOfWork work = new UnitOfWork();
+			List<String> keys = new ArrayList<String>(size);
+			for(Map.Entry<Course, List<Assignment>> entry : batch.entrySet())
+				for(Assignment assignment : entry.getValue()) {
+					keys.add(key(assignment));
+					if(isLoaded(assignment))
+						work.apply(() -> entry.getKey().addAssignment(assignment), () -> entry.getKey().removeAssignment(assignment));
+				}
+			boolean queued = work.commit(writes, db -> {
+				for(Map.Entry<Course, List<Assignment>> entry : batch.entrySet())
+					if(!db.insert(entry.getKey(), entry.getValue()))
+						return false;
+				return true;
+			}, callbackExecutor, () -> {
+				report.writeFailed(size);
+				onRefresh.run();
+			}, keys.toArray(new String[0]));
+			if(!queued)
+				report.writeFailed(size);
+		});
 	}
 	
 	/**
@@ -218,10 +785,13 @@ public class Controller {
 	 * 
 	 * @param course The course to which the {@code Assignment} is assigned.
 	 * @param assignment The {@code Assignment} to be removed.
+	 * @return {@code true} if successful, {@code false} if too many changes are already waiting to be saved, in which case nothing is changed.
 	 */
-	public void removeAssignment(Course course, Assignment assignment) {
+	public boolean removeAssignment(Course course, Assignment assignment) {
+		if(writes.isFull())
+			return false;
 		course.removeAssignment(assignment);
-		dbController.delete(assignment);
+		return writes.enqueue(db -> db.delete(assignment));
 	}
 	
 	/**
@@ -230,12 +800,15 @@ public class Controller {
 	 * @param oldCourse The {@code Course} to remove the {@code Assignment} from.
 	 * @param newCourse The {@code Course} to add the {@code Assignment} to.
 	 * @param assignment The {@code Assignment} to manipulate.
+	 * @return {@code true} if successful, {@code false} if too many changes are already waiting to be saved, in which case nothing is changed.
 	 */
-	public void changeAssignmentCourse(Course oldCourse, Course newCourse, Assignment assignment) {
-		oldCourse.removeAssignment(assignment);
-		dbController.unlink(oldCourse, assignment);
-		newCourse.addAssignment(assignment);
-		dbController.link(newCourse, assignment);
+	public boolean changeAssignmentCourse(Course oldCourse, Course newCourse, Assignment assignment) {
+		if(writes.isFull())
+			return false;
+		return new UnitOfWork()
+			.apply(() -> oldCourse.removeAssignment(assignment), () -> oldCourse.addAssignment(assignment))
+			.apply(() -> newCourse.addAssignment(assignment), () -> newCourse.removeAssignment(assignment))
+			.commit(writes, db -> db.unlink(oldCourse, assignment) && db.link(newCourse, assignment), callbackExecutor, onRefresh);
 	}
 	
 	/**
@@ -244,11 +817,13 @@ public class Controller {
 	 * @param course The {@code Course} to which the {@code Assignment} is assigned.
 	 * @param assignment The {@code Assignment} to update.
 	 * @param newDate The new assigned date.
+	 * @return {@code true} if successful, {@code false} if too many changes are already waiting to be saved, in which case nothing is changed.
 	 */
-	public void changeAssignedDate(Course course, Assignment assignment, Date newDate) {
+	public boolean changeAssignedDate(Course course, Assignment assignment, Date newDate) {
+		if(writes.isFull())
+			return false;
 		course.changeAssignedDate(assignment, newDate);
-		dbController.update(course);
-		dbController.update(assignment);
+		return writes.enqueue(key(assignment), db -> db.update(assignment));
 	}
 	
 	/**
@@ -257,22 +832,50 @@ public class Controller {
 	 * @param course The {@code Course} to which the {@code Assignment} is assigned.
 	 * @param assignment The {@code Assignment} to update.
 	 * @param newDate The new due date.
+	 * @return {@code true} if successful, {@code false} if too many changes are already waiting to be saved, in which case nothing is changed.
 	 */
-	public void changeDueDate(Course course, Assignment assignment, Date newDate) {
+	public boolean changeDueDate(Course course, Assignment assignment, Date newDate) {
+		if(writes.isFull())
+			return false;
 		course.changeDueDate(assignment, newDate);
-		dbController.update(course);
-		dbController.update(assignment);
+		return writes.enqueue(key(assignment), db -> db.update(assignment));
+	}
+	
+	/**
+	 * Changes the name, description, assigned date, and due date of an {@code Assignment} as a single unit of work.
+	 * Only the fields which actually change are written, in one statement.
+	 * 
+	 * @param course The {@code Course} to which the {@code Assignment} is assigned.
+	 * @param assignment The {@code Assignment} to update.
+	 * @param newName The name to change to.
+	 * @param newDescription The description to change to.
+	 * @param newAssigned The new assigned date.
+	 * @param newDue The new due date.
+	 * @return {@code true} if successful, {@code false} if too many changes are already waiting to be saved, in which case nothing is changed.
+	 */
+	public boolean editAssignment(Course course, Assignment assignment, String newName, String newDescription, Date newAssigned, Date newDue) {
+		if(writes.isFull())
+			return false;
+		course.changeName(assignment, newName);
+		assignment.setDescrip(newDescription);
+		course.changeAssignedDate(assignment, newAssigned);
+		course.changeDueDate(assignment, newDue);
+		return writes.enqueue(key(assignment), db -> db.update(assignment));
 	}
 	
 	/**
 	 * Changes the name of an {@code Assignment}.
 	 * 
+	 * @param course The {@code Course} to which the {@code Assignment} is assigned.
 	 * @param assignment The {@code Assignment} whose name will be changed.
 	 * @param newName The name to change to.
+	 * @return {@code true} if successful, {@code false} if too many changes are already waiting to be saved, in which case nothing is changed.
 	 */
-	public void setAssignmentName(Assignment assignment, String newName) {
-		assignment.setName(newName);
-		dbController.update(assignment);
+	public boolean setAssignmentName(Course course, Assignment assignment, String newName) {
+		if(writes.isFull())
+			return false;
+		course.changeName(assignment, newName);
+		return writes.enqueue(key(assignment), db -> db.update(assignment));
 	}
 	
 	/**
@@ -280,21 +883,28 @@ public class Controller {
 	 * 
 	 * @param assignment The {@code Assignment} whose description will be changed.
 	 * @param newDescription The description to change to.
+	 * @return {@code true} if successful, {@code false} if too many changes are already waiting to be saved, in which case nothing is changed.
 	 */
-	public void setAssignmentDescription(Assignment assignment, String newDescription) {
+	public boolean setAssignmentDescription(Assignment assignment, String newDescription) {
+		if(writes.isFull())
+			return false;
 		assignment.setDescrip(newDescription);
-		dbController.update(assignment);
+		return writes.enqueue(key(assignment), db -> db.update(assignment));
 	}
 	
 	/**
-	 * Changes the type of an {@code Assignment}.
+	 * Changes the type of an {@code Assignment}, which also changes its priority.
 	 * 
+	 * @param course The {@code Course} to which the {@code Assignment} is assigned.
 	 * @param assignment The {@code Assignment} whose type will be changed.
 	 * @param newType The type to change to.
+	 * @return {@code true} if successful, {@code false} if too many changes are already waiting to be saved, in which case nothing is changed.
 	 */
-	public void setAssignmentType(Assignment assignment, AssignmentTypes newType) {
-		assignment.setType(newType);
-		dbController.update(assignment);
+	public boolean setAssignmentType(Course course, Assignment assignment, AssignmentTypes newType) {
+		if(writes.isFull())
+			return false;
+		course.changeType(assignment, newType);
+		return writes.enqueue(key(assignment), db -> db.update(assignment));
 	}
 	
 	/**
@@ -302,10 +912,37 @@ public class Controller {
 	 * 
 	 * @param assignment The {@code Assignment} whose completeness will be changed.
 	 * @param isComplete {@code true} if complete, {@code false} otherwise.
+	 * @return {@code true} if successful, {@code false} if too many changes are already waiting to be saved, in which case nothing is changed.
 	 */
-	public void setAssignmentComplete(Assignment assignment, boolean isComplete) {
+	public boolean setAssignmentComplete(Assignment assignment, boolean isComplete) {
+		if(writes.isFull())
+			return false;
 		assignment.setComplete(isComplete);
-		dbController.update(assignment);
+		return writes.enqueue(key(assignment), db -> db.update(assignment));
+	}
+	
+	/**
+	 * @param user A {@code User}.
+	 * @return The key under which writes of the {@code User}'s record are coalesced.
+	 */
+	private static String key(User user) {
+		return "user-" + user.getID();
+	}
+	
+	/**
+	 * @param course A {@code Course}.
+	 * @return The key under which writes of the {@code Course}'s record are coalesced.
+	 */
+	private static String key(Course course) {
+		return "course-" + course.getID();
+	}
+	
+	/**
+	 * @param assignment An {@code Assignment}.
+	 * @return The key under which writes of the {@code Assignment}'s record are coalesced.
+	 */
+	private static String key(Assignment assignment) {
+		return "assignment-" + assignment.getID();
 	}
 	
 }
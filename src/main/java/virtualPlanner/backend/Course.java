@@ -1,14 +1,22 @@
 package virtualPlanner.backend;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.function.Predicate;
 
+import virtualPlanner.reference.AssignmentTypes;
 import virtualPlanner.util.Date;
 
 /**
  * The Course class maps dates to a TreeSet of Assignment objects.
+ * The dates are kept in order by day number so that a range of days can be scanned without probing each day.
  * 
  * @author aldai
  * @author Leo
@@ -16,6 +24,96 @@ import virtualPlanner.util.Date;
  */
 public class Course {
 	
+	/**
+	 * Flag for the name field in a dirty field mask.
+	 */
+	public static final int NAME = 1;
+	/**
+	 * Flag for the abbreviation field in a dirty field mask.
+	 */
+	public static final int ABBREVIATION = 1 << 1;
+	/**
+	 * Flag for the teacher field in a dirty field mask.
+	 */
+	public static final int TEACHER = 1 << 2;
+	
+	/**
+	 * The fields of a {@code Course} which had changed since they were last saved, with the values of every field at the moment they were taken,
+	 * so that they can be saved on another thread without reading the {@code Course} while it is being changed.
+	 * 
+	 * @author JeremiahDeGreeff
+	 */
+	public static class Changes {
+		/**
+		 * The mask of the changed fields.
+		 */
+		private final int fields;
+		/**
+		 * The name.
+		 */
+		private final String name;
+		/**
+		 * The abbreviation.
+		 */
+		private final String abbrev;
+		/**
+		 * The teacher.
+		 */
+		private final String teacher;
+		
+		/**
+		 * @param fields The mask of the changed fields.
+		 * @param course The {@code Course}, whose lock must be held.
+		 */
+		private Changes(int fields, Course course) {
+			this.fields = fields;
+			name = course.name;
+			abbrev = course.abbrev;
+			teacher = course.teacher;
+		}
+		
+		/**
+		 * @return A mask of the changed fields, made of {@link #NAME}, {@link #ABBREVIATION}, and {@link #TEACHER}.
+		 */
+		public int getFields() {
+			return fields;
+		}
+		
+		/**
+		 * @param field The flag of a field.
+		 * @return {@code true} if the field had changed, {@code false} otherwise.
+		 */
+		public boolean isChanged(int field) {
+			return (fields & field) != 0;
+		}
+		
+		/**
+		 * @return The name.
+		 */
+		public String getName() {
+			return name;
+		}
+		
+		/**
+		 * @return The abbreviation.
+		 */
+		public String getAbbreviation() {
+			return abbrev;
+		}
+		
+		/**
+		 * @return The teacher.
+		 */
+		public String getTeacher() {
+			return teacher;
+		}
+	}
+	
+	/**
+	 * shared result for days with no Assignments, so that looking up an empty day doesn't allocate
+	 */
+	private static final Set<Assignment> NONE = Collections.unmodifiableSet(new TreeSet<Assignment>());
+	
 	/**
 	 * The unique id of this {@code Course} as it is identified in the database.
 	 */
@@ -25,19 +123,34 @@ public class Course {
 	 * course name, abbreviation, and teacher
 	 */
 	private String name, abbrev, teacher;
-
+	
 	/**
-	 * maps Dates to a set of all Assignments assigned that day
+	 * maps epoch days to a set of all Assignments assigned that day, only for days which have any
 	 */
-	private Map<Date, Set<Assignment>> assnDateMap;
-
+	private NavigableMap<Long, Set<Assignment>> assnDateMap;
+	
+	/**
+	 * maps epoch days to a set of all Assignments due that day, only for days which have any
+	 */
+	private NavigableMap<Long, Set<Assignment>> dueDateMap;
+	
 	/**
-	 * maps Dates to a set of all Assignments due that day
+	 * maps ids to every Assignment in this Course
 	 */
-	private Map<Date, Set<Assignment>> dueDateMap;
+	private Map<Integer, Assignment> idMap;
 	
 	/**
-	 * Constructor for Course class. assigned and due maps are set to empty HashMaps.
+	 * listeners of the schedules which have this course, which are told whenever an Assignment is added, removed, rescheduled, or renamed
+	 */
+	private List<ScheduleListener> listeners;
+	
+	/**
+	 * mask of the fields which have changed since they were last saved
+	 */
+	private int dirty;
+	
+	/**
+	 * Constructor for Course class. assigned and due maps are set to empty TreeMaps.
 	 * 
 	 * @param id The id of the new {@code Course}. Must be an id given from the database to avoid overwritting records.
 	 * @param name
@@ -48,10 +161,12 @@ public class Course {
 		this.name = name;
 		this.abbrev = abbreviation;
 		this.teacher = teacher;
-		assnDateMap = new HashMap<Date, Set<Assignment>>();
-		dueDateMap = new HashMap<Date, Set<Assignment>>();
+		assnDateMap = new TreeMap<Long, Set<Assignment>>();
+		dueDateMap = new TreeMap<Long, Set<Assignment>>();
+		idMap = new HashMap<Integer, Assignment>();
+		listeners = new ArrayList<ScheduleListener>(2);
 	}
-
+	
 	/**
 	 * @return unique id for this course object
 	 */
@@ -65,7 +180,7 @@ public class Course {
 	public String getName() {
 		return name;
 	}
-
+	
 	/**
 	 * @return teacher name
 	 */
@@ -86,7 +201,12 @@ public class Course {
 	 * @param newName The new name.
 	 */
 	protected void setName(String newName) {
-		this.name = newName;
+		synchronized (this) {
+			if(!newName.equals(name))
+				dirty |= NAME;
+			this.name = newName;
+		}
+		courseChanged();
 	}
 	
 	/**
@@ -95,7 +215,12 @@ public class Course {
 	 * @param newTeacher The new teacher.
 	 */
 	protected void setTeacher(String newTeacher) {
-		this.teacher = newTeacher;
+		synchronized (this) {
+			if(!newTeacher.equals(teacher))
+				dirty |= TEACHER;
+			this.teacher = newTeacher;
+		}
+		courseChanged();
 	}
 	
 	/**
@@ -104,46 +229,139 @@ public class Course {
 	 * @param newAbbrev The new abbreviation.
 	 */
 	protected void setAbbreviation(String newAbbrev) {
-		this.abbrev = newAbbrev;
+		synchronized (this) {
+			if(!newAbbrev.equals(abbrev))
+				dirty |= ABBREVIATION;
+			this.abbrev = newAbbrev;
+		}
+		courseChanged();
 	}
-
+	
+	/**
+	 * Replaces the name, abbreviation, and teacher with their stored values without marking them as changed.
+	 * 
+	 * @param newName The stored name.
+	 * @param newAbbrev The stored abbreviation.
+	 * @param newTeacher The stored teacher.
+	 */
+	protected void reload(String newName, String newAbbrev, String newTeacher) {
+		synchronized (this) {
+			this.name = newName;
+			this.abbrev = newAbbrev;
+			this.teacher = newTeacher;
+		}
+		courseChanged();
+	}
+	
+	/**
+	 * Tells the listeners that the name, abbreviation, or teacher may have changed.
+	 */
+	private void courseChanged() {
+		for (ScheduleListener listener : listeners)
+			listener.courseChanged(this);
+	}
+	
+	/**
+	 * Retrieves the fields which have changed since they were last saved, with the current value of every field, and marks them as clean.
+	 * Every setter changes a field and marks it under the same lock, so the values always include the changes in the mask.
+	 * If saving the fields fails, their mask should be passed to {@link #restoreDirtyFields(int)}.
+	 * 
+	 * @return The changed fields and the values to save.
+	 */
+	public synchronized Changes takeDirtyFields() {
+		Changes changes = new Changes(dirty, this);
+		dirty = 0;
+		return changes;
+	}
+	
+	/**
+	 * Marks fields as changed again after an attempt to save them failed.
+	 * 
+	 * @param fields A mask of the fields which were not saved.
+	 */
+	public synchronized void restoreDirtyFields(int fields) {
+		dirty |= fields;
+	}
+	
 	/**
 	 * @param dateDue
-	 * @return TreeSet of Assignments due on a given date.
+	 * @return TreeSet of Assignments due on a given date, which is shared and unmodifiable if there are none.
 	 */
 	protected Set<Assignment> getDue(Date dateDue) {
-		Set<Assignment> assignments = dueDateMap.get(dateDue);
-		return assignments == null ? new TreeSet<Assignment>() : assignments;
+		return dueDateMap.getOrDefault(dateDue.getEpochDay(), NONE);
 	}
-
+	
 	/** 
 	 * @param dateAssigned
-	 * @return TreeSet of Assignments assigned on a given date.
+	 * @return TreeSet of Assignments assigned on a given date, which is shared and unmodifiable if there are none.
 	 */
 	protected Set<Assignment> getAssigned(Date dateAssigned) {
-		Set<Assignment> assignments = assnDateMap.get(dateAssigned);
-		return assignments == null ? new TreeSet<Assignment>() : assignments;
+		return assnDateMap.getOrDefault(dateAssigned.getEpochDay(), NONE);
 	}
-
+	
+	/**
+	 * Finds the Assignments due in a range of dates in O(log n) time, plus the time to iterate the days found.
+	 * @param from first date of the range
+	 * @param to last date of the range
+	 * @return unmodifiable view mapping each epoch day in the range which has Assignments due to those Assignments, in order of day
+	 */
+	protected NavigableMap<Long, Set<Assignment>> getDue(Date from, Date to) {
+		return range(dueDateMap, from, to);
+	}
+	
+	/**
+	 * Finds the Assignments assigned in a range of dates in O(log n) time, plus the time to iterate the days found.
+	 * @param from first date of the range
+	 * @param to last date of the range
+	 * @return unmodifiable view mapping each epoch day in the range which has Assignments assigned to those Assignments, in order of day
+	 */
+	protected NavigableMap<Long, Set<Assignment>> getAssigned(Date from, Date to) {
+		return range(assnDateMap, from, to);
+	}
+	
+	/**
+	 * @param from first date of the range
+	 * @param to last date of the range
+	 * @return number of Assignments due in a range of dates
+	 */
+	protected int countDue(Date from, Date to) {
+		return count(getDue(from, to));
+	}
+	
+	/**
+	 * @param from first date of the range
+	 * @param to last date of the range
+	 * @return number of Assignments assigned in a range of dates
+	 */
+	protected int countAssigned(Date from, Date to) {
+		return count(getAssigned(from, to));
+	}
+	
+	/**
+	 * @return TreeSet of every Assignment in this Course.
+	 */
+	public Set<Assignment> getAllAssignments() {
+		return new TreeSet<Assignment>(idMap.values());
+	}
+	
+	/**
+	 * @param id
+	 * @return the Assignment in this Course with the given id, or null if there is none.
+	 */
+	protected Assignment getAssignment(int id) {
+		return idMap.get(id);
+	}
+	
 	/**
 	 * Adds the given Assignment object to both dueDateMap and assignedDateMap.
 	 * @param assn assignment to be added
 	 */
 	public void addAssignment(Assignment assn) {
-		Date dateDue = assn.getDue();
-		Date dateAssigned = assn.getAssignedDate();
-		
-		// add to due date map
-		if (!dueDateMap.containsKey(dateDue)) {
-			dueDateMap.put(dateDue, new TreeSet<Assignment>());
-		}
-		dueDateMap.get(dateDue).add(assn);
-		
-		// add to assigned date map
-		if (!assnDateMap.containsKey(dateAssigned)) {
-			assnDateMap.put(dateAssigned, new TreeSet<Assignment>());
-		}
-		assnDateMap.get(dateAssigned).add(assn);
+		idMap.put(assn.getID(), assn);
+		index(dueDateMap, assn.getDue(), assn);
+		index(assnDateMap, assn.getAssignedDate(), assn);
+		for (ScheduleListener listener : listeners)
+			listener.assignmentAdded(this, assn);
 	}
 	
 	/**
@@ -151,13 +369,23 @@ public class Course {
 	 * @param assn assignment to be removed
 	 */
 	protected void removeAssignment(Assignment assn) {
-		Date dateDue = assn.getDue();
-		Date dateAssigned = assn.getAssignedDate();
-		
-		dueDateMap.get(dateDue).remove(assn);
-		assnDateMap.get(dateAssigned).remove(assn);
+		idMap.remove(assn.getID());
+		unindex(dueDateMap, assn.getDue(), assn);
+		unindex(assnDateMap, assn.getAssignedDate(), assn);
+		for (ScheduleListener listener : listeners)
+			listener.assignmentRemoved(this, assn);
 	}
-
+	
+	/**
+	 * Removes every Assignment which matches a condition.
+	 * @param condition the condition for an assignment to be removed
+	 */
+	protected void removeAssignmentsIf(Predicate<Assignment> condition) {
+		for (Assignment assn : getAllAssignments())
+			if (condition.test(assn))
+				removeAssignment(assn);
+	}
+	
 	/**
 	 * Change the assigned date for a particular assignment. 
 	 * @param assn assignment
@@ -166,14 +394,12 @@ public class Course {
 	protected void changeAssignedDate(Assignment assn, Date newAssnDate) {
 		// update assigned date in assignment
 		Date oldAssnDate = assn.changeAssignedDate(newAssnDate);
-
-		// ArrayList of assignment on old assignment date
-		Set<Assignment> oldAssignments = assnDateMap.get(oldAssnDate); // old assignments set for old date
-		oldAssignments.remove(assn);
-		Set<Assignment> newAssignments = assnDateMap.get(newAssnDate); // new assignments set for new date
-		newAssignments.add(assn);
 		
-		assnDateMap.put(newAssnDate, newAssignments);
+		// move the assignment from the old day to the new one
+		unindex(assnDateMap, oldAssnDate, assn);
+		index(assnDateMap, newAssnDate, assn);
+		for (ScheduleListener listener : listeners)
+			listener.assignmentMoved(this, assn, oldAssnDate, assn.getDue());
 	}
 	
 	
@@ -183,16 +409,108 @@ public class Course {
 	 * @param newDueDate new due date
 	 */
 	protected void changeDueDate(Assignment assn, Date newDueDate) {
-		// update assigned date in assignment
+		// update due date in assignment
 		Date oldDueDate = assn.changeDueDate(newDueDate);
 		
-		// ArrayList of assignment on old assignment date
-		Set<Assignment> oldAssignments = dueDateMap.get(oldDueDate); // old assignments set for old date
-		oldAssignments.remove(assn);
-		Set<Assignment> newAssignments = dueDateMap.get(newDueDate); // new assignments set for new date
-		newAssignments.add(assn);
-		
-		dueDateMap.put(newDueDate, newAssignments);
+		// move the assignment from the old day to the new one
+		unindex(dueDateMap, oldDueDate, assn);
+		index(dueDateMap, newDueDate, assn);
+		for (ScheduleListener listener : listeners)
+			listener.assignmentMoved(this, assn, assn.getAssignedDate(), oldDueDate);
+	}
+	
+	/**
+	 * Change the name of a particular assignment.
+	 * @param assn assignment
+	 * @param newName new name
+	 */
+	protected void changeName(Assignment assn, String newName) {
+		assn.setName(newName);
+		for (ScheduleListener listener : listeners)
+			listener.assignmentChanged(this, assn);
+	}
+	
+	/**
+	 * Change the type of a particular assignment.
+	 * The assignment is taken out of every sorted set while its priority changes, since the sets are ordered by priority.
+	 * @param assn assignment
+	 * @param newType new type
+	 */
+	protected void changeType(Assignment assn, AssignmentTypes newType) {
+		boolean present = idMap.get(assn.getID()) == assn;
+		if (present)
+			removeAssignment(assn);
+		assn.setType(newType);
+		if (present)
+			addAssignment(assn);
+	}
+	
+	/**
+	 * Starts telling a schedule's listener about changes to this course's Assignments, first telling it about the ones it already has.
+	 * @param listener the listener
+	 */
+	protected void addListener(ScheduleListener listener) {
+		listeners.add(listener);
+		for (Assignment assn : idMap.values())
+			listener.assignmentAdded(this, assn);
+	}
+	
+	/**
+	 * Stops telling a schedule's listener about changes to this course's Assignments, telling it that the ones it has are removed.
+	 * @param listener the listener
+	 */
+	protected void removeListener(ScheduleListener listener) {
+		if (listeners.remove(listener))
+			for (Assignment assn : idMap.values())
+				listener.assignmentRemoved(this, assn);
+	}
+	
+	/**
+	 * Adds an Assignment to the set for a date in one of the date maps, creating the set if the date has none.
+	 * @param map the date map
+	 * @param date the date
+	 * @param assn the assignment
+	 */
+	private static void index(NavigableMap<Long, Set<Assignment>> map, Date date, Assignment assn) {
+		map.computeIfAbsent(date.getEpochDay(), day -> new TreeSet<Assignment>()).add(assn);
+	}
+	
+	/**
+	 * Removes an Assignment from the set for a date in one of the date maps, dropping the set if it becomes empty
+	 * so evicted dates don't linger in the maps.
+	 * @param map the date map
+	 * @param date the date
+	 * @param assn the assignment
+	 */
+	private static void unindex(NavigableMap<Long, Set<Assignment>> map, Date date, Assignment assn) {
+		long day = date.getEpochDay();
+		Set<Assignment> assignments = map.get(day);
+		if (assignments != null && assignments.remove(assn) && assignments.isEmpty())
+			map.remove(day);
+	}
+	
+	/**
+	 * @param map one of the date maps
+	 * @param from first date of the range
+	 * @param to last date of the range
+	 * @return unmodifiable view of the days of the map in the range, which is empty if the range is
+	 */
+	private static NavigableMap<Long, Set<Assignment>> range(NavigableMap<Long, Set<Assignment>> map, Date from, Date to) {
+		long first = from.getEpochDay(), last = to.getEpochDay();
+		if (first > last)
+			return Collections.emptyNavigableMap();
+		return Collections.unmodifiableNavigableMap(map.subMap(first, true, last, true));
+	}
+	
+	/**
+	 * @param days a range of one of the date maps
+	 * @return total number of Assignments on all of the days
+	 */
+	private static int count(Map<Long, Set<Assignment>> days) {
+		int count = 0;
+		for (Set<Assignment> assignments : days.values())
+			count += assignments.size();
+		return count;
 	}
 	
 	/**
@@ -202,7 +520,7 @@ public class Course {
 	public String toString() {
 		return name + " (" + abbrev + ") taught by " + teacher + " [number of assignments: " + dueDateMap.size() + "] {id = " + id + "}";
 	}
-
+	
 	/**
 	 * Returns {@code true} if {@code other} is a {@code Course} with the same id as this {@code Course}, {@code false} otherwise.
 	 */
@@ -211,8 +529,11 @@ public class Course {
 		return other != null && other instanceof Course && this.id == ((Course) other).id;
 	}
 	
+	/**
+	 * Returns a hash code for this {@code Course}, which is its id.
+	 */
 	@Override
 	public int hashCode() {
-		return ("" + id).hashCode();
+		return id;
 	}
 }
@@ -0,0 +1,138 @@
+package virtualPlanner.backend;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import virtualPlanner.util.Date;
+
+/**
+ * Indexes the {@code Assignment}s of every {@code Course} in a {@code User}'s schedule by due date, and within each day by priority and then id.
+ * The index listens to the {@code User}'s schedule so that it is kept up to date as {@code Assignment}s are added, removed, or rescheduled,
+ * so the {@code Assignment}s due over a range of days, or the next few due, are found with one range scan instead of by probing every {@code Block} of every day.
+ * 
+ * @author JeremiahDeGreeff
+ */
+public class DueDateIndex implements ScheduleListener {
+	
+	/**
+	 * The {@code Assignment}s due on each epoch day which has any, in order of priority and then id, mapped to their {@code Course}s.
+	 */
+	private final NavigableMap<Long, NavigableMap<Assignment, Course>> days;
+	/**
+	 * The number of {@code Assignment}s in the index.
+	 */
+	private int size;
+	
+	/**
+	 * Creates an empty index.
+	 */
+	public DueDateIndex() {
+		days = new TreeMap<Long, NavigableMap<Assignment, Course>>();
+	}
+	
+	/**
+	 * Finds the {@code Assignment}s due in a range of {@code Date}s in O(log n) time, plus the time to iterate the days found.
+	 * 
+	 * @param from The first {@code Date} of the range.
+	 * @param to The last {@code Date} of the range.
+	 * @return An unmodifiable view mapping each epoch day in the range which has {@code Assignment}s due to those {@code Assignment}s and their {@code Course}s, in order of day.
+	 */
+	public NavigableMap<Long, NavigableMap<Assignment, Course>> getDue(Date from, Date to) {
+		long first = from.getEpochDay(), last = to.getEpochDay();
+		if(first > last)
+			return Collections.emptyNavigableMap();
+		return Collections.unmodifiableNavigableMap(days.subMap(first, true, last, true));
+	}
+	
+	/**
+	 * Finds the next {@code Assignment}s due on or after a {@code Date}.
+	 * 
+	 * @param from The first {@code Date} to include.
+	 * @param count The maximum number of {@code Assignment}s to find.
+	 * @return Up to {@code count} {@code Assignment}s in order of due date, then priority, then id.
+	 */
+	public List<Assignment> getNext(Date from, int count) {
+		List<Assignment> next = new ArrayList<Assignment>(Math.min(count, size));
+		for(NavigableMap<Assignment, Course> day : days.tailMap(from.getEpochDay(), true).values())
+			for(Assignment assignment : day.keySet()) {
+				if(next.size() >= count)
+					return next;
+				next.add(assignment);
+			}
+		return next;
+	}
+	
+	/**
+	 * @return The number of {@code Assignment}s in the index.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Adds an {@code Assignment} under its due date.
+	 */
+	@Override
+	public void assignmentAdded(Course course, Assignment assignment) {
+		add(course, assignment);
+	}
+	
+	/**
+	 * Removes an {@code Assignment} from under its due date.
+	 */
+	@Override
+	public void assignmentRemoved(Course course, Assignment assignment) {
+		remove(assignment, assignment.getDue());
+	}
+	
+	/**
+	 * Moves an {@code Assignment} from under its old due date to under its new one, if its due date has changed.
+	 */
+	@Override
+	public void assignmentMoved(Course course, Assignment assignment, Date oldAssigned, Date oldDue) {
+		if(oldDue.equals(assignment.getDue()))
+			return;
+		remove(assignment, oldDue);
+		add(course, assignment);
+	}
+	
+	/**
+	 * Adds an {@code Assignment} under its current due date.
+	 * 
+	 * @param course The {@code Course} of the {@code Assignment}.
+	 * @param assignment The {@code Assignment}.
+	 */
+	private void add(Course course, Assignment assignment) {
+		if(days.computeIfAbsent(assignment.getDue().getEpochDay(), day -> new TreeMap<Assignment, Course>()).put(assignment, course) == null)
+			size++;
+	}
+	
+	/**
+	 * Removes an {@code Assignment}, dropping its day once no {@code Assignment}s are due then.
+	 * 
+	 * @param assignment The {@code Assignment}.
+	 * @param due The due date the {@code Assignment} was added under, which differs from its current one if it has just been rescheduled.
+	 */
+	private void remove(Assignment assignment, Date due) {
+		long day = due.getEpochDay();
+		Map<Assignment, Course> assignments = days.get(day);
+		if(assignments == null || assignments.remove(assignment) == null)
+			return;
+		size--;
+		if(assignments.isEmpty())
+			days.remove(day);
+	}
+	
+	/**
+	 * Returns a String representation of this {@code DueDateIndex}.
+	 */
+	@Override
+	public String toString() {
+		return "DueDateIndex [days = " + days.size() + ", assignments = " + size + "]";
+	}
+	
+}
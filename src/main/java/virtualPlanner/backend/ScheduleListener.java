@@ -0,0 +1,62 @@
+package virtualPlanner.backend;
+
+import virtualPlanner.util.Date;
+
+/**
+ * Is told about every change to the {@code Course}s and {@code Assignment}s of a {@code User}'s schedule as it is made,
+ * so that a view of the schedule can be kept up to date without being rebuilt.
+ * A listener is added to a {@code User} with {@link User#addScheduleListener(ScheduleListener)}, and is then told about each {@code Assignment} already in the schedule as though it had just been added.
+ * 
+ * @author JeremiahDeGreeff
+ */
+public interface ScheduleListener {
+	
+	/**
+	 * Called once an {@code Assignment} has been added to a {@code Course}, or once its {@code Course} has been added to the schedule.
+	 * 
+	 * @param course The {@code Course}.
+	 * @param assignment The {@code Assignment}.
+	 */
+	public void assignmentAdded(Course course, Assignment assignment);
+	
+	/**
+	 * Called once an {@code Assignment} has been removed from a {@code Course}, or once its {@code Course} has been removed from the schedule.
+	 * 
+	 * @param course The {@code Course}.
+	 * @param assignment The {@code Assignment}, whose dates are the ones it was added under.
+	 */
+	public void assignmentRemoved(Course course, Assignment assignment);
+	
+	/**
+	 * Called once the assigned date or due date of an {@code Assignment} has changed.
+	 * 
+	 * @param course The {@code Course} of the {@code Assignment}.
+	 * @param assignment The {@code Assignment}, whose dates are the new ones.
+	 * @param oldAssigned The assigned date before the change.
+	 * @param oldDue The due date before the change.
+	 */
+	public void assignmentMoved(Course course, Assignment assignment, Date oldAssigned, Date oldDue);
+	
+	/**
+	 * Called once the name of an {@code Assignment} has changed.
+	 * 
+	 * @param course The {@code Course} of the {@code Assignment}.
+	 * @param assignment The {@code Assignment}.
+	 */
+	public default void assignmentChanged(Course course, Assignment assignment) {}
+	
+	/**
+	 * Called once the name, abbreviation, or teacher of a {@code Course} has changed.
+	 * 
+	 * @param course The {@code Course}.
+	 */
+	public default void courseChanged(Course course) {}
+	
+	/**
+	 * Called once the {@code Course} in a {@code Block} of the schedule has changed.
+	 * 
+	 * @param blockid The id of the {@code Block}.
+	 */
+	public default void blockChanged(int blockid) {}
+	
+}
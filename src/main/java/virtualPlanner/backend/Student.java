@@ -1,10 +1,9 @@
 package virtualPlanner.backend;
 
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import virtualPlanner.util.Block;
 
@@ -18,6 +17,11 @@ import virtualPlanner.util.Block;
 
 public class Student implements User {
 	
+	/**
+	 * number of bits in each word of a block mask
+	 */
+	private static final int MASK_WORD_BITS = Long.SIZE;
+	
 	/**
 	 * The unique id of this {@code Student} as it is identified in the database.
 	 */
@@ -29,12 +33,32 @@ public class Student implements User {
 	private String name;
 	
 	/**
-	 * maps a students' blocks to their courses
+	 * a students' courses indexed by block id, null for free blocks
+	 */
+	private final Course[] schedule;
+	
+	/**
+	 * maps each course in the schedule to a bitmask of the ids of its blocks, so a course's blocks can be found without scanning the schedule
 	 */
-	private Map<Integer, Course> schedule;
+	private final Map<Course, long[]> blockMasks;
 	
 	/**
-	 * Constructor for Student class. schedule is set to an empty HashMap mapping a students' blocks to their courses.
+	 * number of blocks which have a course
+	 */
+	private int blockCount;
+	
+	/**
+	 * the assignments of every course in the schedule by due date, which the courses keep up to date
+	 */
+	private final DueDateIndex dueDates;
+	
+	/**
+	 * listeners which are told about every change to the schedule, starting with dueDates
+	 */
+	private final List<ScheduleListener> listeners;
+	
+	/**
+	 * Constructor for Student class. schedule is set to an empty array with a slot for every block id.
 	 * 
 	 * @param id The id of the new {@code Student}. Must be an id given from the database to avoid overwritting records.
 	 * @param name student name
@@ -42,7 +66,11 @@ public class Student implements User {
 	public Student(int id, String name) {
 		this.id = id;
 		this.name = name;
-		schedule = new HashMap<Integer, Course>();
+		schedule = new Course[Block.ID_COUNT];
+		blockMasks = new HashMap<Course, long[]>();
+		dueDates = new DueDateIndex();
+		listeners = new ArrayList<ScheduleListener>(2);
+		listeners.add(dueDates);
 	}
 	
 	/**
@@ -70,15 +98,15 @@ public class Student implements User {
 	public void setName(String name) {
 		this.name = name;
 	}
-
+	
 	/**
 	 * @return course associated with a specific block
 	 */
 	@Override
 	public Course getCourse(Block block) {
-		return schedule.get(block.getID());
+		return schedule[block.getID()];
 	}
-
+	
 	/**
 	 * Adds a course to a student's schedule according to its {@code Block}s.
 	 * Should only be called once the availability of the blocks has been checked.
@@ -89,7 +117,7 @@ public class Student implements User {
 	@Override
 	public void addCourse(Block[] blocks, Course course) {
 		for (Block block : blocks)
-			schedule.put(block.getID(), course);
+			assign(block.getID(), course);
 	}
 	
 	/**
@@ -102,9 +130,11 @@ public class Student implements User {
 	 */
 	@Override
 	public boolean checkAvailability(Block[] blocks, Course ignore) {
-		for (Block block : blocks)
-			if (schedule.containsKey(block.getID()) && !schedule.get(block.getID()).equals(ignore))
+		for (Block block : blocks) {
+			Course course = schedule[block.getID()];
+			if (course != null && !course.equals(ignore))
 				return false;
+		}
 		return true;
 	}
 	
@@ -118,10 +148,10 @@ public class Student implements User {
 	@Override
 	public boolean addCourse(Integer[] blocks, Course course) {
 		for (int blockid : blocks)
-			if (schedule.containsKey(blockid))
+			if (blockid < 0 || blockid >= Block.ID_COUNT || schedule[blockid] != null)
 				return false;
 		for (int blockid : blocks)
-			schedule.put(blockid, course);
+			assign(blockid, course);
 		return true;
 	}
 	
@@ -132,10 +162,65 @@ public class Student implements User {
 	 */
 	@Override
 	public void removeCourse(Course course) {
-		Iterator<Course> iter = schedule.values().iterator();
-		while(iter.hasNext())
-			if(iter.next().equals(course))
-				iter.remove();
+		long[] mask = blockMasks.remove(course);
+		if (mask == null)
+			return;
+		unlink(course);
+		for (int blockid : blockIDs(mask)) {
+			schedule[blockid] = null;
+			blockCount--;
+			blockChanged(blockid);
+		}
+	}
+	
+	/**
+	 * Retrieves the ids of the {@code Block}s in which a {@code Course} occurs in this {@code Student}'s schedule.
+	 * 
+	 * @param course The {@code Course} to find the {@code Block}s for.
+	 * @return The ids of the {@code Block}s which contain the specified {@code Course}, in increasing order.
+	 */
+	@Override
+	public Integer[] getBlockIDs(Course course) {
+		long[] mask = blockMasks.get(course);
+		if (mask == null)
+			return new Integer[0];
+		int[] blockids = blockIDs(mask);
+		Integer[] result = new Integer[blockids.length];
+		for (int i = 0; i < blockids.length; i++)
+			result[i] = blockids[i];
+		return result;
+	}
+	
+	/**
+	 * @return index of the assignments of every course in this {@code Student}'s schedule by due date
+	 */
+	@Override
+	public DueDateIndex getDueDateIndex() {
+		return dueDates;
+	}
+	
+	/**
+	 * Starts telling a listener about every change to this {@code Student}'s schedule, first telling it about the assignments already in it.
+	 * 
+	 * @param listener The listener.
+	 */
+	@Override
+	public void addScheduleListener(ScheduleListener listener) {
+		listeners.add(listener);
+		for (Course course : blockMasks.keySet())
+			course.addListener(listener);
+	}
+	
+	/**
+	 * Stops telling a listener about changes to this {@code Student}'s schedule, first telling it that the assignments in it are removed.
+	 * 
+	 * @param listener The listener.
+	 */
+	@Override
+	public void removeScheduleListener(ScheduleListener listener) {
+		if (listeners.remove(listener))
+			for (Course course : blockMasks.keySet())
+				course.removeListener(listener);
 	}
 	
 	/**
@@ -145,10 +230,7 @@ public class Student implements User {
 	 */
 	@Override
 	public Course[] getAllCourses() {
-		Set<Course> courses = new HashSet<Course>();
-		for(Course course : schedule.values())
-			courses.add(course);
-		return courses.toArray(new Course[0]);
+		return blockMasks.keySet().toArray(new Course[0]);
 	}
 	
 	/**
@@ -165,14 +247,94 @@ public class Student implements User {
 		return courseNames;
 	}
 	
+	/**
+	 * Puts a course in a block, taking the block away from any course which had it.
+	 * 
+	 * @param blockid id of the block
+	 * @param course The {@code Course} to put in the block.
+	 */
+	private void assign(int blockid, Course course) {
+		Course previous = schedule[blockid];
+		if (previous == null)
+			blockCount++;
+		else if (!previous.equals(course)) {
+			// clear the block from the old course's mask and drop the course once it has no blocks left
+			long[] mask = blockMasks.get(previous);
+			mask[blockid / MASK_WORD_BITS] &= ~(1L << blockid);
+			if (isEmpty(mask)) {
+				blockMasks.remove(previous);
+				unlink(previous);
+			}
+		}
+		schedule[blockid] = course;
+		long[] mask = blockMasks.get(course);
+		if (mask == null) {
+			// the course is new to the schedule so the listeners start hearing about its assignments
+			mask = new long[Block.ID_COUNT / MASK_WORD_BITS];
+			blockMasks.put(course, mask);
+			for (ScheduleListener listener : listeners)
+				course.addListener(listener);
+		}
+		mask[blockid / MASK_WORD_BITS] |= 1L << blockid;
+		if (!course.equals(previous))
+			blockChanged(blockid);
+	}
+	
+	/**
+	 * Stops telling the listeners about a course which has left the schedule.
+	 * 
+	 * @param course The {@code Course} which has left.
+	 */
+	private void unlink(Course course) {
+		for (ScheduleListener listener : listeners)
+			course.removeListener(listener);
+	}
+	
+	/**
+	 * Tells the listeners that the course in a block has changed.
+	 * 
+	 * @param blockid id of the block
+	 */
+	private void blockChanged(int blockid) {
+		for (ScheduleListener listener : listeners)
+			listener.blockChanged(blockid);
+	}
+	
+	/**
+	 * @param mask a block mask
+	 * @return ids of the blocks in the mask, in increasing order
+	 */
+	private static int[] blockIDs(long[] mask) {
+		int count = 0;
+		for (long word : mask)
+			count += Long.bitCount(word);
+		int[] blockids = new int[count];
+		int i = 0;
+		for (int w = 0; w < mask.length; w++)
+			for (long word = mask[w]; word != 0; word &= word - 1)
+				blockids[i++] = w * MASK_WORD_BITS + Long.numberOfTrailingZeros(word);
+		return blockids;
+	}
+	
+	/**
+	 * @param mask a block mask
+	 * @return {@code true} if the mask has no blocks, {@code false} otherwise
+	 */
+	private static boolean isEmpty(long[] mask) {
+		for (long word : mask)
+			if (word != 0)
+				return false;
+		return true;
+	}
+	
 	/**
 	 * Returns a String representation of this {@code Student}.
 	 */
 	@Override
 	public String toString() {
-		return name + " [number of blocks assigned: " + schedule.size() + "] {id = " + id + "}";
+		return name + " [number of blocks assigned: " + blockCount + "] {id = " + id + "}";
 	}
-
+	
 	/**
 	 * Returns {@code true} if {@code other} is a {@code Student} with the same id as this {@code Student}, {@code false} otherwise.
 	 */
@@ -181,9 +343,12 @@ public class Student implements User {
 		return other != null && other instanceof Student && this.id == ((Student) other).id;
 	}
 	
+	/**
+	 * Returns a hash code for this {@code Student}, which is its id.
+	 */
 	@Override
 	public int hashCode() {
-		return ("" + id).hashCode();
+		return id;
 	}
-
+	
 }
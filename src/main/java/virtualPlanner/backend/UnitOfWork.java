@@ -0,0 +1,83 @@
+package virtualPlanner.backend;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+
+import virtualPlanner.io.WriteBehindQueue;
+
+/**
+ * An operation which changes the model in memory and is persisted as a single transaction.
+ * Each change to the model is recorded along with how to undo it, so that the model can be restored if the transaction fails.
+ * 
+ * @author JeremiahDeGreeff
+ */
+class UnitOfWork {
+	
+	/**
+	 * The actions which undo each change made so far, most recent first.
+	 */
+	private final Deque<Runnable> undo;
+	
+	/**
+	 * Creates a unit of work with no changes.
+	 */
+	UnitOfWork() {
+		undo = new ArrayDeque<Runnable>();
+	}
+	
+	/**
+	 * Makes a change to the model and records how to undo it.
+	 * 
+	 * @param change The change to make.
+	 * @param undoChange The action which undoes the change.
+	 * @return This {@code UnitOfWork}.
+	 */
+	UnitOfWork apply(Runnable change, Runnable undoChange) {
+		change.run();
+		return onRollback(undoChange);
+	}
+	
+	/**
+	 * Records how to undo a change to the model which has already been made.
+	 * 
+	 * @param undoChange The action which undoes the change.
+	 * @return This {@code UnitOfWork}.
+	 */
+	UnitOfWork onRollback(Runnable undoChange) {
+		undo.push(undoChange);
+		return this;
+	}
+	
+	/**
+	 * Undoes every change made by this unit of work in the reverse order they were made.
+	 */
+	void rollback() {
+		while(!undo.isEmpty())
+			undo.pop().run();
+	}
+	
+	/**
+	 * Queues the transaction which persists this unit of work.
+	 * If the transaction is abandoned, the changes to the model are undone on {@code callbackExecutor} and {@code onRollback} is called.
+	 * If the queue is full, the changes are undone immediately instead.
+	 * If the transaction creates records, any writes of them queued before it is abandoned are abandoned as well.
+	 * 
+	 * @param writes The queue to persist the transaction with.
+	 * @param work The operations of the transaction.
+	 * @param callbackExecutor The executor on which the changes are undone, which should be the thread that makes all changes to the model.
+	 * @param onRollback Called on {@code callbackExecutor} after the changes have been undone if the transaction is abandoned.
+	 * @param creates The keys of the records the transaction creates.
+	 * @return {@code true} if the transaction was queued, {@code false} if the queue was full and the changes have been undone.
+	 */
+	boolean commit(WriteBehindQueue writes, WriteBehindQueue.Write work, Executor callbackExecutor, Runnable onRollback, String... creates) {
+		if(writes.enqueue(db -> db.transaction(work), () -> callbackExecutor.execute(() -> {
+			rollback();
+			onRollback.run();
+		}), creates))
+			return true;
+		rollback();
+		return false;
+	}
+	
+}
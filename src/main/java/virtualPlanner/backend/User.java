@@ -1,7 +1,10 @@
 package virtualPlanner.backend;
 
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.NavigableMap;
 
+import virtualPlanner.reference.Days;
 import virtualPlanner.util.Block;
 import virtualPlanner.util.Date;
 
@@ -43,6 +46,25 @@ public interface User {
 	 */
 	public Course[] getAllCourses();
 	
+	/**
+	 * @return The index of the {@code Assignment}s of every {@code Course} in this {@code User}'s schedule by due date, which is kept up to date as they change.
+	 */
+	public DueDateIndex getDueDateIndex();
+	
+	/**
+	 * Starts telling a listener about every change to this {@code User}'s schedule, first telling it about the {@code Assignment}s already in it.
+	 * 
+	 * @param listener The listener.
+	 */
+	public void addScheduleListener(ScheduleListener listener);
+	
+	/**
+	 * Stops telling a listener about changes to this {@code User}'s schedule, first telling it that the {@code Assignment}s in it are removed.
+	 * 
+	 * @param listener The listener.
+	 */
+	public void removeScheduleListener(ScheduleListener listener);
+	
 	/**
 	 * Retrieves the {@code Course} from this {@code User}'s schedule in a particular {@code Block}.
 	 * 
@@ -51,6 +73,14 @@ public interface User {
 	 */
 	public Course getCourse(Block block);
 	
+	/**
+	 * Retrieves the ids of the {@code Block}s in which a {@code Course} occurs in this {@code User}'s schedule.
+	 * 
+	 * @param course The {@code Course} to find the {@code Block}s for.
+	 * @return The ids of the {@code Block}s which contain the specified {@code Course}.
+	 */
+	public Integer[] getBlockIDs(Course course);
+	
 	/**
 	 * Adds a {@code Course} to this {@code User}'s schedule in the specified {@code Block}s.
 	 * Should only be called once the availability of the {@code Block}s has been checked.
@@ -134,4 +164,38 @@ public interface User {
 		return names;
 	}
 	
+	/**
+	 * Retrieves String representations of the {@code User}'s {@code Assignment}s that are due in a range of {@code Date}s,
+	 * in order of {@code Date}, then of priority, then of id. Only {@code Assignment}s due on a day when their {@code Course} meets are included.
+	 * The {@code Assignment}s are found with one scan of the {@link DueDateIndex}, so days with no {@code Assignment}s due are never visited.
+	 * 
+	 * @param from The first {@code Date} of the range.
+	 * @param to The last {@code Date} of the range.
+	 * @return String representations of any {@code Assignment}s which the user has due in the range.
+	 */
+	public default ArrayList<String> getAssignmentNames(Date from, Date to) {
+		ArrayList<String> names = new ArrayList<String>();
+		for(Map.Entry<Long, NavigableMap<Assignment, Course>> day : getDueDateIndex().getDue(from, to).entrySet()) {
+			Date date = Date.ofEpochDay(day.getKey());
+			for(Map.Entry<Assignment, Course> entry : day.getValue().entrySet())
+				if(meetsOn(entry.getValue(), date))
+					names.add(entry.getKey().getName());
+		}
+		return names;
+	}
+	
+	/**
+	 * Tests whether a {@code Course} has a {@code Block} in this {@code User}'s schedule on a particular {@code Date}.
+	 * 
+	 * @param course The {@code Course} to test.
+	 * @param date The {@code Date} to test.
+	 * @return {@code true} if the {@code Course} meets on the {@code Date}, {@code false} otherwise.
+	 */
+	public default boolean meetsOn(Course course, Date date) {
+		for(Block block : Days.getBlocksOnDay(date))
+			if(course.equals(getCourse(block)))
+				return true;
+		return false;
+	}
+	
 }
@@ -0,0 +1,348 @@
+package virtualPlanner.backend;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import virtualPlanner.reference.Days;
+import virtualPlanner.util.Block;
+import virtualPlanner.util.Date;
+
+/**
+ * The contents of every {@code Block} of one week of a {@code User}'s schedule: the {@code Course} in each and the {@code Assignment}s due or assigned in it.
+ * The model listens to the schedule and marks a cell as stale whenever a change touches it,
+ * so showing the week again only recomputes the stale cells and reports only the cells whose contents differ from what was last shown.
+ * 
+ * @author JeremiahDeGreeff
+ */
+public class WeekModel implements ScheduleListener {
+	
+	/**
+	 * The contents of one {@code Block} on one day of the week.
+	 * 
+	 * @author JeremiahDeGreeff
+	 */
+	public static class Cell {
+		/**
+		 * The index of the day of the week, starting from Monday.
+		 */
+		private final int day;
+		/**
+		 * The index of the {@code Block} within its day.
+		 */
+		private final int index;
+		/**
+		 * The {@code Block}.
+		 */
+		private final Block block;
+		/**
+		 * The {@code Date} of the day in the week being shown.
+		 */
+		private Date date;
+		/**
+		 * The {@code Course} in the {@code Block}, or {@code null} if there is none.
+		 */
+		private Course course;
+		/**
+		 * The {@code Assignment}s of the {@code Course} on the {@code Date}, in order of priority.
+		 */
+		private List<Assignment> assignments;
+		/**
+		 * The names of the {@code Assignment}s when the cell was last computed, or {@code null} if it never has been.
+		 */
+		private List<String> names;
+		/**
+		 * Whether a change to the schedule may have made the cell out of date.
+		 */
+		private boolean stale;
+		
+		/**
+		 * @param day The index of the day of the week, starting from Monday.
+		 * @param index The index of the {@code Block} within its day.
+		 * @param block The {@code Block}.
+		 */
+		private Cell(int day, int index, Block block) {
+			this.day = day;
+			this.index = index;
+			this.block = block;
+		}
+		
+		/**
+		 * @return The index of the day of the week, starting from Monday.
+		 */
+		public int getDay() {
+			return day;
+		}
+		
+		/**
+		 * @return The index of the {@code Block} within its day.
+		 */
+		public int getIndex() {
+			return index;
+		}
+		
+		/**
+		 * @return The {@code Block}.
+		 */
+		public Block getBlock() {
+			return block;
+		}
+		
+		/**
+		 * @return The {@code Date} of the day in the week being shown.
+		 */
+		public Date getDate() {
+			return date;
+		}
+		
+		/**
+		 * @return The {@code Course} in the {@code Block}, or {@code null} if there is none.
+		 */
+		public Course getCourse() {
+			return course;
+		}
+		
+		/**
+		 * @return An unmodifiable list of the {@code Assignment}s of the {@code Course} on the {@code Date}, in order of priority.
+		 */
+		public List<Assignment> getAssignments() {
+			return assignments;
+		}
+		
+		/**
+		 * @return An unmodifiable list of the names of the {@code Assignment}s, in the same order.
+		 */
+		public List<String> getAssignmentNames() {
+			return names;
+		}
+		
+		/**
+		 * Returns a String representation of this {@code Cell}.
+		 */
+		@Override
+		public String toString() {
+			return "Cell [" + block + " on " + date + ": " + (course == null ? "free" : course.getAbbreviation() + " " + names) + "]";
+		}
+	}
+	
+	/**
+	 * The {@code User} whose schedule is shown.
+	 */
+	private final User user;
+	/**
+	 * The cells of each day of the week, starting from Monday, in the order of the {@code Block}s of the day.
+	 */
+	private final Cell[][] cells;
+	/**
+	 * The cell of each {@code Block} by its id, {@code null} for ids which have no {@code Block}.
+	 */
+	private final Cell[] cellsByBlockID;
+	/**
+	 * The cells which have been marked as stale since the week was last shown.
+	 */
+	private final List<Cell> stale;
+	/**
+	 * The first {@code Date} of the week being shown, or {@code null} if no week has been shown yet.
+	 */
+	private Date weekStart;
+	/**
+	 * {@code true} if {@code Assignment}s are shown on their due date, {@code false} if on their assigned date.
+	 */
+	private boolean onDue;
+	
+	/**
+	 * Creates a model of a {@code User}'s schedule which is kept up to date until it is closed.
+	 * No week is shown until {@link #show(Date, boolean)} is called.
+	 * 
+	 * @param user The {@code User} whose schedule to show.
+	 */
+	public WeekModel(User user) {
+		this.user = user;
+		Days[] days = Days.values();
+		cells = new Cell[days.length][];
+		cellsByBlockID = new Cell[Block.ID_COUNT];
+		for(int i = 0; i < days.length; i++) {
+			cells[i] = new Cell[days[i].getBlockCount()];
+			for(int j = 0; j < cells[i].length; j++) {
+				Block block = days[i].getBlock(j);
+				cells[i][j] = new Cell(i, j, block);
+				cellsByBlockID[block.getID()] = cells[i][j];
+			}
+		}
+		stale = new ArrayList<Cell>();
+		user.addScheduleListener(this);
+	}
+	
+	/**
+	 * @return The {@code User} whose schedule is shown.
+	 */
+	public User getUser() {
+		return user;
+	}
+	
+	/**
+	 * @return The first {@code Date} of the week being shown, or {@code null} if no week has been shown yet.
+	 */
+	public Date getWeekStart() {
+		return weekStart;
+	}
+	
+	/**
+	 * @param day The index of the day of the week, starting from Monday.
+	 * @param index The index of the {@code Block} within its day.
+	 * @return The cell of the {@code Block}.
+	 */
+	public Cell getCell(int day, int index) {
+		return cells[day][index];
+	}
+	
+	/**
+	 * Shows a week, recomputing every cell if the week or the way {@code Assignment}s are shown has changed and otherwise only the cells which are stale.
+	 * The {@code Assignment}s of the week must already be loaded.
+	 * 
+	 * @param weekStart The first {@code Date} of the week.
+	 * @param onDue {@code true} to show {@code Assignment}s on their due date, {@code false} to show them on their assigned date.
+	 * @return The cells whose {@code Course} or {@code Assignment}s differ from when they were last shown, which is every cell the first time.
+	 */
+	public List<Cell> show(Date weekStart, boolean onDue) {
+		List<Cell> changed = new ArrayList<Cell>();
+		if(!weekStart.equals(this.weekStart) || onDue != this.onDue) {
+			this.weekStart = weekStart;
+			this.onDue = onDue;
+			for(int i = 0; i < cells.length; i++) {
+				Date date = weekStart.getUpcomingDate(i);
+				for(Cell cell : cells[i]) {
+					cell.date = date;
+					if(compute(cell))
+						changed.add(cell);
+				}
+			}
+		} else
+			for(Cell cell : stale)
+				if(compute(cell))
+					changed.add(cell);
+		for(Cell cell : stale)
+			cell.stale = false;
+		stale.clear();
+		return changed;
+	}
+	
+	/**
+	 * Stops listening to the {@code User}'s schedule, after which this model is no longer kept up to date.
+	 */
+	public void close() {
+		user.removeScheduleListener(this);
+	}
+	
+	/**
+	 * Marks the cells on the {@code Assignment}'s day in the week being shown as stale.
+	 */
+	@Override
+	public void assignmentAdded(Course course, Assignment assignment) {
+		markStale(course, onDue ? assignment.getDue() : assignment.getAssignedDate());
+	}
+	
+	/**
+	 * Marks the cells on the {@code Assignment}'s day in the week being shown as stale.
+	 */
+	@Override
+	public void assignmentRemoved(Course course, Assignment assignment) {
+		markStale(course, onDue ? assignment.getDue() : assignment.getAssignedDate());
+	}
+	
+	/**
+	 * Marks the cells on the {@code Assignment}'s old and new days in the week being shown as stale.
+	 */
+	@Override
+	public void assignmentMoved(Course course, Assignment assignment, Date oldAssigned, Date oldDue) {
+		markStale(course, onDue ? oldDue : oldAssigned);
+		markStale(course, onDue ? assignment.getDue() : assignment.getAssignedDate());
+	}
+	
+	/**
+	 * Marks the cells on the {@code Assignment}'s day in the week being shown as stale.
+	 */
+	@Override
+	public void assignmentChanged(Course course, Assignment assignment) {
+		markStale(course, onDue ? assignment.getDue() : assignment.getAssignedDate());
+	}
+	
+	/**
+	 * Marks every cell of the {@code Course} as stale, and as changed even though it holds the same objects.
+	 */
+	@Override
+	public void courseChanged(Course course) {
+		for(Cell[] day : cells)
+			for(Cell cell : day)
+				if(course.equals(cell.course)) {
+					cell.names = null;
+					markStale(cell);
+				}
+	}
+	
+	/**
+	 * Marks the cell of the {@code Block} as stale.
+	 */
+	@Override
+	public void blockChanged(int blockid) {
+		Cell cell = cellsByBlockID[blockid];
+		if(cell != null)
+			markStale(cell);
+	}
+	
+	/**
+	 * Returns a String representation of this {@code WeekModel}.
+	 */
+	@Override
+	public String toString() {
+		return "WeekModel [week = " + weekStart + ", stale cells = " + stale.size() + "]";
+	}
+	
+	/**
+	 * Marks the cells of a {@code Course} on a {@code Date} as stale, if the {@code Date} is in the week being shown.
+	 * 
+	 * @param course The {@code Course}.
+	 * @param date The {@code Date}.
+	 */
+	private void markStale(Course course, Date date) {
+		if(weekStart == null)
+			return;
+		long day = date.getEpochDay() - weekStart.getEpochDay();
+		if(day < 0 || day >= cells.length)
+			return;
+		for(Cell cell : cells[(int) day])
+			if(course.equals(cell.course))
+				markStale(cell);
+	}
+	
+	/**
+	 * @param cell A cell to mark as stale.
+	 */
+	private void markStale(Cell cell) {
+		if(!cell.stale) {
+			cell.stale = true;
+			stale.add(cell);
+		}
+	}
+	
+	/**
+	 * Recomputes the contents of a cell for its {@code Date}.
+	 * 
+	 * @param cell The cell.
+	 * @return {@code true} if the {@code Course} or {@code Assignment}s differ from before, {@code false} otherwise.
+	 */
+	private boolean compute(Cell cell) {
+		Course course = user.getCourse(cell.block);
+		List<Assignment> assignments = course == null ? Collections.<Assignment>emptyList() : new ArrayList<Assignment>(onDue ? course.getDue(cell.date) : course.getAssigned(cell.date));
+		List<String> names = new ArrayList<String>(assignments.size());
+		for(Assignment assignment : assignments)
+			names.add(assignment.getName());
+		// Assignments are the same objects after a rename, so their names are compared as well.
+		boolean changed = cell.names == null || course != cell.course || !names.equals(cell.names) || !assignments.equals(cell.assignments);
+		cell.course = course;
+		cell.assignments = Collections.unmodifiableList(assignments);
+		cell.names = Collections.unmodifiableList(names);
+		return changed;
+	}
+	
+}
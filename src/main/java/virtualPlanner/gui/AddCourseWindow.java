@@ -223,8 +223,10 @@ public class AddCourseWindow implements ActionListener {
 			teacherField.setText("");
 			blockPicker.clearCheckBoxes();
 		} 
-		//The only possible error is if the chosen blocks overlap with an existing course's blocks
+		//Either the chosen blocks overlap with an existing course's blocks or the course could not be saved yet
 		//Inform user of error
+		else if (controller.isSaveQueueFull())
+			JOptionPane.showMessageDialog(null, "Too many changes are waiting to be saved - try again in a moment", "Error", JOptionPane.ERROR_MESSAGE);
 		else
 			JOptionPane.showMessageDialog(null, "Blocks Overlap with other courses' blocks", "Error", JOptionPane.ERROR_MESSAGE);
 	}
@@ -16,6 +16,7 @@ import javax.swing.JComboBox;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JList;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTextField;
@@ -461,11 +462,11 @@ public class AssignmentWindow implements ActionListener {
 		Date assigned = new Date(assignedDayBox.getSelectedIndex()+1, assignedMonthBox.getSelectedIndex()+1, Integer.parseInt((String)(assignedYearBox.getSelectedItem())));		
 		Date due = new Date(dueDayBox.getSelectedIndex()+1, dueMonthBox.getSelectedIndex()+1, Integer.parseInt((String)(dueYearBox.getSelectedItem())));
 
-		//Change the Assignment's fields
-		controller.setAssignmentName(a, nameField.getText());
-		controller.setAssignmentDescription(a, descField.getText());
-		controller.changeAssignedDate(course, a, assigned);
-		controller.changeDueDate(course, a, due);
+		//Change the Assignment's fields >> Stay in Edit Assignment Mode if the change could not be made
+		if (!controller.editAssignment(course, a, nameField.getText(), descField.getText(), assigned, due)) {
+			showSaveError();
+			return;
+		}
 
 		//Update the JList of current Assignments
 		updateAssignmentList();
@@ -489,8 +490,11 @@ public class AssignmentWindow implements ActionListener {
 		//Retrieve Type of Assignment
 		AssignmentTypes type = TYPES[typeBox.getSelectedIndex()];
 
-		//Call to controller to notify middle-end and back-end
-		controller.addAssignment(course, assigned, due, type, nameField.getText(), descField.getText());
+		//Call to controller to notify middle-end and back-end >> Keep the fields if the assignment could not be added
+		if (!controller.addAssignment(course, assigned, due, type, nameField.getText(), descField.getText())) {
+			showSaveError();
+			return;
+		}
 
 		//Update the JList of current Assignments
 		updateAssignmentList();
@@ -521,13 +525,20 @@ public class AssignmentWindow implements ActionListener {
 		//Assignment to remove
 		Assignment removedAssignment = assignments.remove(index);
 		//Contact middle-end & back-end
-		controller.setAssignmentComplete(removedAssignment, true);
-		controller.removeAssignment(course, removedAssignment);
+		if (!controller.setAssignmentComplete(removedAssignment, true) || !controller.removeAssignment(course, removedAssignment))
+			showSaveError();
 		
 		//Update the JList of current Assignments
 		updateAssignmentList();
 	}
 	
+	/**
+	 * Informs the user that a change could not be made because too many changes are still waiting to be saved
+	 */
+	private void showSaveError() {
+		JOptionPane.showMessageDialog(null, "Too many changes are waiting to be saved - try again in a moment", "Error", JOptionPane.ERROR_MESSAGE);
+	}
+	
 	/**
 	 * ActionEvent handler for the AssignmentWindow class
 	 */
@@ -25,8 +25,7 @@ import javax.swing.JScrollPane;
 import javax.swing.SwingConstants;
 import javax.swing.border.Border;
 
-import virtualPlanner.backend.Assignment;
-import virtualPlanner.backend.Course;
+import virtualPlanner.backend.WeekModel;
 import virtualPlanner.reference.Colors;
 import virtualPlanner.reference.Days;
 import virtualPlanner.reference.Fonts;
@@ -93,6 +92,10 @@ public class CalendarWindow implements ActionListener {
 	private JMenuItem menuItemAddCourse;
 	/**Selectable JMenuItem which allows a user to return to the current week*/
 	private JMenuItem menuItemCurrentWeek;
+	/**Selectable JMenuItem which allows a user to import assignments from a file*/
+	private JMenuItem menuItemImport;
+	/**Selectable JMenuItem which allows a user to export assignments to a file*/
+	private JMenuItem menuItemExport;
 
 	//JButtons
 	/**JButton which allows the user to show previous weeks*/
@@ -168,6 +171,12 @@ public class CalendarWindow implements ActionListener {
 		menuItemCurrentWeek = new JMenuItem("Go to Current Week");
 		menuItemCurrentWeek.addActionListener(this);
 		menuOptions.add(menuItemCurrentWeek);
+		menuItemImport = new JMenuItem("Import Assignments...");
+		menuItemImport.addActionListener(this);
+		menuOptions.add(menuItemImport);
+		menuItemExport = new JMenuItem("Export Assignments...");
+		menuItemExport.addActionListener(this);
+		menuOptions.add(menuItemExport);
 
 		//Add Course JMenuItem
 		menuItemAddCourse = new JMenuItem("Add Course");
@@ -180,6 +189,7 @@ public class CalendarWindow implements ActionListener {
 		//Add the base components of the GUI
 		buttons = new CalendarButton[7][];
 		addComponents();
+		addButtons();
 
 		//Refresh current date, week label, and all calendar buttons
 		update();
@@ -315,12 +325,9 @@ public class CalendarWindow implements ActionListener {
 	}
 
 	/**
-	 * This method adds the weekly JButtons to the calendarPanel
+	 * This method adds the weekly JButtons to the calendarPanel once, which are then kept up to date by updateButtons
 	 */
-	private void updateButtons() {
-		
-		//Remove the previous, outdated components
-		panelCalendar.removeAll();
+	private void addButtons() {
 		
 		//Initial default values for GridBagLayout constraints
 		GridBagConstraints c = new GridBagConstraints();
@@ -351,8 +358,7 @@ public class CalendarWindow implements ActionListener {
 			buttons[i] = new CalendarButton[blockOrder.getBlockCount()];
 			for(int j = 0; j < blockOrder.getBlockCount(); j++) {
 				c.gridy = j + 1;
-				Block block = blockOrder.getBlock(j);
-				CalendarButton button = new CalendarButton(BLOCK_SIZE, block, controller.getAssignments(weekStartDate.getUpcomingDate(i), block), controller.getCourse(block), weekStartDate.getUpcomingDate(i));
+				CalendarButton button = new CalendarButton(BLOCK_SIZE, blockOrder.getBlock(j));
 				panelCalendar.add(button, c);
 				buttons[i][j] = button;
 			}
@@ -370,10 +376,31 @@ public class CalendarWindow implements ActionListener {
 		panelCalendar.revalidate();
 	}
 
+	/**
+	 * This method updates only the weekly JButtons whose cells changed since the week was last shown
+	 */
+	private void updateButtons() {
+		for (WeekModel.Cell cell : controller.showWeek(weekStartDate))
+			buttons[cell.getDay()][cell.getIndex()].setCell(cell);
+	}
+
+	/**
+	 * Resets the color of every weekly JButton, since the colors of courses may have changed in the settings
+	 */
+	protected void updateColors() {
+		for (CalendarButton[] day : buttons)
+			for (CalendarButton button : day)
+				button.updateColor();
+	}
+
 	/**
 	 * This method finds and highlights the day of week GUIButton that corresponds to the current day
 	 */
 	private void highlightCurDay() {
+		//The labels are kept between weeks, so the previous highlight is cleared first
+		for(CalendarButton b : dayOfWeekButtons)
+			b.setBackground(Colors.DEFAULT);
+
 		if (currentDate.compareTo(weekStartDate) < 0 || currentDate.compareTo(weekStartDate.getUpcomingDate(7)) > 0)
 			return;
 
@@ -395,14 +422,9 @@ public class CalendarWindow implements ActionListener {
 		//Number of days to include in coming events
 		int numDaysUpcoming = Preferences.numDaysUpcoming();
 
-		//For each day within the numDaysUpcoming range
-		for(int i = 0; i < numDaysUpcoming; i++) {
-			//Get the corresponding date and add its list of assignments
-			Date upcomingDate = currentDate.getUpcomingDate(i);
-			Block[] blocks = Days.getBlocksOnDay(upcomingDate);
-			for(Block b : blocks)
-				arrayListEvents.addAll(controller.getAssignmentNames(upcomingDate, b));
-		}
+		//Get the assignments due within the numDaysUpcoming range in one query
+		if(numDaysUpcoming > 0)
+			arrayListEvents.addAll(controller.getAssignmentNames(currentDate, currentDate.getUpcomingDate(numDaysUpcoming - 1)));
 
 		//Turn ArrayList back into array
 		String[] arrayEvents = arrayListEvents.toArray(new String[0]);
@@ -484,6 +506,14 @@ public class CalendarWindow implements ActionListener {
 			weekStartDate = currentDate.getWeekStartDate();
 			update();
 		}
+
+		else if (src.equals(menuItemImport)) {
+			controller.openImportAssignments();
+		}
+
+		else if (src.equals(menuItemExport)) {
+			controller.openExportAssignments();
+		}
 	}
 	
 	/**
@@ -495,17 +525,13 @@ public class CalendarWindow implements ActionListener {
 	@SuppressWarnings("serial")
 	private class CalendarButton extends JButton implements ActionListener {
 
-		/**ArrayList of all uncompleted assignments within this GUIButton*/
-		private ArrayList<Assignment> assignments;
+		/**The cell of the week model shown by this GUIButton, which holds its course, assignments, and Calendar Date*/
+		private WeekModel.Cell cell;
 
 		/**The block that corresponds to this GUIButton*/
 		private Block block;
-		/**The course that corresponds to this GUIButton*/
-		private Course course;
 		/**The name and text of this GUIButton*/
 		private String name;
-		/**The Calendar Date on which this GUIButton exists*/
-		private Date date;
 
 		/**
 		 * If true, this GUIButton represents a label for the day of week
@@ -531,22 +557,18 @@ public class CalendarWindow implements ActionListener {
 
 		/**
 		 * Constructor for the GUIButtons in the Calendar that represent Blocks
+		 * The GUIButton shows no course until it is given a cell by setCell
 		 * @param block the block that corresponds to the GUIButton
-		 * @param courseID the courseID of the course 
-		 * @param assignments an ArrayList of type Assignment which holds all existing Assignments for this GUIButton
 		 * @param size the preferred size of this GUIButton
 		 */
-		public CalendarButton(Dimension size, Block block, ArrayList<Assignment> assignments, Course course, Date date) {
-			this(size, Preferences.getColor(course == null ? -1 : course.getID()));
-			this.name = block.getBlock().getAbbreviation() + (course == null ? "" : " - " + course.getAbbreviation());
+		public CalendarButton(Dimension size, Block block) {
+			this(size, Preferences.getColor(-1));
+			this.name = block.getBlock().getAbbreviation();
 			this.isDayLabel = false;
 			this.block = block;
-			this.assignments = assignments;
-			this.course = course;
-			this.date = date;
 			this.setFont(Fonts.CALENDAR_BLOCK);
 			this.setVerticalAlignment(SwingConstants.TOP);
-			addAssignmentText();
+			setMultiLineText("");
 		}
 
 		/**
@@ -562,11 +584,28 @@ public class CalendarWindow implements ActionListener {
 			this.setFont(Fonts.CALENDAR_DAY);
 		}
 		
+		/**
+		 * Shows the course and assignments of a cell of the week model
+		 * @param cell the cell, whose contents have changed since this GUIButton last showed it
+		 */
+		private void setCell(WeekModel.Cell cell) {
+			this.cell = cell;
+			this.name = block.getBlock().getAbbreviation() + (cell.getCourse() == null ? "" : " - " + cell.getCourse().getAbbreviation());
+			updateColor();
+			addAssignmentText();
+		}
+
+		/**
+		 * Sets the background to the color of the course in this GUIButton
+		 */
+		private void updateColor() {
+			this.setBackground(Preferences.getColor(cell == null || cell.getCourse() == null ? -1 : cell.getCourse().getID()));
+		}
+
 		private void addAssignmentText() {
 			String assignmentString = "";
-			if(assignments != null)
-				for (Assignment a : assignments)
-					assignmentString += "\n" + a.getName();
+			for (String assignmentName : cell.getAssignmentNames())
+				assignmentString += "\n" + assignmentName;
 			setMultiLineText(assignmentString);
 		}
 
@@ -593,10 +632,10 @@ public class CalendarWindow implements ActionListener {
 					//Un-highlight the already highlighted block
 					deselect();
 					//Re-highlight the clicked GUIButton if it represents a class
-					if(block.getBlock().isClass() && course != null) {
+					if(block.getBlock().isClass() && cell != null && cell.getCourse() != null) {
 						select(button);
 						//Create the New Assignments window for that GUIButton
-						controller.openAddAssignment(name, currentDate, date, block, course);
+						controller.openAddAssignment(name, currentDate, cell.getDate(), block, cell.getCourse());
 					}
 				}
 			}
@@ -1,10 +1,22 @@
 package virtualPlanner.gui;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+import javax.swing.JFileChooser;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.filechooser.FileNameExtensionFilter;
 
 import virtualPlanner.backend.Assignment;
 import virtualPlanner.backend.Controller;
 import virtualPlanner.backend.Course;
+import virtualPlanner.backend.WeekModel;
 import virtualPlanner.io.LoginException;
 import virtualPlanner.reference.AssignmentTypes;
 import virtualPlanner.util.Block;
@@ -17,6 +29,15 @@ import virtualPlanner.util.Date;
  */
 public class GUIController {
 	
+	/**
+	 * The number of milliseconds between syncs with storage.
+	 */
+	private static final int SYNC_PERIOD = 60 * 1000;
+	/**
+	 * The maximum number of errors listed in the summary of an import.
+	 */
+	private static final int IMPORT_ERRORS_SHOWN = 10;
+	
 	/**
 	 * The {@code Controller} for this instance.
 	 */
@@ -62,20 +83,33 @@ public class GUIController {
 	}
 	
 	/**
-	 * Attempts to login a user.
-	 * If successful creates a CalendarWindow.
+	 * Attempts to login a user in the background.
+	 * If successful creates a CalendarWindow and starts syncing with storage periodically.
 	 * 
 	 * @param username The user's username.
 	 * @param password The user's password.
-	 * @return 0 if successful or a negative error code as specified in {@link LoginException}.
-	 */
-	protected int login(String username, String password) {
-		int result = controller.login(username, password);
-		if(result == 0)
-			calendarWindow = new CalendarWindow(this);
+	 * @param onProgress Called on the event dispatch thread with the number of courses loaded so far and the total number of courses.
+	 * @return A future which completes on the event dispatch thread with 0 if successful or a negative error code as specified in {@link LoginException}, and which can be cancelled to abandon the login.
+	 */
+	protected CompletableFuture<Integer> login(String username, String password, BiConsumer<Integer, Integer> onProgress) {
+		CompletableFuture<Integer> result = controller.login(username, password, SwingUtilities::invokeLater, onProgress, this::refreshCalendar);
+		result.thenAccept(code -> {
+			if(code == 0) {
+				calendarWindow = new CalendarWindow(this);
+				new Timer(SYNC_PERIOD, e -> controller.sync(SwingUtilities::invokeLater, this::refreshCalendar)).start();
+			}
+		});
 		return result;
 	}
 	
+	/**
+	 * Updates everything in the calendar if it is being displayed, after the user's data has changed in the background.
+	 */
+	private void refreshCalendar() {
+		if(calendarWindow != null)
+			updateCalendar();
+	}
+	
 	/**
 	 * Updates everything in the calendar.
 	 */
@@ -112,6 +146,65 @@ public class GUIController {
 			assignmentWindow = new AssignmentWindow(title, currentDate, clickedDate, block, course, this);
 	}
 	
+	/**
+	 * Asks the user for a CSV or iCalendar file and the {@code Course} of rows which do not name one, and imports the file in the background.
+	 * Once the import has finished the calendar is updated and a summary of the import is shown.
+	 */
+	protected void openImportAssignments() {
+		JFileChooser chooser = new JFileChooser();
+		chooser.setFileFilter(new FileNameExtensionFilter("Assignments (.csv, .ics)", "csv", "ics"));
+		if(chooser.showOpenDialog(null) != JFileChooser.APPROVE_OPTION)
+			return;
+		Course[] courses = controller.getAllCourses();
+		Course defaultCourse = null;
+		if(courses.length > 0) {
+			String[] names = new String[courses.length];
+			for(int i = 0; i < courses.length; i++)
+				names[i] = courses[i].getName();
+			Object selected = JOptionPane.showInputDialog(null, "Course for rows which do not name one:", "Import Assignments", JOptionPane.QUESTION_MESSAGE, null, names, names[0]);
+			if(selected == null)
+				return;
+			defaultCourse = courses[Arrays.asList(names).indexOf(selected)];
+		}
+		controller.importAssignments(chooser.getSelectedFile(), defaultCourse).thenAccept(report -> {
+			updateCalendar();
+			StringBuilder message = new StringBuilder(String.format("Imported %d of %d assignments in %.0fms.", report.getImportedCount(), report.getRowCount(), report.getElapsedTime()));
+			List<String> errors = report.getErrors();
+			for(int i = 0; i < errors.size() && i < IMPORT_ERRORS_SHOWN; i++)
+				message.append('\n').append(errors.get(i));
+			if(report.getErrorCount() > IMPORT_ERRORS_SHOWN)
+				message.append("\n...and ").append(report.getErrorCount() - IMPORT_ERRORS_SHOWN).append(" more errors.");
+			JOptionPane.showMessageDialog(null, message.toString(), "Import Assignments", errors.isEmpty() ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
+		});
+	}
+	
+	/**
+	 * Asks the user for a CSV or iCalendar file and which {@code Course}s to export, and exports every {@code Assignment} of those {@code Course}s in the background.
+	 * A message is shown once the export has finished.
+	 */
+	protected void openExportAssignments() {
+		JFileChooser chooser = new JFileChooser();
+		chooser.setFileFilter(new FileNameExtensionFilter("Assignments (.csv, .ics)", "csv", "ics"));
+		if(chooser.showSaveDialog(null) != JFileChooser.APPROVE_OPTION)
+			return;
+		Course[] courses = controller.getAllCourses();
+		String[] names = new String[courses.length + 1];
+		names[0] = "All Courses";
+		for(int i = 0; i < courses.length; i++)
+			names[i + 1] = courses[i].getName();
+		Object selected = JOptionPane.showInputDialog(null, "Courses to export:", "Export Assignments", JOptionPane.QUESTION_MESSAGE, null, names, names[0]);
+		if(selected == null)
+			return;
+		int index = Arrays.asList(names).indexOf(selected);
+		File file = chooser.getSelectedFile();
+		controller.exportAssignments(file, index == 0 ? null : courses[index - 1], null, null, null).whenComplete((count, e) -> {
+			if(e == null)
+				JOptionPane.showMessageDialog(null, "Exported " + count + " assignments to " + file.getName() + ".", "Export Assignments", JOptionPane.INFORMATION_MESSAGE);
+			else
+				JOptionPane.showMessageDialog(null, "Unable to export: " + e.getMessage(), "Export Assignments", JOptionPane.ERROR_MESSAGE);
+		});
+	}
+	
 	/**
 	 * To be called when the add courses window has closed.
 	 * Updates the calendar appropriately.
@@ -123,11 +216,12 @@ public class GUIController {
 	
 	/**
 	 * To be called when the settings window has closed.
-	 * Updates the calendar appropriately.
+	 * Updates the calendar appropriately, including the colors of {@code Course}s which did not otherwise change.
 	 */
 	protected void settingsClosed() {
 		settingsWindow = null;
 		updateCalendar();
+		calendarWindow.updateColors();
 	}
 	
 	/**
@@ -196,13 +290,42 @@ public class GUIController {
 		return controller.getAssignmentNames(date, block);
 	}
 	
+	/**
+	 * Retrieves String representations of the user's {@code Assignment}s that are due in a range of {@code Date}s, in order of {@code Date}, then of priority, then of id.
+	 * 
+	 * @param from The first {@code Date} of the range.
+	 * @param to The last {@code Date} of the range.
+	 * @return String representations of any {@code Assignment}s which the user has due in the range.
+	 */
+	protected ArrayList<String> getAssignmentNames(Date from, Date to) {
+		return controller.getAssignmentNames(from, to);
+	}
+	
+	/**
+	 * Shows a week of the user's schedule.
+	 * 
+	 * @param weekStart The first {@code Date} of the week.
+	 * @return The cells whose contents differ from when they were last shown, which is every cell the first time.
+	 */
+	protected List<WeekModel.Cell> showWeek(Date weekStart) {
+		return controller.showWeek(weekStart);
+	}
+	
 	/**
 	 * Changes the name of the the user.
 	 * 
 	 * @param newName The new name for the user.
+	 * @return {@code true} if successful, {@code false} if too many changes are already waiting to be saved.
 	 */
-	protected void setUserName(String newName) {
-		controller.setUserName(newName);
+	protected boolean setUserName(String newName) {
+		return controller.setUserName(newName);
+	}
+	
+	/**
+	 * @return {@code true} if too many changes are already waiting to be saved for another to be made, {@code false} otherwise.
+	 */
+	protected boolean isSaveQueueFull() {
+		return controller.getWriteQueue().isFull();
 	}
 	
 	/**
@@ -212,7 +335,7 @@ public class GUIController {
 	 * @param name The name of the new {@code Course}.
 	 * @param abbreviation The abbrevation of the new {@code Course}.
 	 * @param teacher The name the teacher of the new {@code Course}.
-	 * @return {@code true} if the operation was successful; {@code false} if a conflict occurs because one or more of the specified {@code Block}s is already filled with another {@code Course} in the user's schedule.
+	 * @return {@code true} if the operation was successful; {@code false} if a conflict occurs because one or more of the specified {@code Block}s is already filled with another {@code Course} in the user's schedule, or if too many changes are already waiting to be saved.
 	 */
 	protected boolean addCourse(Block[] blocks, String name, String abbreviation, String teacher) {
 		return controller.addCourse(blocks, name, abbreviation, teacher);
@@ -222,9 +345,10 @@ public class GUIController {
 	 * Removes a {@code Course} from the user's schedule entirely.
 	 * 
 	 * @param course The {@code Course} to remove.
+	 * @return {@code true} if successful, {@code false} if too many changes are already waiting to be saved.
 	 */
-	protected void removeCourse(Course course) {
-		controller.removeCourse(course);
+	protected boolean removeCourse(Course course) {
+		return controller.removeCourse(course);
 	}
 	
 	/**
@@ -233,7 +357,7 @@ public class GUIController {
 	 * 
 	 * @param newBlocks The updated {@code Block}s for the {@code Course}.
 	 * @param course The {@code Course} to update.
-	 * @return {@code true} if the operation was successful; {@code false} if a conflict occurs because one or more of the specified {@code Block}s is already filled with another {@code Course} in the user's schedule.
+	 * @return {@code true} if the operation was successful; {@code false} if a conflict occurs because one or more of the specified {@code Block}s is already filled with another {@code Course} in the user's schedule, or if too many changes are already waiting to be saved.
 	 */
 	protected boolean changeCourseBlocks(Block[] newBlocks, Course course) {
 		return controller.changeCourseBlocks(newBlocks, course);
@@ -244,9 +368,10 @@ public class GUIController {
 	 * 
 	 * @param course The {@code Course} to update.
 	 * @param newName The new name for the {@code Course}.
+	 * @return {@code true} if successful, {@code false} if too many changes are already waiting to be saved.
 	 */
-	protected void setCourseName(Course course, String newName) {
-		controller.setCourseName(course, newName);
+	protected boolean setCourseName(Course course, String newName) {
+		return controller.setCourseName(course, newName);
 	}
 	
 	/**
@@ -254,9 +379,10 @@ public class GUIController {
 	 * 
 	 * @param course The {@code Course} to update.
 	 * @param newAbbreviation The new abbreviation for the {@code Course}.
+	 * @return {@code true} if successful, {@code false} if too many changes are already waiting to be saved.
 	 */
-	protected void setCourseAbbreviation(Course course, String newAbbreviation) {
-		controller.setCourseAbbreviation(course, newAbbreviation);
+	protected boolean setCourseAbbreviation(Course course, String newAbbreviation) {
+		return controller.setCourseAbbreviation(course, newAbbreviation);
 	}
 	
 	/**
@@ -264,9 +390,10 @@ public class GUIController {
 	 * 
 	 * @param course The {@code Course} to update.
 	 * @param newTeacher The new teacher for the {@code Course}.
+	 * @return {@code true} if successful, {@code false} if too many changes are already waiting to be saved.
 	 */
-	protected void setCourseTeacher(Course course, String newTeacher) {
-		controller.setCourseTeacher(course, newTeacher);
+	protected boolean setCourseTeacher(Course course, String newTeacher) {
+		return controller.setCourseTeacher(course, newTeacher);
 	}
 	
 	/**
@@ -278,9 +405,10 @@ public class GUIController {
 	 * @param type The type for the new {@code Assignment}.
 	 * @param name The name for the new {@code Assignment}.
 	 * @param description The description for the new {@code Assignment}.
+	 * @return {@code true} if successful, {@code false} if no id could be allocated or too many changes are already waiting to be saved.
 	 */
-	protected void addAssignment(Course course, Date assigned, Date due, AssignmentTypes type, String name, String description) {
-		controller.addAssignment(course, assigned, due, type, name, description);
+	protected boolean addAssignment(Course course, Date assigned, Date due, AssignmentTypes type, String name, String description) {
+		return controller.addAssignment(course, assigned, due, type, name, description);
 	}
 	
 	/**
@@ -288,9 +416,10 @@ public class GUIController {
 	 * 
 	 * @param course The course to which the {@code Assignment} is assigned.
 	 * @param assignment The {@code Assignment} to be removed.
+	 * @return {@code true} if successful, {@code false} if too many changes are already waiting to be saved.
 	 */
-	protected void removeAssignment(Course course, Assignment assignment) {
-		controller.removeAssignment(course, assignment);
+	protected boolean removeAssignment(Course course, Assignment assignment) {
+		return controller.removeAssignment(course, assignment);
 	}
 	
 	/**
@@ -299,9 +428,10 @@ public class GUIController {
 	 * @param oldCourse The {@code Course} to remove the {@code Assignment} from.
 	 * @param newCourse The {@code Course} to add the {@code Assignment} to.
 	 * @param assignment The {@code Assignment} to manipulate.
+	 * @return {@code true} if successful, {@code false} if too many changes are already waiting to be saved.
 	 */
-	protected void changeAssignmentCourse(Course oldCourse, Course newCourse, Assignment assignment) {
-		controller.changeAssignmentCourse(oldCourse, newCourse, assignment);
+	protected boolean changeAssignmentCourse(Course oldCourse, Course newCourse, Assignment assignment) {
+		return controller.changeAssignmentCourse(oldCourse, newCourse, assignment);
 	}
 	
 	/**
@@ -310,9 +440,10 @@ public class GUIController {
 	 * @param course The {@code Course} to which the {@code Assignment} is assigned.
 	 * @param assignment The {@code Assignment} to update.
 	 * @param newDate The new assigned date.
+	 * @return {@code true} if successful, {@code false} if too many changes are already waiting to be saved.
 	 */
-	protected void changeAssignedDate(Course course, Assignment assignment, Date newDate) {
-		controller.changeAssignedDate(course, assignment, newDate);
+	protected boolean changeAssignedDate(Course course, Assignment assignment, Date newDate) {
+		return controller.changeAssignedDate(course, assignment, newDate);
 	}
 	
 	/**
@@ -321,19 +452,37 @@ public class GUIController {
 	 * @param course The {@code Course} to which the {@code Assignment} is assigned.
 	 * @param assignment The {@code Assignment} to update.
 	 * @param newDate The new due date.
+	 * @return {@code true} if successful, {@code false} if too many changes are already waiting to be saved.
+	 */
+	protected boolean changeDueDate(Course course, Assignment assignment, Date newDate) {
+		return controller.changeDueDate(course, assignment, newDate);
+	}
+	
+	/**
+	 * Changes the name, description, assigned date, and due date of an {@code Assignment} at once.
+	 * 
+	 * @param course The {@code Course} to which the {@code Assignment} is assigned.
+	 * @param assignment The {@code Assignment} to update.
+	 * @param newName The name to change to.
+	 * @param newDescription The description to change to.
+	 * @param newAssigned The new assigned date.
+	 * @param newDue The new due date.
+	 * @return {@code true} if successful, {@code false} if too many changes are already waiting to be saved.
 	 */
-	protected void changeDueDate(Course course, Assignment assignment, Date newDate) {
-		controller.changeDueDate(course, assignment, newDate);
+	protected boolean editAssignment(Course course, Assignment assignment, String newName, String newDescription, Date newAssigned, Date newDue) {
+		return controller.editAssignment(course, assignment, newName, newDescription, newAssigned, newDue);
 	}
 	
 	/**
 	 * Changes the name of an {@code Assignment}.
 	 * 
+	 * @param course The {@code Course} to which the {@code Assignment} is assigned.
 	 * @param assignment The {@code Assignment} whose name will be changed.
 	 * @param newName The name to change to.
+	 * @return {@code true} if successful, {@code false} if too many changes are already waiting to be saved.
 	 */
-	protected void setAssignmentName(Assignment assignment, String newName) {
-		controller.setAssignmentName(assignment, newName);
+	protected boolean setAssignmentName(Course course, Assignment assignment, String newName) {
+		return controller.setAssignmentName(course, assignment, newName);
 	}
 	
 	/**
@@ -341,19 +490,22 @@ public class GUIController {
 	 * 
 	 * @param assignment The {@code Assignment} whose description will be changed.
 	 * @param newDescription The description to change to.
+	 * @return {@code true} if successful, {@code false} if too many changes are already waiting to be saved.
 	 */
-	protected void setAssignmentDescription(Assignment assignment, String newDescription) {
-		controller.setAssignmentDescription(assignment, newDescription);
+	protected boolean setAssignmentDescription(Assignment assignment, String newDescription) {
+		return controller.setAssignmentDescription(assignment, newDescription);
 	}
 	
 	/**
-	 * Changes the type of an {@code Assignment}.
+	 * Changes the type of an {@code Assignment}, which also changes its priority.
 	 * 
+	 * @param course The {@code Course} to which the {@code Assignment} is assigned.
 	 * @param assignment The {@code Assignment} whose type will be changed.
 	 * @param newType The type to change to.
+	 * @return {@code true} if successful, {@code false} if too many changes are already waiting to be saved.
 	 */
-	protected void setAssignmentType(Assignment assignment, AssignmentTypes newType) {
-		controller.setAssignmentType(assignment, newType);
+	protected boolean setAssignmentType(Course course, Assignment assignment, AssignmentTypes newType) {
+		return controller.setAssignmentType(course, assignment, newType);
 	}
 	
 	/**
@@ -361,9 +513,10 @@ public class GUIController {
 	 * 
 	 * @param assignment The {@code Assignment} whose completeness will be changed.
 	 * @param isComplete {@code true} if complete, {@code false} otherwise.
+	 * @return {@code true} if successful, {@code false} if too many changes are already waiting to be saved.
 	 */
-	protected void setAssignmentComplete(Assignment assignment, boolean isComplete) {
-		controller.setAssignmentComplete(assignment, isComplete);
+	protected boolean setAssignmentComplete(Assignment assignment, boolean isComplete) {
+		return controller.setAssignmentComplete(assignment, isComplete);
 	}
 	
 }
@@ -8,6 +8,7 @@ import java.awt.event.FocusEvent;
 import java.awt.event.FocusListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
+import java.util.concurrent.CompletableFuture;
 
 import javax.swing.Box;
 import javax.swing.JButton;
@@ -74,6 +75,9 @@ public class LoginWindow implements ActionListener, FocusListener, KeyListener {
 	/**Boolean used in toggling between Log-in and Create Account features*/
 	private boolean showingLoginFeatures;
 
+	/**The login which is currently loading, or null if there is none*/
+	private CompletableFuture<Integer> pendingLogin;
+
 	/**
 	 * Constructor which initializes a Login Window
 	 */
@@ -198,31 +202,58 @@ public class LoginWindow implements ActionListener, FocusListener, KeyListener {
 
 	/**
 	 * This method handles login attempts for the front-end
+	 * The user's data is loaded in the background, so the window stays responsive and the login button cancels the login until it finishes
 	 */
 	private void login() {
 
 		//Obtain current text in password
 		String password = new String(passwordField.getPassword());
 
+		//Show that the login is in progress and turn the login button into a cancel button
+		infoLabel.setForeground(Color.BLACK);
+		infoLabel.setText("Logging in...");
+		loginButton.setText("Cancel");
+		createAccountButton.setEnabled(false);
+
 		//Attempt to login through the GUIController
-		int loginResult = controller.login(usernameField.getText(), password); 
+		CompletableFuture<Integer> login = controller.login(usernameField.getText(), password, (loaded, total) -> infoLabel.setText("Loading courses: " + loaded + " of " + total));
+		pendingLogin = login;
+
+		login.whenComplete((loginResult, e) -> {
+			pendingLogin = null;
+			//Cancelled: restore the login features
+			if (login.isCancelled()) {
+				infoLabel.setText(showingLoginFeatures ? "Please Enter User Credentials:" : "Create Account:");
+				loginButton.setText(showingLoginFeatures ? "Log in" : "Finish and Log in");
+				createAccountButton.setEnabled(true);
+				return;
+			}
 
-		switch (loginResult) {
-		case 0:
-			//Dispose of LoginWindow
-			frame.dispose();
-			break;
-		case LoginException.USER_NOT_REGISTERED:
-			//Inform user of incorrect credentials
-			infoLabel.setForeground(Color.RED);
-			infoLabel.setText("Invalid Username");
-			break;
-		case LoginException.INVALID_PASSWORD:
-			//Inform user of incorrect credentials
-			infoLabel.setForeground(Color.RED);
-			infoLabel.setText("Invalid Password");
-			break;
-		}
+			loginButton.setText(showingLoginFeatures ? "Log in" : "Finish and Log in");
+			createAccountButton.setEnabled(true);
+
+			switch (loginResult) {
+			case 0:
+				//Dispose of LoginWindow
+				frame.dispose();
+				break;
+			case LoginException.USER_NOT_REGISTERED:
+				//Inform user of incorrect credentials
+				infoLabel.setForeground(Color.RED);
+				infoLabel.setText("Invalid Username");
+				break;
+			case LoginException.INVALID_PASSWORD:
+				//Inform user of incorrect credentials
+				infoLabel.setForeground(Color.RED);
+				infoLabel.setText("Invalid Password");
+				break;
+			default:
+				//Inform user that their data could not be loaded
+				infoLabel.setForeground(Color.RED);
+				infoLabel.setText("Unable to Load Planner");
+				break;
+			}
+		});
 	}
 
 	/**
@@ -296,8 +327,12 @@ public class LoginWindow implements ActionListener, FocusListener, KeyListener {
 		//Login Button Clicked - call Corresponding method
 
 		if (src.equals(loginButton)) {
+			//Login in progress: cancel it
+			if (pendingLogin != null) {
+				pendingLogin.cancel(false);
+			}
 			//Login Mode
-			if (showingLoginFeatures) {
+			else if (showingLoginFeatures) {
 				login();
 			}
 			//Signup mode
@@ -0,0 +1,241 @@
+package virtualPlanner.io;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.Set;
+
+import virtualPlanner.backend.Assignment;
+import virtualPlanner.backend.Course;
+import virtualPlanner.backend.User;
+import virtualPlanner.reference.AssignmentTypes;
+import virtualPlanner.util.Date;
+
+/**
+ * Writes {@code Assignment}s to CSV or iCalendar files in the same layout {@link AssignmentImporter} reads, so an export can be imported again.
+ * {@code Assignment}s are read from storage a page at a time with {@link Storage#iterateAssignments(Course, Date, Date)}
+ * and each is written as soon as it is read, so memory use does not depend on the number of {@code Assignment}s exported.
+ * Only the {@code Assignment}s due within a range of {@code Date}s and of a set of types are written.
+ * 
+ * @author JeremiahDeGreeff
+ */
+public class AssignmentExporter {
+	
+	/**
+	 * The columns of an exported CSV file.
+	 */
+	private static final String CSV_HEADER = "name,due,assigned,type,description,course,complete";
+	/**
+	 * The maximum number of characters on a line of an iCalendar file before the rest is folded onto the next line.
+	 */
+	private static final int ICALENDAR_LINE_LENGTH = 73;
+	/**
+	 * The format of the time stamp of each component of an iCalendar file.
+	 */
+	private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("uuuuMMdd'T'HHmmss'Z'");
+	
+	/**
+	 * The {@code Storage} to read {@code Assignment}s from.
+	 */
+	private final Storage storage;
+	/**
+	 * The format to write.
+	 */
+	private final AssignmentImporter.Format format;
+	/**
+	 * The first due {@code Date} to export, or {@code null} for no limit.
+	 */
+	private final Date from;
+	/**
+	 * The last due {@code Date} to export, or {@code null} for no limit.
+	 */
+	private final Date to;
+	/**
+	 * The types of {@code Assignment} to export, or {@code null} to export every type.
+	 */
+	private final Set<AssignmentTypes> types;
+	
+	/**
+	 * @param storage The {@code Storage} to read {@code Assignment}s from.
+	 * @param format The format to write.
+	 * @param from The first due {@code Date} to export, or {@code null} for no limit.
+	 * @param to The last due {@code Date} to export, or {@code null} for no limit.
+	 * @param types The types of {@code Assignment} to export, or {@code null} to export every type.
+	 */
+	public AssignmentExporter(Storage storage, AssignmentImporter.Format format, Date from, Date to, Set<AssignmentTypes> types) {
+		this.storage = storage;
+		this.format = format;
+		this.from = from;
+		this.to = to;
+		this.types = types;
+	}
+	
+	/**
+	 * Writes the {@code Assignment}s of every {@code Course} in a {@code User}'s schedule, one {@code Course} after another.
+	 * 
+	 * @param user The {@code User} whose {@code Assignment}s should be written.
+	 * @param out The file to write to, which should be buffered.
+	 * @return The number of {@code Assignment}s written.
+	 * @throws IOException if the {@code Assignment}s cannot be read or the file cannot be written.
+	 */
+	public int export(User user, Writer out) throws IOException {
+		return export(user.getAllCourses(), out);
+	}
+	
+	/**
+	 * Writes the {@code Assignment}s of a single {@code Course}.
+	 * 
+	 * @param course The {@code Course} whose {@code Assignment}s should be written.
+	 * @param out The file to write to, which should be buffered.
+	 * @return The number of {@code Assignment}s written.
+	 * @throws IOException if the {@code Assignment}s cannot be read or the file cannot be written.
+	 */
+	public int export(Course course, Writer out) throws IOException {
+		return export(new Course[] {course}, out);
+	}
+	
+	/**
+	 * Writes the {@code Assignment}s of each of a set of {@code Course}s, one {@code Course} after another.
+	 * 
+	 * @param courses The {@code Course}s whose {@code Assignment}s should be written.
+	 * @param out The file to write to, which should be buffered.
+	 * @return The number of {@code Assignment}s written.
+	 * @throws IOException if the {@code Assignment}s cannot be read or the file cannot be written.
+	 */
+	public int export(Course[] courses, Writer out) throws IOException {
+		String timestamp = ZonedDateTime.now(ZoneOffset.UTC).format(TIMESTAMP);
+		if(format == AssignmentImporter.Format.CSV)
+			out.write(CSV_HEADER + "\r\n");
+		else
+			out.write("BEGIN:VCALENDAR\r\nVERSION:2.0\r\nPRODID:-//VirtualPlanner//Assignments//EN\r\n");
+		int count = 0;
+		for(Course course : courses) {
+			Iterator<Assignment> assignments = storage.iterateAssignments(course, from, to);
+			try {
+				while(assignments.hasNext()) {
+					Assignment assignment = assignments.next();
+					if(types != null && !types.contains(assignment.getAssignmentType()))
+						continue;
+					if(format == AssignmentImporter.Format.CSV)
+						writeCSV(out, course, assignment);
+					else
+						writeICalendar(out, course, assignment, timestamp);
+					count++;
+				}
+			} catch (IllegalStateException e) {throw new IOException("Unable to read the assignments of " + course.getName() + ".", e);}
+		}
+		if(format == AssignmentImporter.Format.ICALENDAR)
+			out.write("END:VCALENDAR\r\n");
+		out.flush();
+		return count;
+	}
+	
+	/**
+	 * Writes an {@code Assignment} as a row of a CSV file.
+	 * 
+	 * @param out The file to write to.
+	 * @param course The {@code Course} the {@code Assignment} belongs to.
+	 * @param assignment The {@code Assignment} to write.
+	 * @throws IOException if the file cannot be written.
+	 */
+	private static void writeCSV(Writer out, Course course, Assignment assignment) throws IOException {
+		out.write(quote(assignment.getName()));
+		out.write(',');
+		out.write(toISODate(assignment.getDue()));
+		out.write(',');
+		out.write(toISODate(assignment.getAssignedDate()));
+		out.write(',');
+		out.write(assignment.getAssignmentType().getName());
+		out.write(',');
+		out.write(quote(assignment.getDescrip()));
+		out.write(',');
+		out.write(quote(course.getName()));
+		out.write(',');
+		out.write(assignment.isComplete() ? "yes" : "no");
+		out.write("\r\n");
+	}
+	
+	/**
+	 * Quotes a CSV field if it contains a character which would otherwise end it.
+	 * 
+	 * @param field The field.
+	 * @return The field, quoted if necessary.
+	 */
+	private static String quote(String field) {
+		if(field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0 && field.indexOf('\r') < 0)
+			return field;
+		return '"' + field.replace("\"", "\"\"") + '"';
+	}
+	
+	/**
+	 * Writes an {@code Assignment} as a VTODO of an iCalendar file.
+	 * 
+	 * @param out The file to write to.
+	 * @param course The {@code Course} the {@code Assignment} belongs to.
+	 * @param assignment The {@code Assignment} to write.
+	 * @param timestamp The time the file was written, in UTC.
+	 * @throws IOException if the file cannot be written.
+	 */
+	private static void writeICalendar(Writer out, Course course, Assignment assignment, String timestamp) throws IOException {
+		out.write("BEGIN:VTODO\r\n");
+		writeProperty(out, "UID:assignment-" + assignment.getID() + "@virtualplanner");
+		writeProperty(out, "DTSTAMP:" + timestamp);
+		writeProperty(out, "SUMMARY:" + escape(assignment.getName()));
+		if(!assignment.getDescrip().isEmpty())
+			writeProperty(out, "DESCRIPTION:" + escape(assignment.getDescrip()));
+		writeProperty(out, "DTSTART;VALUE=DATE:" + toBasicDate(assignment.getAssignedDate()));
+		writeProperty(out, "DUE;VALUE=DATE:" + toBasicDate(assignment.getDue()));
+		writeProperty(out, "CATEGORIES:" + escape(assignment.getAssignmentType().getName()) + "," + escape(course.getAbbreviation()));
+		if(assignment.isComplete())
+			writeProperty(out, "STATUS:COMPLETED");
+		out.write("END:VTODO\r\n");
+	}
+	
+	/**
+	 * Writes a property of an iCalendar file, folding it onto several lines if it is long.
+	 * 
+	 * @param out The file to write to.
+	 * @param property The property.
+	 * @throws IOException if the file cannot be written.
+	 */
+	private static void writeProperty(Writer out, String property) throws IOException {
+		int start = 0;
+		while(property.length() - start > ICALENDAR_LINE_LENGTH) {
+			out.write(property, start, ICALENDAR_LINE_LENGTH);
+			out.write("\r\n ");
+			start += ICALENDAR_LINE_LENGTH;
+		}
+		out.write(property, start, property.length() - start);
+		out.write("\r\n");
+	}
+	
+	/**
+	 * Escapes the characters of an iCalendar text value which would otherwise be read as separators.
+	 * 
+	 * @param text The text.
+	 * @return The escaped text.
+	 */
+	private static String escape(String text) {
+		return text.replace("\\", "\\\\").replace(";", "\\;").replace(",", "\\,").replace("\r", "").replace("\n", "\\n");
+	}
+	
+	/**
+	 * @param date A {@code Date}.
+	 * @return The {@code Date} in yyyy-MM-dd form.
+	 */
+	private static String toISODate(Date date) {
+		return String.format("%04d-%02d-%02d", date.getYear(), date.getMonth() + 1, date.getDay());
+	}
+	
+	/**
+	 * @param date A {@code Date}.
+	 * @return The {@code Date} in yyyyMMdd form.
+	 */
+	private static String toBasicDate(Date date) {
+		return String.format("%04d%02d%02d", date.getYear(), date.getMonth() + 1, date.getDay());
+	}
+	
+}
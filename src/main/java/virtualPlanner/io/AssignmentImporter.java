@@ -0,0 +1,479 @@
+package virtualPlanner.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.IntSupplier;
+
+import virtualPlanner.backend.Assignment;
+import virtualPlanner.backend.Course;
+import virtualPlanner.reference.AssignmentTypes;
+import virtualPlanner.util.Date;
+
+/**
+ * Reads {@code Assignment}s in bulk from CSV or iCalendar files, such as a syllabus exported from a spreadsheet or a calendar.
+ * The file is streamed a row at a time, so memory use does not depend on its size, and each valid row is handed on as soon as it is read.
+ * Rows which fail validation are recorded in an {@link ImportReport} with the line they start on and are otherwise skipped.
+ * <p>
+ * CSV files must begin with a header row naming their columns: {@code name} and {@code due} are required,
+ * and {@code assigned}, {@code type}, {@code description}, {@code course}, and {@code complete} (yes or no, or 1 or 0) are optional.
+ * In iCalendar files each VEVENT or VTODO is a row: SUMMARY is the name, DUE (or else DTSTART) is the due date,
+ * DTSTART is the assigned date if there is also a DUE, CATEGORIES may name the type and the course, and STATUS:COMPLETED marks it complete.
+ * <p>
+ * Dates may be written as yyyy-MM-dd, M/d/yyyy, or yyyyMMdd. Types are matched by name and courses by name or abbreviation, ignoring case.
+ * A row without an assigned date is assigned today, or on its due date if that has already passed.
+ * An {@code AssignmentImporter} must not be used by more than one thread at once.
+ * 
+ * @author JeremiahDeGreeff
+ */
+public class AssignmentImporter {
+	
+	/**
+	 * The maximum length of the name of an {@code Assignment}, as limited by the database.
+	 */
+	private static final int MAX_NAME_LENGTH = 40;
+	/**
+	 * The maximum length of the description of an {@code Assignment}, as limited by the database.
+	 */
+	private static final int MAX_DESCRIPTION_LENGTH = 100;
+	/**
+	 * The formats dates may be written in, tried in order.
+	 */
+	private static final DateTimeFormatter[] DATE_FORMATS = {
+		DateTimeFormatter.ISO_LOCAL_DATE,
+		DateTimeFormatter.ofPattern("M/d/uuuu").withResolverStyle(ResolverStyle.STRICT),
+		DateTimeFormatter.BASIC_ISO_DATE,
+	};
+	
+	/**
+	 * The formats of file which can be imported.
+	 */
+	public enum Format {
+		CSV, ICALENDAR;
+		
+		/**
+		 * Determines the format of a file from its extension.
+		 * 
+		 * @param fileName The name of the file.
+		 * @return The format, or {@code null} if the extension is not recognized.
+		 */
+		public static Format of(String fileName) {
+			String name = fileName.toLowerCase(Locale.ROOT);
+			if(name.endsWith(".csv"))
+				return CSV;
+			if(name.endsWith(".ics") || name.endsWith(".ical"))
+				return ICALENDAR;
+			return null;
+		}
+	}
+	
+	/**
+	 * The {@code Course}s rows may be assigned to, by lower case name and abbreviation.
+	 */
+	private final Map<String, Course> courses;
+	/**
+	 * The {@code Course} of rows which do not name one, or {@code null} if every row must name one.
+	 */
+	private final Course defaultCourse;
+	/**
+	 * Allocates the ids of the new {@code Assignment}s, returning -1 if none can be allocated.
+	 */
+	private final IntSupplier ids;
+	/**
+	 * The number of the line being read.
+	 */
+	private int line;
+	
+	/**
+	 * @param courses The {@code Course}s rows may be assigned to.
+	 * @param defaultCourse The {@code Course} of rows which do not name one, or {@code null} if every row must name one.
+	 * @param ids Allocates the ids of the new {@code Assignment}s, returning -1 if none can be allocated.
+	 */
+	public AssignmentImporter(Course[] courses, Course defaultCourse, IntSupplier ids) {
+		this.courses = new HashMap<String, Course>();
+		for(Course course : courses) {
+			this.courses.put(course.getName().toLowerCase(Locale.ROOT), course);
+			this.courses.put(course.getAbbreviation().toLowerCase(Locale.ROOT), course);
+		}
+		this.defaultCourse = defaultCourse;
+		this.ids = ids;
+	}
+	
+	/**
+	 * Reads every row of a file, handing each valid row on as it is read.
+	 * 
+	 * @param in The contents of the file.
+	 * @param format The format of the file.
+	 * @param report The report to record rows and errors in.
+	 * @param sink Called with each new {@code Assignment} and the {@code Course} it belongs to.
+	 * @throws IOException if the file cannot be read, in which case the rows read so far have already been handed on.
+	 */
+	public void read(Reader in, Format format, ImportReport report, BiConsumer<Course, Assignment> sink) throws IOException {
+		BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+		line = 1;
+		if(format == Format.CSV)
+			readCSV(reader, report, sink);
+		else
+			readICalendar(reader, report, sink);
+	}
+	
+	/**
+	 * Reads every row of a CSV file.
+	 * 
+	 * @param in The contents of the file.
+	 * @param report The report to record rows and errors in.
+	 * @param sink Called with each new {@code Assignment} and the {@code Course} it belongs to.
+	 * @throws IOException if the file cannot be read.
+	 */
+	private void readCSV(BufferedReader in, ImportReport report, BiConsumer<Course, Assignment> sink) throws IOException {
+		List<String> header = readRecord(in);
+		if(header == null)
+			return;
+		String[] columns = new String[header.size()];
+		for(int i = 0; i < columns.length; i++)
+			columns[i] = header.get(i).replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT); // Drop any byte order mark.
+		if(!Arrays.asList(columns).contains("name") || !Arrays.asList(columns).contains("due")) {
+			report.readFailed("The header must name the name and due columns.");
+			return;
+		}
+		while(true) {
+			int start = line;
+			List<String> record = readRecord(in);
+			if(record == null)
+				return;
+			if(record.size() == 1 && record.get(0).trim().isEmpty()) // Blank line.
+				continue;
+			Map<String, String> fields = new HashMap<String, String>();
+			for(int i = 0; i < columns.length && i < record.size(); i++)
+				fields.put(columns[i], record.get(i).trim());
+			accept(start, fields, report, sink);
+		}
+	}
+	
+	/**
+	 * Reads the fields of the next record of a CSV file.
+	 * Fields may be quoted, in which case they may contain commas, line breaks, and doubled quotes.
+	 * 
+	 * @param in The contents of the file.
+	 * @return The fields of the record, or {@code null} if the end of the file has been reached.
+	 * @throws IOException if the file cannot be read.
+	 */
+	private List<String> readRecord(BufferedReader in) throws IOException {
+		int c = in.read();
+		if(c == -1)
+			return null;
+		List<String> fields = new ArrayList<String>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for(; ; c = in.read()) {
+			if(quoted) {
+				if(c == -1) // Unterminated quote - end the record with the file.
+					quoted = false;
+				else if(c == '"') {
+					in.mark(1);
+					if(in.read() == '"')
+						field.append('"');
+					else {
+						in.reset();
+						quoted = false;
+					}
+					continue;
+				}
+				else {
+					if(c == '\n')
+						line++;
+					field.append((char) c);
+					continue;
+				}
+			}
+			if(c == '"')
+				quoted = true;
+			else if(c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			}
+			else if(c == '\n' || c == -1) {
+				line++;
+				fields.add(field.toString());
+				return fields;
+			}
+			else if(c != '\r')
+				field.append((char) c);
+		}
+	}
+	
+	/**
+	 * Reads every VEVENT and VTODO of an iCalendar file.
+	 * 
+	 * @param in The contents of the file.
+	 * @param report The report to record rows and errors in.
+	 * @param sink Called with each new {@code Assignment} and the {@code Course} it belongs to.
+	 * @throws IOException if the file cannot be read.
+	 */
+	private void readICalendar(BufferedReader in, ImportReport report, BiConsumer<Course, Assignment> sink) throws IOException {
+		Map<String, String> properties = null;
+		int start = 0, nested = 0;
+		String next = in.readLine();
+		while(next != null) {
+			int at = line;
+			StringBuilder content = new StringBuilder(next);
+			// Long lines are folded onto following lines which start with whitespace.
+			while((next = in.readLine()) != null) {
+				line++;
+				if(next.isEmpty() || next.charAt(0) != ' ' && next.charAt(0) != '\t')
+					break;
+				content.append(next, 1, next.length());
+			}
+			String property = content.toString();
+			int colon = valueStart(property);
+			if(colon < 0)
+				continue;
+			String name = property.substring(0, colon);
+			if(name.indexOf(';') >= 0) // Drop the parameters.
+				name = name.substring(0, name.indexOf(';'));
+			name = name.trim().toUpperCase(Locale.ROOT);
+			String value = property.substring(colon + 1);
+			boolean row = value.equalsIgnoreCase("VEVENT") || value.equalsIgnoreCase("VTODO");
+			if(name.equals("BEGIN")) {
+				if(properties != null)
+					nested++;
+				else if(row) {
+					properties = new HashMap<String, String>();
+					start = at;
+				}
+			}
+			else if(properties == null)
+				continue;
+			else if(name.equals("END")) {
+				if(nested > 0)
+					nested--;
+				else if(row) {
+					accept(start, toFields(properties), report, sink);
+					properties = null;
+				}
+			}
+			else if(nested == 0)
+				properties.putIfAbsent(name, value);
+		}
+	}
+	
+	/**
+	 * Finds the colon which separates the name and parameters of an iCalendar property from its value.
+	 * 
+	 * @param property The property.
+	 * @return The index of the colon, or -1 if there is none.
+	 */
+	private static int valueStart(String property) {
+		boolean quoted = false;
+		for(int i = 0; i < property.length(); i++) {
+			char c = property.charAt(i);
+			if(c == '"')
+				quoted = !quoted;
+			else if(c == ':' && !quoted)
+				return i;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Maps the properties of a VEVENT or VTODO to the same fields as the columns of a CSV file.
+	 * 
+	 * @param properties The values of the properties by upper case name.
+	 * @return The fields by column name.
+	 */
+	private Map<String, String> toFields(Map<String, String> properties) {
+		Map<String, String> fields = new HashMap<String, String>();
+		fields.put("name", unescape(properties.get("SUMMARY")));
+		fields.put("description", unescape(properties.get("DESCRIPTION")));
+		String due = properties.get("DUE"), start = properties.get("DTSTART");
+		fields.put("due", toDate(due != null ? due : start));
+		if(due != null)
+			fields.put("assigned", toDate(start));
+		if(properties.containsKey("STATUS"))
+			fields.put("complete", properties.get("STATUS").trim().equalsIgnoreCase("COMPLETED") ? "yes" : "no");
+		if(properties.containsKey("CATEGORIES"))
+			for(String category : properties.get("CATEGORIES").split("(?<!\\\\),")) {
+				category = unescape(category);
+				if(getType(category) != null)
+					fields.putIfAbsent("type", category);
+				else if(getCourse(category) != null)
+					fields.putIfAbsent("course", category);
+			}
+		return fields;
+	}
+	
+	/**
+	 * Removes the escapes from an iCalendar text value.
+	 * 
+	 * @param value The escaped value, or {@code null}.
+	 * @return The unescaped value, or an empty String if {@code value} is {@code null}.
+	 */
+	private static String unescape(String value) {
+		if(value == null)
+			return "";
+		StringBuilder text = new StringBuilder();
+		for(int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if(c == '\\' && i + 1 < value.length()) {
+				char escaped = value.charAt(++i);
+				text.append(escaped == 'n' || escaped == 'N' ? '\n' : escaped);
+			}
+			else
+				text.append(c);
+		}
+		return text.toString().trim();
+	}
+	
+	/**
+	 * Drops the time from an iCalendar date or date-time value.
+	 * 
+	 * @param value The value, or {@code null}.
+	 * @return The date in yyyyMMdd form, or {@code null} if {@code value} is {@code null}.
+	 */
+	private static String toDate(String value) {
+		if(value == null)
+			return null;
+		value = value.trim();
+		return value.length() > 8 ? value.substring(0, 8) : value;
+	}
+	
+	/**
+	 * Validates a row and hands it on if it is valid, or records why it is not.
+	 * 
+	 * @param start The line the row starts on.
+	 * @param fields The values of the row by column name.
+	 * @param report The report to record the row in.
+	 * @param sink Called with the new {@code Assignment} and the {@code Course} it belongs to if the row is valid.
+	 */
+	private void accept(int start, Map<String, String> fields, ImportReport report, BiConsumer<Course, Assignment> sink) {
+		report.rowRead();
+		String name = field(fields, "name"), description = field(fields, "description");
+		if(name.isEmpty()) {
+			report.rowRejected(start, "Missing name.");
+			return;
+		}
+		if(name.length() > MAX_NAME_LENGTH) {
+			report.rowRejected(start, "Name is longer than " + MAX_NAME_LENGTH + " characters.");
+			return;
+		}
+		if(description.length() > MAX_DESCRIPTION_LENGTH) {
+			report.rowRejected(start, "Description is longer than " + MAX_DESCRIPTION_LENGTH + " characters.");
+			return;
+		}
+		String dueText = field(fields, "due"), assignedText = field(fields, "assigned");
+		if(dueText.isEmpty()) {
+			report.rowRejected(start, "Missing due date.");
+			return;
+		}
+		LocalDate due = parseDate(dueText);
+		if(due == null) {
+			report.rowRejected(start, "Invalid due date: " + dueText);
+			return;
+		}
+		LocalDate assigned;
+		if(assignedText.isEmpty()) {
+			LocalDate today = LocalDate.now();
+			assigned = today.isAfter(due) ? due : today;
+		}
+		else if((assigned = parseDate(assignedText)) == null) {
+			report.rowRejected(start, "Invalid assigned date: " + assignedText);
+			return;
+		}
+		if(assigned.isAfter(due)) {
+			report.rowRejected(start, "Assigned date is after the due date.");
+			return;
+		}
+		String typeText = field(fields, "type");
+		AssignmentTypes type = typeText.isEmpty() ? AssignmentTypes.HOMEWORK : getType(typeText);
+		if(type == null) {
+			report.rowRejected(start, "Unknown assignment type: " + typeText);
+			return;
+		}
+		String courseText = field(fields, "course");
+		Course course = courseText.isEmpty() ? defaultCourse : getCourse(courseText);
+		if(course == null) {
+			report.rowRejected(start, courseText.isEmpty() ? "Missing course." : "Unknown course: " + courseText);
+			return;
+		}
+		String completeText = field(fields, "complete").toLowerCase(Locale.ROOT);
+		boolean complete;
+		if(completeText.equals("yes") || completeText.equals("1"))
+			complete = true;
+		else if(completeText.isEmpty() || completeText.equals("no") || completeText.equals("0"))
+			complete = false;
+		else {
+			report.rowRejected(start, "Invalid completeness: " + field(fields, "complete"));
+			return;
+		}
+		int id = ids.getAsInt();
+		if(id == -1) {
+			report.rowRejected(start, "No id could be allocated.");
+			return;
+		}
+		report.rowAccepted();
+		sink.accept(course, new Assignment(id, toDate(assigned), toDate(due), type, name, description, complete));
+	}
+	
+	/**
+	 * @param fields The values of a row by column name.
+	 * @param column The name of a column.
+	 * @return The value of the column, or an empty String if the row has no value for it.
+	 */
+	private static String field(Map<String, String> fields, String column) {
+		String value = fields.get(column);
+		return value == null ? "" : value;
+	}
+	
+	/**
+	 * Parses a date in any of the accepted formats.
+	 * 
+	 * @param text The date.
+	 * @return The date, or {@code null} if it is not in an accepted format.
+	 */
+	private static LocalDate parseDate(String text) {
+		for(DateTimeFormatter format : DATE_FORMATS) {
+			try {return LocalDate.parse(text, format);}
+			catch (DateTimeParseException e) {} // Try the next format.
+		}
+		return null;
+	}
+	
+	/**
+	 * @param date A {@code LocalDate}.
+	 * @return The equivalent {@code Date}.
+	 */
+	private static Date toDate(LocalDate date) {
+		return new Date(date.getDayOfMonth(), date.getMonthValue(), date.getYear());
+	}
+	
+	/**
+	 * @param name The name of a type of assignment, in any case.
+	 * @return The type, or {@code null} if there is no type with that name.
+	 */
+	private static AssignmentTypes getType(String name) {
+		for(AssignmentTypes type : AssignmentTypes.values())
+			if(type.getName().equalsIgnoreCase(name.trim()))
+				return type;
+		return null;
+	}
+	
+	/**
+	 * @param name The name or abbreviation of a {@code Course}, in any case.
+	 * @return The {@code Course}, or {@code null} if no {@code Course} has that name or abbreviation.
+	 */
+	private Course getCourse(String name) {
+		return courses.get(name.trim().toLowerCase(Locale.ROOT));
+	}
+	
+}
@@ -0,0 +1,86 @@
+package virtualPlanner.io;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A list of parameterized sql statements which are executed together by {@link DatabaseController#execute(Batch)}.
+ * Consecutive statements with the same sql are sent to the database as a single JDBC batch.
+ * 
+ * @author JeremiahDeGreeff
+ */
+public class Batch {
+	
+	/**
+	 * The sql of each statement in order.
+	 */
+	private final List<String> statements;
+	/**
+	 * The values to bind to each statement in order.
+	 */
+	private final List<Object[]> params;
+	
+	/**
+	 * Creates an empty {@code Batch}.
+	 */
+	public Batch() {
+		statements = new ArrayList<String>();
+		params = new ArrayList<Object[]>();
+	}
+	
+	/**
+	 * Adds a statement to this {@code Batch}.
+	 * 
+	 * @param sql An sql statement with a {@code ?} placeholder for each parameter. (INSERT, UPDATE, DELETE)
+	 * @param params The values to bind to the placeholders in order.
+	 * @return This {@code Batch}.
+	 */
+	public Batch add(String sql, Object... params) {
+		statements.add(sql);
+		this.params.add(params);
+		return this;
+	}
+	
+	/**
+	 * Adds all the statements of another {@code Batch} to this {@code Batch}.
+	 * 
+	 * @param other The {@code Batch} whose statements should be added.
+	 * @return This {@code Batch}.
+	 */
+	public Batch addAll(Batch other) {
+		statements.addAll(other.statements);
+		params.addAll(other.params);
+		return this;
+	}
+	
+	/**
+	 * @return The number of statements in this {@code Batch}.
+	 */
+	public int size() {
+		return statements.size();
+	}
+	
+	/**
+	 * @return {@code true} if this {@code Batch} contains no statements, {@code false} otherwise.
+	 */
+	public boolean isEmpty() {
+		return statements.isEmpty();
+	}
+	
+	/**
+	 * @param i The index of a statement.
+	 * @return The sql of the {@code i}-th statement.
+	 */
+	String getSQL(int i) {
+		return statements.get(i);
+	}
+	
+	/**
+	 * @param i The index of a statement.
+	 * @return The values to bind to the {@code i}-th statement.
+	 */
+	Object[] getParams(int i) {
+		return params.get(i);
+	}
+	
+}
@@ -0,0 +1,137 @@
+package virtualPlanner.io;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import virtualPlanner.backend.Assignment;
+import virtualPlanner.backend.Course;
+
+/**
+ * The changes to a {@code User}'s schedule, {@code Course}s, and {@code Assignment}s since a particular version, as returned by {@link Storage#sync}.
+ * 
+ * @author JeremiahDeGreeff
+ */
+public class ChangeSet {
+	
+	/**
+	 * The version which includes every change in this {@code ChangeSet}, to be passed to the next sync.
+	 */
+	private final long version;
+	/**
+	 * {@code Course}s in the schedule whose records changed or which were added to the schedule, without their {@code Assignment}s.
+	 */
+	private final List<Course> courses;
+	/**
+	 * The current blockids of each {@code Course} whose place in the schedule changed by courseid, empty if it was removed.
+	 */
+	private final Map<Integer, Integer[]> schedule;
+	/**
+	 * {@code Assignment}s which were added to a {@code Course} or changed by courseid.
+	 */
+	private final Map<Integer, List<Assignment>> linked;
+	/**
+	 * The ids of {@code Assignment}s which were removed from a {@code Course} by courseid.
+	 */
+	private final Map<Integer, List<Integer>> unlinked;
+	
+	/**
+	 * Creates an empty {@code ChangeSet}.
+	 * 
+	 * @param version The version which includes every change in this {@code ChangeSet}.
+	 */
+	public ChangeSet(long version) {
+		this.version = version;
+		courses = new ArrayList<Course>();
+		schedule = new TreeMap<Integer, Integer[]>();
+		linked = new TreeMap<Integer, List<Assignment>>();
+		unlinked = new TreeMap<Integer, List<Integer>>();
+	}
+	
+	/**
+	 * @return The version which includes every change in this {@code ChangeSet}, to be passed to the next sync.
+	 */
+	public long getVersion() {
+		return version;
+	}
+	
+	/**
+	 * @return {@code Course}s in the schedule whose records changed or which were added to the schedule, without their {@code Assignment}s.
+	 */
+	public List<Course> getCourses() {
+		return courses;
+	}
+	
+	/**
+	 * @return The current blockids of each {@code Course} whose place in the schedule changed by courseid, empty if it was removed.
+	 */
+	public Map<Integer, Integer[]> getSchedule() {
+		return schedule;
+	}
+	
+	/**
+	 * @return {@code Assignment}s which were added to a {@code Course} or changed by courseid.
+	 */
+	public Map<Integer, List<Assignment>> getLinked() {
+		return linked;
+	}
+	
+	/**
+	 * @return The ids of {@code Assignment}s which were removed from a {@code Course} by courseid.
+	 */
+	public Map<Integer, List<Integer>> getUnlinked() {
+		return unlinked;
+	}
+	
+	/**
+	 * @return {@code true} if nothing changed, {@code false} otherwise.
+	 */
+	public boolean isEmpty() {
+		return courses.isEmpty() && schedule.isEmpty() && linked.isEmpty() && unlinked.isEmpty();
+	}
+	
+	/**
+	 * Records a changed or added {@code Course}.
+	 * 
+	 * @param course The {@code Course}.
+	 */
+	void addCourse(Course course) {
+		courses.add(course);
+	}
+	
+	/**
+	 * Records the current place of a {@code Course} in the schedule.
+	 * 
+	 * @param courseid The id of the {@code Course}.
+	 * @param blockids The ids of the {@code Block}s which contain it, empty if it was removed.
+	 */
+	void setBlocks(int courseid, Integer[] blockids) {
+		schedule.put(courseid, blockids);
+	}
+	
+	/**
+	 * Records an {@code Assignment} which was added to a {@code Course} or changed.
+	 * 
+	 * @param courseid The id of the {@code Course}.
+	 * @param assignment The current {@code Assignment}.
+	 */
+	void link(int courseid, Assignment assignment) {
+		if(!linked.containsKey(courseid))
+			linked.put(courseid, new ArrayList<Assignment>());
+		linked.get(courseid).add(assignment);
+	}
+	
+	/**
+	 * Records an {@code Assignment} which was removed from a {@code Course}.
+	 * 
+	 * @param courseid The id of the {@code Course}.
+	 * @param assignmentid The id of the {@code Assignment}.
+	 */
+	void unlink(int courseid, int assignmentid) {
+		if(!unlinked.containsKey(courseid))
+			unlinked.put(courseid, new ArrayList<Integer>());
+		unlinked.get(courseid).add(assignmentid);
+	}
+	
+}
@@ -0,0 +1,61 @@
+package virtualPlanner.io;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The actions which wait for a transaction to end, so that nothing is treated as stored until the transaction which stores it has committed.
+ * 
+ * @author JeremiahDeGreeff
+ */
+class CommitHooks {
+	
+	/**
+	 * The actions to run if the transaction commits, in order.
+	 */
+	private final List<Runnable> onCommit;
+	/**
+	 * The actions to run if the transaction rolls back, in order.
+	 */
+	private final List<Runnable> onRollback;
+	
+	/**
+	 * Creates an empty {@code CommitHooks} for a transaction which is starting.
+	 */
+	CommitHooks() {
+		onCommit = new ArrayList<Runnable>();
+		onRollback = new ArrayList<Runnable>();
+	}
+	
+	/**
+	 * Runs one of two actions once the outcome of a write is known.
+	 * If the write failed or is not part of a transaction, its outcome is already known and the action runs immediately.
+	 * 
+	 * @param hooks The hooks of the transaction the write is part of, or {@code null} if it is not part of one.
+	 * @param stored {@code true} if the write succeeded, {@code false} otherwise.
+	 * @param onCommit Called once the write is committed.
+	 * @param onRollback Called once the write is rolled back or if it failed.
+	 * @return {@code stored}.
+	 */
+	static boolean settle(CommitHooks hooks, boolean stored, Runnable onCommit, Runnable onRollback) {
+		if(stored && hooks != null) {
+			hooks.onCommit.add(onCommit);
+			hooks.onRollback.add(onRollback);
+		} else if(stored)
+			onCommit.run();
+		else
+			onRollback.run();
+		return stored;
+	}
+	
+	/**
+	 * Runs the actions for the outcome of the transaction.
+	 * 
+	 * @param committed {@code true} if the transaction committed, {@code false} if it rolled back.
+	 */
+	void finish(boolean committed) {
+		for(Runnable action : committed ? onCommit : onRollback)
+			action.run();
+	}
+	
+}
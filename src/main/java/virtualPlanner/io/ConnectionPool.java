@@ -0,0 +1,363 @@
+package virtualPlanner.io;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of database {@code Connection}s which may be shared between threads.
+ * Idle connections are validated before they are handed out and are closed once they have been idle for too long.
+ * New connections are formed with an exponential backoff so that a network failure does not require a restart.
+ * 
+ * @author JeremiahDeGreeff
+ */
+public class ConnectionPool {
+	
+	/**
+	 * The number of seconds to wait for a connection to respond to validation.
+	 */
+	private static final int VALIDATION_TIMEOUT = 2;
+	/**
+	 * Connections which have been idle for less than this many milliseconds are handed out without validation.
+	 */
+	private static final long VALIDATION_INTERVAL = 5000;
+	/**
+	 * The number of milliseconds after which an idle connection is closed.
+	 */
+	private static final long MAX_IDLE_TIME = 5 * 60 * 1000;
+	/**
+	 * The number of milliseconds to wait for a connection to become available before giving up.
+	 */
+	private static final long BORROW_TIMEOUT = 30 * 1000;
+	/**
+	 * The number of attempts made to form a new connection before giving up.
+	 */
+	private static final int CONNECT_ATTEMPTS = 4;
+	/**
+	 * The number of milliseconds to wait after the first failed attempt to connect. Doubles after each subsequent failure.
+	 */
+	private static final long INITIAL_BACKOFF = 250;
+	
+	/**
+	 * The JDBC url of the database.
+	 */
+	private final String url;
+	/**
+	 * The user to connect as.
+	 */
+	private final String user;
+	/**
+	 * The password of the user to connect as.
+	 */
+	private final String password;
+	/**
+	 * The maximum number of connections this pool will hold open at once.
+	 */
+	private final int maxSize;
+	
+	/**
+	 * Permits for each connection which may be handed out.
+	 */
+	private final Semaphore permits;
+	/**
+	 * The connections which are open but not currently in use, most recently used first.
+	 */
+	private final Deque<PooledConnection> idle;
+	/**
+	 * Periodically closes connections which have been idle for too long.
+	 */
+	private final ScheduledExecutorService evictor;
+	/**
+	 * Whether this pool has been closed, after which returned connections are closed instead of kept. Guarded by {@code idle}.
+	 */
+	private boolean closed;
+	
+	/**
+	 * The number of connections currently in use.
+	 */
+	private final AtomicInteger active;
+	/**
+	 * The total number of connections handed out.
+	 */
+	private final AtomicLong borrowCount;
+	/**
+	 * The total number of nanoseconds spent waiting for a connection to become available.
+	 */
+	private final AtomicLong waitTime;
+	/**
+	 * The longest number of nanoseconds spent waiting for a connection to become available.
+	 */
+	private final AtomicLong maxWaitTime;
+	/**
+	 * The total number of connections which have been formed.
+	 */
+	private final AtomicLong connectCount;
+	/**
+	 * The total number of connections which have been closed because they were idle or broken.
+	 */
+	private final AtomicLong evictionCount;
+	
+	/**
+	 * Creates a pool for a particular database. No connections are formed until one is needed.
+	 * 
+	 * @param url The JDBC url of the database.
+	 * @param user The user to connect as.
+	 * @param password The password of the user to connect as.
+	 * @param maxSize The maximum number of connections to hold open at once.
+	 */
+	public ConnectionPool(String url, String user, String password, int maxSize) {
+		this.url = url;
+		this.user = user;
+		this.password = password;
+		this.maxSize = maxSize;
+		permits = new Semaphore(maxSize, true);
+		idle = new ArrayDeque<PooledConnection>();
+		active = new AtomicInteger();
+		borrowCount = new AtomicLong();
+		waitTime = new AtomicLong();
+		maxWaitTime = new AtomicLong();
+		connectCount = new AtomicLong();
+		evictionCount = new AtomicLong();
+		evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "ConnectionPool-evictor");
+			thread.setDaemon(true);
+			return thread;
+		});
+		evictor.scheduleWithFixedDelay(this::evictIdle, MAX_IDLE_TIME, MAX_IDLE_TIME / 4, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Retrieves a connection from this pool, waiting if all connections are in use.
+	 * The connection must be closed to return it to the pool.
+	 * 
+	 * @return A valid connection.
+	 * @throws SQLException if no connection becomes available in time or a new connection cannot be formed.
+	 */
+	public PooledConnection borrow() throws SQLException {
+		long start = System.nanoTime();
+		try {
+			if(!permits.tryAcquire(BORROW_TIMEOUT, TimeUnit.MILLISECONDS))
+				throw new SQLException("Timed out waiting for a database connection.", "08001");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a database connection.", "08001", e);
+		}
+		long wait = System.nanoTime() - start;
+		waitTime.addAndGet(wait);
+		maxWaitTime.accumulateAndGet(wait, Math::max);
+		try {
+			PooledConnection connection;
+			while((connection = pollIdle()) != null) {
+				if(validate(connection))
+					return lease(connection);
+				discard(connection);
+			}
+			return lease(new PooledConnection(this, connect()));
+		} catch (SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Returns a connection to this pool. Called by {@link PooledConnection#close()}.
+	 * 
+	 * @param connection The connection to return.
+	 */
+	void release(PooledConnection connection) {
+		active.decrementAndGet();
+		boolean reusable;
+		try {reusable = !connection.isBroken() && !connection.getConnection().isClosed();}
+		catch (SQLException e) {reusable = false;}
+		boolean kept = false;
+		if(reusable) {
+			connection.touch();
+			synchronized (idle) {
+				// Nothing closes idle connections once this pool is closed, so they are not kept.
+				kept = !closed;
+				if(kept)
+					idle.push(connection);
+			}
+		}
+		if(!kept)
+			discard(connection);
+		permits.release();
+	}
+	
+	/**
+	 * Closes all idle connections and stops evicting connections.
+	 * Connections which are in use are closed when they are returned.
+	 */
+	public void close() {
+		synchronized (idle) {closed = true;}
+		evictor.shutdownNow();
+		PooledConnection connection;
+		while((connection = pollIdle()) != null)
+			discard(connection);
+	}
+	
+	/**
+	 * @return The number of connections currently in use.
+	 */
+	public int getActiveCount() {
+		return active.get();
+	}
+	
+	/**
+	 * @return The number of connections currently open but not in use.
+	 */
+	public int getIdleCount() {
+		synchronized (idle) {return idle.size();}
+	}
+	
+	/**
+	 * @return The maximum number of connections this pool will hold open at once.
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+	
+	/**
+	 * @return The total number of connections handed out by this pool.
+	 */
+	public long getBorrowCount() {
+		return borrowCount.get();
+	}
+	
+	/**
+	 * @return The average number of milliseconds spent waiting for a connection to become available.
+	 */
+	public double getAverageWaitTime() {
+		long count = borrowCount.get();
+		return count == 0 ? 0 : waitTime.get() / 1e6 / count;
+	}
+	
+	/**
+	 * @return The longest number of milliseconds spent waiting for a connection to become available.
+	 */
+	public double getMaxWaitTime() {
+		return maxWaitTime.get() / 1e6;
+	}
+	
+	/**
+	 * @return The total number of connections which have been formed by this pool.
+	 */
+	public long getConnectCount() {
+		return connectCount.get();
+	}
+	
+	/**
+	 * @return The total number of connections which have been closed because they were idle or broken.
+	 */
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+	
+	/**
+	 * Returns a String representation of the metrics of this {@code ConnectionPool}.
+	 */
+	@Override
+	public String toString() {
+		return String.format("ConnectionPool [active = %d, idle = %d, max = %d, borrowed = %d, average wait = %.2fms, max wait = %.2fms, connects = %d, evictions = %d]", getActiveCount(), getIdleCount(), maxSize, getBorrowCount(), getAverageWaitTime(), getMaxWaitTime(), getConnectCount(), getEvictionCount());
+	}
+	
+	/**
+	 * Marks a connection as in use.
+	 * 
+	 * @param connection The connection being handed out.
+	 * @return {@code connection}
+	 */
+	private PooledConnection lease(PooledConnection connection) {
+		active.incrementAndGet();
+		borrowCount.incrementAndGet();
+		return connection;
+	}
+	
+	/**
+	 * @return The most recently used idle connection or {@code null} if there are none.
+	 */
+	private PooledConnection pollIdle() {
+		synchronized (idle) {return idle.poll();}
+	}
+	
+	/**
+	 * Tests whether an idle connection is still usable.
+	 * Connections which were used very recently are assumed to be usable without a round trip to the database.
+	 * 
+	 * @param connection The connection to test.
+	 * @return {@code true} if the connection is usable, {@code false} otherwise.
+	 */
+	private boolean validate(PooledConnection connection) {
+		try {
+			if(connection.getConnection().isClosed())
+				return false;
+			return connection.getIdleTime() < VALIDATION_INTERVAL || connection.getConnection().isValid(VALIDATION_TIMEOUT);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * Closes a connection which will not be reused.
+	 * 
+	 * @param connection The connection to close.
+	 */
+	private void discard(PooledConnection connection) {
+		evictionCount.incrementAndGet();
+		try {connection.getConnection().close();}
+		catch (SQLException e) {} // The connection is being thrown away regardless.
+	}
+	
+	/**
+	 * Closes all connections which have been idle for too long.
+	 */
+	private void evictIdle() {
+		synchronized (idle) {
+			Iterator<PooledConnection> iter = idle.iterator();
+			while(iter.hasNext()) {
+				PooledConnection connection = iter.next();
+				if(connection.getIdleTime() >= MAX_IDLE_TIME) {
+					iter.remove();
+					discard(connection);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Forms a new connection to the database, retrying with an exponential backoff if the attempt fails.
+	 * 
+	 * @return The new {@code Connection}.
+	 * @throws SQLException if every attempt fails.
+	 */
+	private Connection connect() throws SQLException {
+		long backoff = INITIAL_BACKOFF;
+		for(int attempt = 1; ; attempt++) {
+			try {
+				Connection connection = DriverManager.getConnection(url, user, password);
+				connectCount.incrementAndGet();
+				return connection;
+			} catch (SQLException e) {
+				if(attempt == CONNECT_ATTEMPTS)
+					throw e;
+				System.out.println("Failed to connect to database (attempt " + attempt + " of " + CONNECT_ATTEMPTS + ") - retrying in " + backoff + "ms.");
+				try {Thread.sleep(backoff);}
+				catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+				backoff *= 2;
+			}
+		}
+	}
+	
+}
@@ -1,15 +1,18 @@
 package virtualPlanner.io;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.TreeMap;
+import java.util.concurrent.Executor;
 
 import virtualPlanner.backend.Assignment;
 import virtualPlanner.backend.Course;
@@ -21,60 +24,310 @@ import virtualPlanner.util.Date;
 
 /**
  * A controller for all database operations.
+ * Stores everything in a MySQL database.
  * 
  * @author JeremiahDeGreeff
  */
-public class DatabaseController {
+public class DatabaseController implements Storage {
 	
-	private static final String HOST = "com62-virtualplanner.cxhgmqjablki.us-east-1.rds.amazonaws.com";
-	private static final String PORT = "3306";
-	private static final String DATABASE = "virtualplanner";
-	private static final String USER = "jrdegreeff";
-	private static final String PASSWORD = "supersecretpassword";
+	/**
+	 * Connection properties which prepare statements on the server and cache them for each connection,
+	 * so that statements which are executed repeatedly are only parsed once,
+	 * and which rewrite batched inserts as a single multi-row insert.
+	 */
+	private static final String STATEMENT_CACHE = "useServerPrepStmts=true&cachePrepStmts=true&prepStmtCacheSize=256&prepStmtCacheSqlLimit=1024&rewriteBatchedStatements=true";
+	/**
+	 * Connection property which lets statements with a fetch size read their rows from a server side cursor
+	 * instead of buffering the whole result in memory.
+	 */
+	private static final String CURSOR_FETCH = "useCursorFetch=true";
+	/**
+	 * The number of rows read at a time by iterators over large results.
+	 */
+	private static final int PAGE_SIZE = 500;
+	/**
+	 * The number of milliseconds by which each sync reaches back before the version it is given,
+	 * so that rows committed by transactions which started before the previous sync are not missed.
+	 */
+	private static final long SYNC_OVERLAP = 5 * 1000;
+	/**
+	 * The number of ids reserved at a time for new courses and assignments.
+	 */
+	private static final int ID_BLOCK_SIZE = 32;
 	
 	/**
-	 * This instance's connection to the database.
+	 * This instance's pool of connections to the database.
+	 */
+	private final ConnectionPool pool;
+	/**
+	 * The connection of the transaction which the current thread is running, if any.
+	 */
+	private final ThreadLocal<PooledConnection> transaction = new ThreadLocal<PooledConnection>();
+	/**
+	 * The actions waiting for the end of the transaction which the current thread is running, if any.
+	 */
+	private final ThreadLocal<CommitHooks> hooks = new ThreadLocal<CommitHooks>();
+	/**
+	 * Hands out the ids of new courses.
+	 */
+	private final IDAllocator courseIDs;
+	/**
+	 * Hands out the ids of new assignments.
 	 */
-	private Connection connection;
+	private final IDAllocator assignmentIDs;
+	/**
+	 * The live instance of each course loaded in the current session.
+	 */
+	private final IdentityMap<Course> loadedCourses;
+	/**
+	 * The live instance of each assignment loaded in the current session.
+	 */
+	private final IdentityMap<Assignment> loadedAssignments;
+	/**
+	 * Whether the schema has been brought up to date.
+	 */
+	private volatile boolean migrated;
+	/**
+	 * The error which stopped the schema from being brought up to date, or {@code null} if it has not failed.
+	 * Once set every operation fails, since the schema may not match the statements.
+	 */
+	private SQLException migrationFailure;
 	
 	/**
-	 * Instantiates a {@code DatabaseController} and tests the connection.
+	 * Instantiates a {@code DatabaseController}, tests the connection, and brings the schema up to date.
+	 * If the database cannot be reached, connecting and then migrating are attempted again on each subsequent operation.
+	 * If the migration fails, every operation of this instance fails.
+	 * 
+	 * @param url The JDBC url of the database, without any connection properties.
+	 * @param user The user to connect as.
+	 * @param password The password of the user.
+	 * @param poolSize The maximum number of connections held open to the database at once.
 	 */
-	public DatabaseController() {
+	public DatabaseController(String url, String user, String password, int poolSize) {
+		try {Class.forName("com.mysql.cj.jdbc.Driver");}
+		catch (ClassNotFoundException e) {e.printStackTrace();}
+		pool = new ConnectionPool(url + "?" + STATEMENT_CACHE + "&" + CURSOR_FETCH, user, password, poolSize);
+		courseIDs = new IDAllocator(count -> reserveIDs("course", count), ID_BLOCK_SIZE);
+		assignmentIDs = new IDAllocator(count -> reserveIDs("assignment", count), ID_BLOCK_SIZE);
+		loadedCourses = new IdentityMap<Course>();
+		loadedAssignments = new IdentityMap<Assignment>();
 		try {
-			connection = connect();
+			connect().close();
 			System.out.println("Database Connection Succesful.");
+		} catch (SQLException e) {
+			if(migrationFailure == null) {
+				System.out.println("Failed to connnect to database - will retry when needed.");
+				e.printStackTrace();
+			}
 		}
+	}
+	
+	/**
+	 * @return This instance's pool of connections, which reports connection metrics.
+	 */
+	public ConnectionPool getPool() {
+		return pool;
+	}
+	
+	/**
+	 * @return The maximum number of connections held open to the database at once.
+	 */
+	@Override
+	public int getMaxConcurrency() {
+		return pool.getMaxSize();
+	}
+	
+	/**
+	 * Closes all connections to the database.
+	 */
+	@Override
+	public void close() {
+		pool.close();
+	}
+	
+	/**
+	 * Borrows a connection, which is the connection of the current thread's transaction if it is running one.
+	 * The connection must be closed to return it.
+	 * 
+	 * @return A valid connection.
+	 * @throws SQLException if no connection becomes available in time or a new connection cannot be formed.
+	 */
+	private PooledConnection borrow() throws SQLException {
+		PooledConnection c = transaction.get();
+		return c != null ? c.retain() : connect();
+	}
+	
+	/**
+	 * Borrows a connection from the pool, first bringing the schema up to date over it if that has not been done yet.
+	 * The connection must be closed to return it.
+	 * 
+	 * @return A valid connection.
+	 * @throws SQLException if no connection becomes available in time, a new connection cannot be formed, or the schema could not be migrated.
+	 */
+	private PooledConnection connect() throws SQLException {
+		PooledConnection c = pool.borrow();
+		if(!migrated)
+			try {migrate(c);}
+			catch (SQLException e) {
+				c.close();
+				throw e;
+			}
+		return c;
+	}
+	
+	/**
+	 * Brings the schema up to date over a connection, unless it already has been.
+	 * A failed migration is not attempted again, so that nothing runs against a schema in an unknown state.
+	 * 
+	 * @param c The connection to migrate over.
+	 * @throws SQLException if the migration fails or failed before.
+	 */
+	private synchronized void migrate(PooledConnection c) throws SQLException {
+		if(migrationFailure != null)
+			throw new SQLException("The database schema could not be migrated.", migrationFailure);
+		if(migrated)
+			return;
+		try {new SchemaMigrator(pool).migrate(c);}
 		catch (SQLException e) {
-			System.out.println("Failed to connnect to database - aborting.");
+			System.out.println("Failed to migrate database schema - the database will not be used.");
 			e.printStackTrace();
-			System.exit(-1);
+			migrationFailure = e;
+			throw e;
 		}
+		migrated = true;
 	}
 	
 	/**
-	 * Connects to the database.
+	 * Runs several operations as a single transaction, which is committed with one round trip if they all succeed and rolled back otherwise.
+	 * Every operation the work performs on this {@code DatabaseController} from the same thread uses the transaction's connection.
+	 * If the current thread is already running a transaction, the work joins it.
 	 * 
-	 * @return The {@code Connection} instance.
-	 * @throws SQLException if the {@code Connection} cannot be successfully formed.
+	 * @param work The operations to run.
+	 * @return {@code true} if every operation succeeded and was committed, {@code false} otherwise, in which case none of them take effect.
 	 */
-	public Connection connect() throws SQLException {
-		try {Class.forName("com.mysql.cj.jdbc.Driver").newInstance();}
-		catch (InstantiationException | IllegalAccessException | ClassNotFoundException e) {e.printStackTrace();}
-		return DriverManager.getConnection("jdbc:mysql://" + HOST + ":" + PORT + "/" + DATABASE, USER, PASSWORD);
+	@Override
+	public boolean transaction(WriteBehindQueue.Write work) {
+		if(transaction.get() != null)
+			return work.execute(this);
+		CommitHooks pending = new CommitHooks();
+		boolean committed = false;
+		try (PooledConnection c = connect()) {
+			try {
+				c.getConnection().setAutoCommit(false);
+				transaction.set(c);
+				hooks.set(pending);
+				if(work.execute(this)) {
+					c.getConnection().commit();
+					committed = true;
+				}
+				return committed;
+			} catch (SQLException e) {
+				throw checkConnection(c, e);
+			} finally {
+				transaction.remove();
+				hooks.remove();
+				if(!committed)
+					try {c.getConnection().rollback();}
+					catch (SQLException e) {c.invalidate();}
+				try {c.getConnection().setAutoCommit(true);}
+				catch (SQLException e) {c.invalidate();}
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+			return false;
+		} finally {
+			pending.finish(committed);
+		}
+	}
+	
+	/**
+	 * Prepares a statement and binds its parameters.
+	 * {@code Date}s are bound as SQL dates, {@code Boolean}s as bits, and all other values as their JDBC equivalents.
+	 * 
+	 * @param c The connection to prepare the statement on.
+	 * @param sql An sql statement with a {@code ?} placeholder for each parameter.
+	 * @param params The values to bind to the placeholders in order.
+	 * @return The prepared statement.
+	 * @throws SQLException if the statement cannot be prepared.
+	 */
+	private PreparedStatement prepare(PooledConnection c, String sql, Object... params) throws SQLException {
+		PreparedStatement s = c.getConnection().prepareStatement(sql);
+		try {
+			bind(s, params);
+			return s;
+		} catch (SQLException e) {
+			s.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Binds values to the placeholders of a prepared statement.
+	 * 
+	 * @param s The statement to bind to.
+	 * @param params The values to bind to the placeholders in order.
+	 * @throws SQLException if a value cannot be bound.
+	 */
+	private static void bind(PreparedStatement s, Object... params) throws SQLException {
+		for(int i = 0; i < params.length; i++) {
+			Object param = params[i];
+			if(param instanceof Date)
+				s.setDate(i + 1, toSQLDate((Date) param));
+			else if(param instanceof Boolean)
+				s.setBoolean(i + 1, (Boolean) param);
+			else if(param instanceof Integer)
+				s.setInt(i + 1, (Integer) param);
+			else if(param instanceof String)
+				s.setString(i + 1, (String) param);
+			else
+				s.setObject(i + 1, param);
+		}
+	}
+	
+	/**
+	 * Converts a {@code Date} to the equivalent {@code java.sql.Date}.
+	 * 
+	 * @param date The {@code Date} to convert.
+	 * @return The equivalent {@code java.sql.Date}.
+	 */
+	private static java.sql.Date toSQLDate(Date date) {
+		return java.sql.Date.valueOf(LocalDate.of(date.getYear(), date.getMonth() + 1, date.getDay()));
 	}
 	
 	/**
 	 * Queries the database.
+	 * The {@code Statement} used is closed when the {@code ResultSet} is closed.
 	 * 
+	 * @param c The connection to query with.
 	 * @param sql An sql statement to query with. (SELECT)
+	 * @param params The values to bind to the placeholders of the statement.
 	 * @return The {@code ResultSet} of the query.
+	 * @throws SQLException if the query fails.
 	 */
-	private ResultSet query(String sql) {
-		try {return connection.createStatement().executeQuery(sql);}
-		catch (SQLException e) {
-			e.printStackTrace();
-			return null;
+	private ResultSet query(PooledConnection c, String sql, Object... params) throws SQLException {
+		return query(c, 0, sql, params);
+	}
+	
+	/**
+	 * Queries the database, reading the rows from a forward only cursor a number at a time.
+	 * The {@code Statement} used is closed when the {@code ResultSet} is closed.
+	 * 
+	 * @param c The connection to query with.
+	 * @param fetchSize The number of rows to read at a time, or 0 to read them all at once.
+	 * @param sql An sql statement to query with. (SELECT)
+	 * @param params The values to bind to the placeholders of the statement.
+	 * @return The {@code ResultSet} of the query.
+	 * @throws SQLException if the query fails.
+	 */
+	private ResultSet query(PooledConnection c, int fetchSize, String sql, Object... params) throws SQLException {
+		PreparedStatement s = prepare(c, sql, params);
+		try {
+			s.setFetchSize(fetchSize);
+			s.closeOnCompletion();
+			return s.executeQuery();
+		} catch (SQLException e) {
+			s.close();
+			throw checkConnection(c, e);
 		}
 	}
 	
@@ -82,31 +335,85 @@ public class DatabaseController {
 	 * Updates a row in the database.
 	 * 
 	 * @param sql An sql statement to update with. (INSERT, UPDATE, DELETE)
+	 * @param params The values to bind to the placeholders of the statement.
 	 * @return {@code true} if successful, {@code false} otherwise.
 	 */
-	private boolean update(String sql) {
-		try (Statement s = connection.createStatement()) {
-			s.executeUpdate(sql);
-			return true;
+	private boolean update(String sql, Object... params) {
+		return updateCount(sql, params) >= 0;
+	}
+	
+	/**
+	 * Updates rows in the database and counts the rows matched.
+	 * 
+	 * @param sql An sql statement to update with. (INSERT, UPDATE, DELETE)
+	 * @param params The values to bind to the placeholders of the statement.
+	 * @return The number of rows matched by the statement or -1 if an error occurs.
+	 */
+	private int updateCount(String sql, Object... params) {
+		try (PooledConnection c = borrow(); PreparedStatement s = prepare(c, sql, params)) {
+			try {return s.executeUpdate();}
+			catch (SQLException e) {throw checkConnection(c, e);}
 		} catch (SQLException e) {
 			e.printStackTrace();
-			return false;
+			return -1;
 		}
 	}
 	
 	/**
-	 * Inserts a record into the database and returns its id.
+	 * Executes all the statements in a {@link Batch} in a single transaction, or as part of the current thread's transaction if it is running one.
+	 * Consecutive statements with the same sql are sent together as one JDBC batch, so inserting many rows into a table costs a single round trip.
+	 * 
+	 * @param batch The statements to execute.
+	 * @return {@code true} if every statement succeeded, {@code false} otherwise, in which case none of the statements take effect.
+	 */
+	public boolean execute(Batch batch) {
+		if(batch.isEmpty())
+			return true;
+		return transaction(db -> {
+			try (PooledConnection c = borrow()) {
+				int start = 0;
+				while(start < batch.size()) {
+					String sql = batch.getSQL(start);
+					int end = start + 1;
+					while(end < batch.size() && batch.getSQL(end).equals(sql))
+						end++;
+					try (PreparedStatement s = c.getConnection().prepareStatement(sql)) {
+						for(int i = start; i < end; i++) {
+							bind(s, batch.getParams(i));
+							s.addBatch();
+						}
+						for(int count : s.executeBatch())
+							if(count == Statement.EXECUTE_FAILED)
+								throw new SQLException("Batched statement failed: " + sql);
+					} catch (SQLException e) {throw checkConnection(c, e);}
+					start = end;
+				}
+				return true;
+			} catch (SQLException e) {
+				e.printStackTrace();
+				return false;
+			}
+		});
+	}
+	
+	/**
+	 * Reserves a block of consecutive ids for new rows of a table.
+	 * The next free id of each table is kept in the id_block table and is advanced atomically by a single statement.
 	 * 
-	 * @param sql An sql statement to execute - must be an INSERT statement.
-	 * @return The id of the record inserted or -1 if an error occurs.
+	 * @param table The table the ids are for.
+	 * @param count The number of ids to reserve.
+	 * @return The first id of the block, or -1 if an error occurs.
 	 */
-	private int insertGetID(String sql) {
-		try (PreparedStatement s = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);) {
-			s.executeUpdate();
-			try (ResultSet r = s.getGeneratedKeys();) {
-				if(r.next())
-					return r.getInt(1);
-				return -1;
+	private int reserveIDs(String table, int count) {
+		// Never joins the current thread's transaction, since ids which were handed out must not be returned by a rollback.
+		try (PooledConnection c = connect()) {
+			try (PreparedStatement s = prepare(c, "UPDATE id_block SET next = LAST_INSERT_ID(next + ?) WHERE name = ?", count, table)) {
+				if(s.executeUpdate() != 1)
+					throw new SQLException("No id block for table " + table + ".");
+			} catch (SQLException e) {throw checkConnection(c, e);}
+			try (ResultSet r = query(c, "SELECT LAST_INSERT_ID()")) {
+				r.next();
+				return r.getInt(1) - count;
 			}
 		} catch (SQLException e) {
 			e.printStackTrace();
@@ -114,57 +421,192 @@ public class DatabaseController {
 		}
 	}
 	
+	/**
+	 * Marks a connection as broken if an exception indicates that the connection itself has failed,
+	 * so that it is closed instead of being returned to the pool.
+	 * 
+	 * @param c The connection which threw the exception.
+	 * @param e The exception.
+	 * @return {@code e}
+	 */
+	private SQLException checkConnection(PooledConnection c, SQLException e) {
+		if(e.getSQLState() != null && e.getSQLState().startsWith("08")) // Connection exception class.
+			c.invalidate();
+		return e;
+	}
+	
 	/**
 	 * Loads a {@code User} from the database if the specified username password pair is correct.
 	 * 
+	 * Only the {@code Assignment}s which are assigned or due within a range of {@code Date}s are loaded.
+	 * 
 	 * @param username The {@code User}'s username.
 	 * @param password The {@code User}'s password.
-	 * @return The {@code User} with all appropriate {@code Course}s and {@code Assignment}s.
-	 * @throw LoginException if the username is not registered or the password is invalid.
+	 * @param from The first {@code Date} of the range.
+	 * @param to The last {@code Date} of the range.
+	 * @return The {@code User} with all appropriate {@code Course}s and the {@code Assignment}s in the range.
+	 * @throws LoginException if the username is not registered or the password is invalid.
 	 */
-	public User login(String username, String password) throws LoginException {
-		try (ResultSet u = query(String.format("SELECT id, username, password, name FROM user WHERE username = \'%s\';", username))) {
+	@Override
+	public User login(String username, String password, Date from, Date to) throws LoginException {
+		try (PooledConnection c = borrow()) {
+			User user = readSchedule(c, username, password);
+			Course[] courses = user.getAllCourses();
+			if(courses.length > 0) {
+				Map<Integer, List<Assignment>> assignments = readAssignments(c, user, from, to);
+				for(Course course : courses)
+					if(assignments.containsKey(course.getID()))
+						for(Assignment assignment : assignments.get(course.getID()))
+							course.addAssignment(assignment);
+			}
+			return user;
+		} catch (SQLException e) {
+			e.printStackTrace();
+			throw new LoginException(LoginException.SQL_ERROR);
+		}
+	}
+	
+	/**
+	 * Loads a {@code User} and their {@code Course}s from the database if the specified username password pair is correct, without any {@code Assignment}s.
+	 * 
+	 * @param username The {@code User}'s username.
+	 * @param password The {@code User}'s password.
+	 * @return The {@code User} with all appropriate {@code Course}s.
+	 * @throws LoginException if the username is not registered or the password is invalid.
+	 */
+	@Override
+	public User loadSchedule(String username, String password) throws LoginException {
+		try (PooledConnection c = borrow()) {
+			return readSchedule(c, username, password);
+		} catch (SQLException e) {
+			e.printStackTrace();
+			throw new LoginException(LoginException.SQL_ERROR);
+		}
+	}
+	
+	/**
+	 * Reads a {@code User} and their {@code Course}s if the specified username password pair is correct.
+	 * A successful read starts a new session, so no instances loaded before it are reused.
+	 * 
+	 * @param c The connection to read with.
+	 * @param username The {@code User}'s username.
+	 * @param password The {@code User}'s password.
+	 * @return The {@code User} with all appropriate {@code Course}s.
+	 * @throws LoginException if the username is not registered or the password is invalid.
+	 * @throws SQLException if the {@code User} cannot be read.
+	 */
+	private User readSchedule(PooledConnection c, String username, String password) throws LoginException, SQLException {
+		try (ResultSet u = query(c, "SELECT id, username, password, name FROM user WHERE username = ?", username)) {
 			if(!u.next()) // Username doesn't exist.
 				throw new LoginException(LoginException.USER_NOT_REGISTERED);
 			if(!u.getString("password").equals(password)) // Password is incorrect.
 				throw new LoginException(LoginException.INVALID_PASSWORD);
+			loadedCourses.clear();
+			loadedAssignments.clear();
 			User user = new Student(u.getInt("id"), u.getString("name"));
-			try (ResultSet uc = query(String.format("SELECT courseid, blockid FROM user_course WHERE userid = %d", user.getID()))) {
-				Map<Integer, Course> courses = new TreeMap<Integer, Course>();
-				Map<Integer, List<Integer>> blocks = new TreeMap<Integer, List<Integer>>();
+			Map<Integer, Course> courses = new TreeMap<Integer, Course>();
+			Map<Integer, List<Integer>> blocks = new TreeMap<Integer, List<Integer>>();
+			// One row per block of each course.
+			try (ResultSet uc = query(c, "SELECT uc.courseid, uc.blockid, c.name, c.abbreviation, c.teacher FROM user_course uc INNER JOIN course c ON c.id = uc.courseid WHERE uc.userid = ? AND uc.deleted = 0", user.getID())) {
 				while(uc.next()) {
 					int courseid = uc.getInt("courseid");
 					if(!courses.containsKey(courseid)) {
-						courses.put(courseid, loadCourse(courseid));
+						courses.put(courseid, readCourse(courseid, uc));
 						blocks.put(courseid, new ArrayList<Integer>());
 					}
 					blocks.get(courseid).add(uc.getInt("blockid"));
 				}
-				for(int courseid : courses.keySet())
-					user.addCourse(blocks.get(courseid).toArray(new Integer[0]), courses.get(courseid));
 			}
+			for(int courseid : courses.keySet())
+				user.addCourse(blocks.get(courseid).toArray(new Integer[0]), courses.get(courseid));
 			return user;
+		}
+	}
+	
+	/**
+	 * Loads the {@code Assignment}s of a {@code Course} which are assigned or due within a range of {@code Date}s.
+	 * 
+	 * @param course The {@code Course} whose {@code Assignment}s should be loaded.
+	 * @param from The first {@code Date} of the range.
+	 * @param to The last {@code Date} of the range.
+	 * @return The {@code Assignment}s, or {@code null} if an error occurs.
+	 */
+	@Override
+	public List<Assignment> loadAssignments(Course course, Date from, Date to) {
+		List<Assignment> assignments = new ArrayList<Assignment>();
+		try (PooledConnection c = borrow(); ResultSet a = query(c, "SELECT a.id, a.name, a.description, a.isComplete, a.type, a.assigned, a.due FROM course_assignment ca INNER JOIN assignment a ON a.id = ca.assignmentid WHERE ca.courseid = ? AND ca.deleted = 0 AND (a.due BETWEEN ? AND ? OR a.assigned BETWEEN ? AND ?)", course.getID(), from, to, from, to)) {
+			while(a.next())
+				assignments.add(readAssignment(a));
+			return assignments;
 		} catch (SQLException e) {
 			e.printStackTrace();
-			throw new LoginException(LoginException.SQL_ERROR);
+			return null;
+		}
+	}
+	
+	/**
+	 * Loads the {@code Assignment}s in a {@code User}'s schedule which are assigned or due within a range of {@code Date}s.
+	 * 
+	 * @param user The {@code User} whose {@code Assignment}s should be loaded.
+	 * @param from The first {@code Date} of the range.
+	 * @param to The last {@code Date} of the range.
+	 * @return The {@code Assignment}s by courseid, or {@code null} if an error occurs.
+	 */
+	@Override
+	public Map<Integer, List<Assignment>> loadAssignments(User user, Date from, Date to) {
+		try (PooledConnection c = borrow()) {
+			return readAssignments(c, user, from, to);
+		} catch (SQLException e) {
+			e.printStackTrace();
+			return null;
 		}
 	}
 	
+	/**
+	 * Reads the {@code Assignment}s in a {@code User}'s schedule which are assigned or due within a range of {@code Date}s.
+	 * 
+	 * @param c The connection to read with.
+	 * @param user The {@code User} whose {@code Assignment}s should be read.
+	 * @param from The first {@code Date} of the range.
+	 * @param to The last {@code Date} of the range.
+	 * @return The {@code Assignment}s by courseid.
+	 * @throws SQLException if the {@code Assignment}s cannot be read.
+	 */
+	private Map<Integer, List<Assignment>> readAssignments(PooledConnection c, User user, Date from, Date to) throws SQLException {
+		Map<Integer, List<Assignment>> assignments = new TreeMap<Integer, List<Assignment>>();
+		// One row per assignment in the range of every course in the user's schedule.
+		try (ResultSet ca = query(c, "SELECT ca.courseid, a.id, a.name, a.description, a.isComplete, a.type, a.assigned, a.due FROM course_assignment ca INNER JOIN assignment a ON a.id = ca.assignmentid WHERE ca.deleted = 0 AND ca.courseid IN (SELECT courseid FROM user_course WHERE userid = ? AND deleted = 0) AND (a.due BETWEEN ? AND ? OR a.assigned BETWEEN ? AND ?)", user.getID(), from, to, from, to)) {
+			while(ca.next()) {
+				int courseid = ca.getInt("courseid");
+				if(!assignments.containsKey(courseid))
+					assignments.put(courseid, new ArrayList<Assignment>());
+				assignments.get(courseid).add(readAssignment(ca));
+			}
+		}
+		return assignments;
+	}
+	
 	/**
 	 * Loads a {@code Course} from the database and any {@code Assignment}s which are associated with it.
+	 * If the {@code Course} has already been loaded in this session, the live instance is returned as it is without reading the database.
 	 * 
 	 * @param id The id of the {@code Course}.
 	 * @return The {@code Course}, or null if no {@code Course} with the specified id exists.
 	 */
+	@Override
 	public Course loadCourse(int id) {
-		try (ResultSet c = query(String.format("SELECT name, abbreviation, teacher FROM course WHERE id = %d", id))) {
-			if(!c.next())
+		Course loaded = loadedCourses.get(id);
+		if(loaded != null)
+			return loaded;
+		try (PooledConnection c = borrow(); ResultSet r = query(c, "SELECT c.name AS courseName, c.abbreviation, c.teacher, a.id, a.name, a.description, a.isComplete, a.type, a.assigned, a.due FROM course c LEFT JOIN course_assignment ca ON ca.courseid = c.id AND ca.deleted = 0 LEFT JOIN assignment a ON a.id = ca.assignmentid WHERE c.id = ?", id)) {
+			if(!r.next())
 				return null;
-			Course course = new Course(id, c.getString("name"), c.getString("abbreviation"), c.getString("teacher"));
-			try (ResultSet ca = query(String.format("SELECT assignmentid FROM course_assignment WHERE courseid = %d", course.getID()))) {
-				while(ca.next())
-					course.addAssignment(loadAssignment(ca.getInt("assignmentid")));
-			}
+			Course course = loadedCourses.putIfAbsent(id, new Course(id, r.getString("courseName"), r.getString("abbreviation"), r.getString("teacher")));
+			do {
+				r.getInt("id");
+				if(!r.wasNull()) // Otherwise the course has no assignments.
+					course.addAssignment(readAssignment(r));
+			} while(r.next());
 			return course;
 		} catch (SQLException e) {
 			e.printStackTrace();
@@ -174,19 +616,205 @@ public class DatabaseController {
 	
 	/**
 	 * Loads an {@code Assignment} from the database.
+	 * If the {@code Assignment} has already been loaded in this session, the live instance is returned without reading the database.
 	 * 
 	 * @param id The id of the {@code Assignment}.
 	 * @return The {@code Assignment}, or null if no {@code Assignment} with the specified id exists.
 	 */
+	@Override
 	public Assignment loadAssignment(int id) {
-		try (ResultSet a = query(String.format("SELECT name, description, isComplete, type, assigned, due FROM assignment WHERE id = %d", id))) {
-			return a.next() ? new Assignment(id, new Date(a.getString("assigned")), new Date(a.getString("due")), AssignmentTypes.getTypeFromID(a.getInt("type")), a.getString("name"), a.getString("description"), a.getInt("isComplete") == 1) : null;
+		Assignment loaded = loadedAssignments.get(id);
+		if(loaded != null)
+			return loaded;
+		try (PooledConnection c = borrow(); ResultSet r = query(c, "SELECT a.id, a.name, a.description, a.isComplete, a.type, a.assigned, a.due FROM assignment a WHERE a.id = ?", id)) {
+			return r.next() ? readAssignment(r) : null;
 		} catch (SQLException e) {
 			e.printStackTrace();
 			return null;
 		}
 	}
 	
+	/**
+	 * Iterates over the {@code Assignment}s of a {@code Course} in order of due date.
+	 * The {@code Assignment}s are read a page at a time, each page starting after the last {@code Assignment} of the previous one,
+	 * so memory use does not depend on the number of {@code Assignment}s and no connection is held between pages.
+	 * 
+	 * @param course The {@code Course} whose {@code Assignment}s should be read.
+	 * @param from The first due {@code Date} to include, or {@code null} for no limit.
+	 * @param to The last due {@code Date} to include, or {@code null} for no limit.
+	 * @return An iterator over the {@code Assignment}s, whose {@code next()} throws an {@code IllegalStateException} if a page cannot be read.
+	 */
+	@Override
+	public Iterator<Assignment> iterateAssignments(Course course, Date from, Date to) {
+		return new AssignmentPages(course.getID(), from, to);
+	}
+	
+	/**
+	 * Reads the {@code Assignment}s of a {@code Course} a page at a time in order of due date and then id.
+	 */
+	private class AssignmentPages implements Iterator<Assignment> {
+		/**
+		 * The id of the course.
+		 */
+		private final int courseid;
+		/**
+		 * The first due date to include, or {@code null} for no limit.
+		 */
+		private final Date from;
+		/**
+		 * The last due date to include, or {@code null} for no limit.
+		 */
+		private final Date to;
+		/**
+		 * The due date of the last assignment returned, or {@code null} if none has been returned.
+		 */
+		private Date lastDue;
+		/**
+		 * The id of the last assignment returned.
+		 */
+		private int lastID;
+		/**
+		 * The remaining assignments of the current page.
+		 */
+		private Iterator<Assignment> page = Collections.emptyIterator();
+		/**
+		 * Whether the current page is the last one.
+		 */
+		private boolean lastPage;
+		
+		/**
+		 * @param courseid The id of the course.
+		 * @param from The first due date to include, or {@code null} for no limit.
+		 * @param to The last due date to include, or {@code null} for no limit.
+		 */
+		private AssignmentPages(int courseid, Date from, Date to) {
+			this.courseid = courseid;
+			this.from = from;
+			this.to = to;
+		}
+		
+		/**
+		 * @return {@code true} if there is another assignment, {@code false} otherwise.
+		 */
+		@Override
+		public boolean hasNext() {
+			if(!page.hasNext() && !lastPage)
+				page = readPage();
+			return page.hasNext();
+		}
+		
+		/**
+		 * @return The next assignment.
+		 */
+		@Override
+		public Assignment next() {
+			if(!hasNext())
+				throw new NoSuchElementException();
+			Assignment assignment = page.next();
+			lastDue = assignment.getDue();
+			lastID = assignment.getID();
+			return assignment;
+		}
+		
+		/**
+		 * Reads the page which follows the last assignment returned.
+		 * 
+		 * @return The assignments of the page.
+		 */
+		private Iterator<Assignment> readPage() {
+			StringBuilder sql = new StringBuilder("SELECT a.id, a.name, a.description, a.isComplete, a.type, a.assigned, a.due FROM course_assignment ca INNER JOIN assignment a ON a.id = ca.assignmentid WHERE ca.courseid = ? AND ca.deleted = 0");
+			List<Object> params = new ArrayList<Object>();
+			params.add(courseid);
+			if(lastDue != null) {
+				sql.append(" AND (a.due > ? OR a.due = ? AND a.id > ?)");
+				params.add(lastDue);
+				params.add(lastDue);
+				params.add(lastID);
+			} else if(from != null) {
+				sql.append(" AND a.due >= ?");
+				params.add(from);
+			}
+			if(to != null) {
+				sql.append(" AND a.due <= ?");
+				params.add(to);
+			}
+			sql.append(" ORDER BY a.due, a.id LIMIT ?");
+			params.add(PAGE_SIZE);
+			List<Assignment> assignments = new ArrayList<Assignment>(PAGE_SIZE);
+			try (PooledConnection c = borrow(); ResultSet a = query(c, PAGE_SIZE, sql.toString(), params.toArray())) {
+				while(a.next())
+					assignments.add(readAssignment(a));
+			} catch (SQLException e) {throw new IllegalStateException(e);}
+			lastPage = assignments.size() < PAGE_SIZE;
+			return assignments.iterator();
+		}
+	}
+	
+	/**
+	 * Finds the {@code Course} of the current row of a {@code ResultSet}, reusing the live instance if it has already been loaded in this session.
+	 * The row must contain the name, abbreviation, and teacher columns of the course table.
+	 * 
+	 * @param id The id of the {@code Course}.
+	 * @param c The {@code ResultSet} positioned at the row to read.
+	 * @return The {@code Course} represented by the row.
+	 * @throws SQLException if a column cannot be read.
+	 */
+	private Course readCourse(int id, ResultSet c) throws SQLException {
+		Course course = loadedCourses.get(id);
+		return course != null ? course : loadedCourses.putIfAbsent(id, new Course(id, c.getString("name"), c.getString("abbreviation"), c.getString("teacher")));
+	}
+	
+	/**
+	 * Finds the {@code Assignment} of the current row of a {@code ResultSet}, reusing the live instance if it has already been loaded in this session.
+	 * A live instance is returned as it is, since it may have changes which have not been stored yet.
+	 * The row must contain the id, name, description, isComplete, type, assigned, and due columns of the assignment table.
+	 * 
+	 * @param a The {@code ResultSet} positioned at the row to read.
+	 * @return The {@code Assignment} represented by the row.
+	 * @throws SQLException if a column cannot be read.
+	 */
+	private Assignment readAssignment(ResultSet a) throws SQLException {
+		int id = a.getInt("id");
+		Assignment assignment = loadedAssignments.get(id);
+		return assignment != null ? assignment : loadedAssignments.putIfAbsent(id, buildAssignment(a));
+	}
+	
+	/**
+	 * Builds a new {@code Assignment} from the current row of a {@code ResultSet}.
+	 * The row must contain the id, name, description, isComplete, type, assigned, and due columns of the assignment table.
+	 * 
+	 * @param a The {@code ResultSet} positioned at the row to read.
+	 * @return The {@code Assignment} represented by the row.
+	 * @throws SQLException if a column cannot be read.
+	 */
+	private static Assignment buildAssignment(ResultSet a) throws SQLException {
+		return new Assignment(a.getInt("id"), new Date(a.getString("assigned")), new Date(a.getString("due")), AssignmentTypes.getTypeFromID(a.getInt("type")), a.getString("name"), a.getString("description"), a.getInt("isComplete") == 1);
+	}
+	
+	/**
+	 * Makes a {@code Course} built by {@link #sync(User, long)} the live instance for its id, once it is being added to the model,
+	 * unless another instance is already live.
+	 * 
+	 * @param course The {@code Course}.
+	 * @return The live instance, which the new values should be applied to if it is not {@code course}.
+	 */
+	@Override
+	public Course adopt(Course course) {
+		return loadedCourses.putIfAbsent(course.getID(), course);
+	}
+	
+	/**
+	 * Makes an {@code Assignment} built by {@link #sync(User, long)} the live instance for its id, once it is being added to the model,
+	 * unless another instance is already live.
+	 * 
+	 * @param assignment The {@code Assignment}.
+	 * @return The live instance, which the new values should be applied to if it is not {@code assignment}.
+	 */
+	@Override
+	public Assignment adopt(Assignment assignment) {
+		return loadedAssignments.putIfAbsent(assignment.getID(), assignment);
+	}
+	
 	/**
 	 * Creates the account for a new user and adds it to the database.
 	 * 
@@ -196,43 +824,104 @@ public class DatabaseController {
 	 * @return {@code true} if successful, {@code false} otherwise.
 	 * @throws LoginException if a user with the same username already exists.
 	 */
+	@Override
 	public boolean createUser(String username, String password, String name) throws LoginException {
-		try (ResultSet r = query(String.format("SELECT username FROM user WHERE username = \'%s\';", username))) {
+		try (PooledConnection c = borrow(); ResultSet r = query(c, "SELECT username FROM user WHERE username = ?", username)) {
 			if(r.next()) // Username already exists.
 				throw new LoginException(LoginException.USERNAME_ALREADY_EXISTS);
 		} catch (SQLException e) {
 			e.printStackTrace();
 			throw new LoginException(LoginException.SQL_ERROR);
 		}
-		return update(String.format("INSERT INTO user (username, password, name) VALUES (\'%s\', \'%s\', \'%s\');", username, password, name));
+		return update("INSERT INTO user (username, password, name) VALUES (?, ?, ?)", username, password, name);
+	}
+	
+	/**
+	 * Allocates an id for a new {@code Course} from a block of ids reserved in the database.
+	 * 
+	 * @return The id, or -1 if a new block was needed and could not be reserved.
+	 */
+	@Override
+	public int allocateCourseID() {
+		return courseIDs.next();
+	}
+	
+	/**
+	 * Allocates an id for a new {@code Assignment} from a block of ids reserved in the database.
+	 * 
+	 * @return The id, or -1 if a new block was needed and could not be reserved.
+	 */
+	@Override
+	public int allocateAssignmentID() {
+		return assignmentIDs.next();
+	}
+	
+	/**
+	 * Starts reserving blocks of ids in the database in the background, and reserves each later block there while the current one runs low.
+	 * 
+	 * @param executor The executor to reserve ids on, which must not be the thread that allocates them.
+	 */
+	@Override
+	public void prefetchIDs(Executor executor) {
+		courseIDs.prefetch(executor);
+		assignmentIDs.prefetch(executor);
 	}
 	
 	/**
-	 * Creates a {@code Course} Object and adds it to the database.
+	 * Adds a new {@code Course} to the database and associates it with a {@code User} in particular {@code Block}s in a single transaction.
 	 * 
-	 * @param name The name of the {@code Course}.
-	 * @param abbreviation An abbreviation for the {@code Course}.
-	 * @param teacher The teacher of the {@code Course}.
-	 * @return The new {@code Course} object.
+	 * @param user The {@code User} to link.
+	 * @param course The new {@code Course}, whose id was allocated by {@link #allocateCourseID()}.
+	 * @param blocks The {@code Block}s to link.
+	 * @return {@code true} if successful, {@code false} otherwise, in which case nothing is stored.
 	 */
-	public Course createCourse(String name, String abbreviation, String teacher) {
-		int id = insertGetID(String.format("INSERT INTO course (name, abbreviation, teacher) VALUES (\'%s\', \'%s\', \'%s\');", name, abbreviation, teacher));
-		return loadCourse(id);
+	@Override
+	public boolean insert(User user, Course course, Block[] blocks) {
+		// Every field is stored by the insert, so the fields are only clean once it commits.
+		Course.Changes changes = course.takeDirtyFields();
+		boolean stored = execute(new Batch().add("INSERT INTO course (id, name, abbreviation, teacher) VALUES (?, ?, ?, ?)", course.getID(), changes.getName(), changes.getAbbreviation(), changes.getTeacher()).addAll(linkBatch(user, course, blocks)));
+		return CommitHooks.settle(hooks.get(), stored, () -> loadedCourses.put(course.getID(), course), () -> course.restoreDirtyFields(changes.getFields()));
 	}
 	
 	/**
-	 * Creates a {@code Assignment} Object and adds it to the database.
+	 * Adds a new {@code Assignment} to the database and associates it with a {@code Course} in a single transaction.
 	 * 
-	 * @param name The name of the {@code Assignment}.
-	 * @param description A description of the {@code Assignment}.
-	 * @param type The type of the {@code Assignment}.
-	 * @param assigned The {@code Date} when the {@code Assignment} is assigned.
-	 * @param due The {@code Date} when the {@code Assignment} is due.
-	 * @return The new {@code Assignment} object.
+	 * @param course The {@code Course} to link.
+	 * @param assignment The new {@code Assignment}, whose id was allocated by {@link #allocateAssignmentID()}.
+	 * @return {@code true} if successful, {@code false} otherwise, in which case nothing is stored.
 	 */
-	public Assignment createAssignemnt(String name, String description, AssignmentTypes type, Date assigned, Date due) {
-		int id = insertGetID(String.format("INSERT INTO assignment (name, description, isComplete, type, assigned, due) VALUES (\'%s\', \'%s\', 0, %d, \'%s\', \'%s\');", name, description, type.getID(), assigned.toStringSQL(), due.toStringSQL()));
-		return loadAssignment(id);
+	@Override
+	public boolean insert(Course course, Assignment assignment) {
+		return insert(course, Collections.singletonList(assignment));
+	}
+	
+	/**
+	 * Adds new {@code Assignment}s to the database and associates them with a {@code Course} in a single transaction.
+	 * The rows of each table are inserted together, so storing any number of {@code Assignment}s takes two round trips.
+	 * 
+	 * @param course The {@code Course} to link.
+	 * @param assignments The new {@code Assignment}s, whose ids were allocated by {@link #allocateAssignmentID()}.
+	 * @return {@code true} if successful, {@code false} otherwise, in which case nothing is stored.
+	 */
+	@Override
+	public boolean insert(Course course, List<Assignment> assignments) {
+		Batch batch = new Batch();
+		// Every field is stored by the insert, so the fields are only clean once it commits.
+		List<Assignment.Changes> changes = new ArrayList<Assignment.Changes>(assignments.size());
+		for(Assignment assignment : assignments) {
+			Assignment.Changes values = assignment.takeDirtyFields();
+			changes.add(values);
+			batch.add("INSERT INTO assignment (id, name, description, isComplete, type, assigned, due) VALUES (?, ?, ?, ?, ?, ?, ?)", assignment.getID(), values.getName(), values.getDescrip(), values.isComplete(), values.getAssignmentType().getID(), values.getAssignedDate(), values.getDue());
+		}
+		for(Assignment assignment : assignments)
+			batch.add("INSERT INTO course_assignment (courseid, assignmentid) VALUES (?, ?) ON DUPLICATE KEY UPDATE deleted = 0", course.getID(), assignment.getID());
+		return CommitHooks.settle(hooks.get(), execute(batch), () -> {
+			for(Assignment assignment : assignments)
+				loadedAssignments.put(assignment.getID(), assignment);
+		}, () -> {
+			for(int i = 0; i < assignments.size(); i++)
+				assignments.get(i).restoreDirtyFields(changes.get(i).getFields());
+		});
 	}
 	
 	/**
@@ -243,11 +932,37 @@ public class DatabaseController {
 	 * @param block An array of {@code Block}s to link.
 	 * @return {@code true} if successful, {@code false} otherwise.
 	 */
+	@Override
 	public boolean link(User user, Course course, Block[] blocks) {
-		boolean result = true;
+		return execute(linkBatch(user, course, blocks));
+	}
+	
+	/**
+	 * Replaces all associations between a {@code User} and a {@code Course} with associations in a new set of {@code Block}s.
+	 * 
+	 * @param user The {@code User} to relink.
+	 * @param course The {@code Course} to relink.
+	 * @param blocks The {@code Block}s to link.
+	 * @return {@code true} if successful, {@code false} otherwise, in which case the existing associations are unchanged.
+	 */
+	@Override
+	public boolean relink(User user, Course course, Block[] blocks) {
+		return execute(new Batch().add("UPDATE user_course SET deleted = 1 WHERE userid = ? AND courseid = ?", user.getID(), course.getID()).addAll(linkBatch(user, course, blocks)));
+	}
+	
+	/**
+	 * Creates a {@code Batch} which associates a {@code User} with a {@code Course} in each of a set of {@code Block}s.
+	 * 
+	 * @param user The {@code User} to link.
+	 * @param course The {@code Course} to link.
+	 * @param blocks The {@code Block}s to link.
+	 * @return The {@code Batch} of inserts.
+	 */
+	private Batch linkBatch(User user, Course course, Block[] blocks) {
+		Batch batch = new Batch();
 		for(Block block : blocks)
-			result = update(String.format("INSERT INTO user_course (userid, courseid, blockid) VALUES (%d, %d, %d)", user.getID(), course.getID(), block.getID())) && result;
-		return result;
+			batch.add("INSERT INTO user_course (userid, courseid, blockid) VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE deleted = 0", user.getID(), course.getID(), block.getID());
+		return batch;
 	}
 	
 	/**
@@ -257,8 +972,9 @@ public class DatabaseController {
 	 * @param assignment The {@code Assignment} to link.
 	 * @return {@code true} if successful, {@code false} otherwise.
 	 */
+	@Override
 	public boolean link(Course course, Assignment assignment) {
-		return update(String.format("INSERT INTO course_assignment (courseid, assignmentid) VALUES (%d, %d)", course.getID(), assignment.getID()));
+		return update("INSERT INTO course_assignment (courseid, assignmentid) VALUES (?, ?) ON DUPLICATE KEY UPDATE deleted = 0", course.getID(), assignment.getID());
 	}
 	
 	/**
@@ -268,8 +984,9 @@ public class DatabaseController {
 	 * @param course The {@code Course} to unlink.
 	 * @return {@code true} if successful, {@code false} otherwise.
 	 */
+	@Override
 	public boolean unlink(User user, Course course) {
-		return update(String.format("DELETE FROM user_course WHERE userid = %d AND courseid = %d", user.getID(), course.getID()));
+		return update("UPDATE user_course SET deleted = 1 WHERE userid = ? AND courseid = ?", user.getID(), course.getID());
 	}
 	
 	/**
@@ -279,8 +996,9 @@ public class DatabaseController {
 	 * @param assignment The {@code Assignment} to unlink.
 	 * @return @code true} if successful, {@code false} otherwise.
 	 */
+	@Override
 	public boolean unlink(Course course, Assignment assignment) {
-		return update(String.format("DELETE FROM course_assignment WHERE courseid = %d AND assignmentid = %d", course.getID(), assignment.getID()));
+		return update("UPDATE course_assignment SET deleted = 1 WHERE courseid = ? AND assignmentid = ?", course.getID(), assignment.getID());
 	}
 	
 	/**
@@ -289,43 +1007,84 @@ public class DatabaseController {
 	 * @param user The {@code User} whose record should be updated.
 	 * @return {@code true} if successful, {@code false} otherwise.
 	 */
+	@Override
 	public boolean update(User user) {
-		try (ResultSet r = query(String.format("SELECT id FROM user WHERE id = \'%d\';", user.getID()))) {
-			if(!r.next()) // User doesn't exist.
-				return false;
-		} catch (SQLException e) {e.printStackTrace();}
-		update(String.format("Update user SET name = \'%s\' WHERE id = %d;", user.getName(), user.getID()));
-		return true;
+		return updateCount("UPDATE user SET name = ? WHERE id = ?", user.getName(), user.getID()) > 0;
 	}
 	
 	/**
-	 * Updates a {@code Course}'s record in the database.
+	 * Updates the columns of a {@code Course}'s record which have changed since they were last saved.
+	 * No statement is executed if nothing has changed.
 	 * 
 	 * @param course The {@code Course} whose record should be updated.
 	 * @return {@code true} if successful, {@code false} otherwise.
 	 */
+	@Override
 	public boolean update(Course course) {
-		try (ResultSet r = query(String.format("SELECT id FROM course WHERE id = \'%d\';", course.getID()))) {
-			if(!r.next()) // Course doesn't exist.
-				return false;
-		} catch (SQLException e) {e.printStackTrace();}
-		update(String.format("Update course SET name = \'%s\', abbreviation = \'%s\', teacher = \'%s\' WHERE id = %d;", course.getName(), course.getAbbreviation(), course.getTeacher(), course.getID()));
-		return true;
+		Course.Changes changes = course.takeDirtyFields();
+		if(changes.getFields() == 0)
+			return true;
+		StringBuilder sql = new StringBuilder("UPDATE course SET ");
+		List<Object> params = new ArrayList<Object>();
+		if(changes.isChanged(Course.NAME))
+			setColumn(sql, params, "name", changes.getName());
+		if(changes.isChanged(Course.ABBREVIATION))
+			setColumn(sql, params, "abbreviation", changes.getAbbreviation());
+		if(changes.isChanged(Course.TEACHER))
+			setColumn(sql, params, "teacher", changes.getTeacher());
+		params.add(course.getID());
+		if(updateCount(sql.append(" WHERE id = ?").toString(), params.toArray()) > 0)
+			return true;
+		course.restoreDirtyFields(changes.getFields());
+		return false;
 	}
 	
 	/**
-	 * Updates an {@code Assignment}'s record in the database.
+	 * Updates the columns of an {@code Assignment}'s record which have changed since they were last saved.
+	 * No statement is executed if nothing has changed.
 	 * 
 	 * @param assignment The {@code Assignment} whose record should be updated.
 	 * @return {@code true} if successful, {@code false} otherwise.
 	 */
+	@Override
 	public boolean update(Assignment assignment) {
-		try (ResultSet r = query(String.format("SELECT id FROM assignment WHERE id = \'%d\';", assignment.getID()))) {
-			if(!r.next()) // Assignment doesn't exist.
-				return false;
-		} catch (SQLException e) {e.printStackTrace();}
-		update(String.format("Update assignment SET name = \'%s\', description = \'%s\', isComplete = %d, type = %d, assigned = \'%s\', due = \'%s\' WHERE id = %d;", assignment.getName(), assignment.getDescrip(), assignment.isComplete() ? 1 : 0, assignment.getAssignmentType().getID(), assignment.getAssignedDate().toStringSQL(), assignment.getDue().toStringSQL(), assignment.getID()));
-		return true;
+		Assignment.Changes changes = assignment.takeDirtyFields();
+		if(changes.getFields() == 0)
+			return true;
+		StringBuilder sql = new StringBuilder("UPDATE assignment SET ");
+		List<Object> params = new ArrayList<Object>();
+		if(changes.isChanged(Assignment.NAME))
+			setColumn(sql, params, "name", changes.getName());
+		if(changes.isChanged(Assignment.DESCRIPTION))
+			setColumn(sql, params, "description", changes.getDescrip());
+		if(changes.isChanged(Assignment.COMPLETE))
+			setColumn(sql, params, "isComplete", changes.isComplete());
+		if(changes.isChanged(Assignment.TYPE))
+			setColumn(sql, params, "type", changes.getAssignmentType().getID());
+		if(changes.isChanged(Assignment.ASSIGNED))
+			setColumn(sql, params, "assigned", changes.getAssignedDate());
+		if(changes.isChanged(Assignment.DUE))
+			setColumn(sql, params, "due", changes.getDue());
+		params.add(assignment.getID());
+		if(updateCount(sql.append(" WHERE id = ?").toString(), params.toArray()) > 0)
+			return true;
+		assignment.restoreDirtyFields(changes.getFields());
+		return false;
+	}
+	
+	/**
+	 * Appends an assignment to the SET clause of an UPDATE statement.
+	 * 
+	 * @param sql The statement being built, ending in either "SET " or a previous assignment.
+	 * @param params The values to bind to the statement.
+	 * @param column The column to set.
+	 * @param value The value to set it to.
+	 */
+	private static void setColumn(StringBuilder sql, List<Object> params, String column, Object value) {
+		if(!params.isEmpty())
+			sql.append(", ");
+		sql.append(column).append(" = ?");
+		params.add(value);
 	}
 	
 	/**
@@ -334,8 +1093,9 @@ public class DatabaseController {
 	 * @param user The user to delete.
 	 * @return {@code true} if successful, {@code false} otherwise.
 	 */
+	@Override
 	public boolean delete(User user) {
-		return update(String.format("DELETE FROM user WHERE id = %d", user.getID())) && update(String.format("DELETE FROM user_course WHERE userid = %d", user.getID()));
+		return execute(new Batch().add("DELETE FROM user WHERE id = ?", user.getID()).add("DELETE FROM user_course WHERE userid = ?", user.getID()));
 	}
 	
 	/**
@@ -344,8 +1104,9 @@ public class DatabaseController {
 	 * @param course The {@code Course} to remove.
 	 * @return {@code true} if successful, {@code false} otherwise.
 	 */
+	@Override
 	public boolean delete(Course course) {
-		return update(String.format("DELETE FROM course_assignment WHERE courseid = %d", course.getID())) && update(String.format("DELETE FROM user_course WHERE courseid = %d", course.getID()));
+		return execute(new Batch().add("UPDATE course_assignment SET deleted = 1 WHERE courseid = ?", course.getID()).add("UPDATE user_course SET deleted = 1 WHERE courseid = ?", course.getID()));
 	}
 	
 	/**
@@ -354,8 +1115,75 @@ public class DatabaseController {
 	 * @param assignment The {@code Assignment assignment} to remove.
 	 * @return {@code true} if successful, {@code false} otherwise.
 	 */
+	@Override
 	public boolean delete(Assignment assignment) {
-		return update(String.format("DELETE FROM course_assignment WHERE assignmentid = %d", assignment.getID()));
+		return update("UPDATE course_assignment SET deleted = 1 WHERE assignmentid = ?", assignment.getID());
+	}
+	
+	/**
+	 * @return The current time on the database server in milliseconds, which is the version of every row changed after now.
+	 */
+	@Override
+	public long currentVersion() {
+		try (PooledConnection c = borrow(); ResultSet r = query(c, "SELECT CAST(UNIX_TIMESTAMP(NOW(3)) * 1000 AS SIGNED)")) {
+			r.next();
+			return r.getLong(1);
+		} catch (SQLException e) {
+			e.printStackTrace();
+			return 0;
+		}
+	}
+	
+	/**
+	 * Retrieves everything in a {@code User}'s schedule which has changed since a particular version.
+	 * Rows are versioned by their updated_at column, and links are soft deleted so that their removal can be synced.
+	 * 
+	 * @param user The {@code User} whose schedule should be synced.
+	 * @param since The version returned by the previous sync or by {@link #currentVersion()} before the {@code User} was loaded, or 0 for everything.
+	 * @return The changes, or {@code null} if an error occurs.
+	 */
+	@Override
+	public ChangeSet sync(User user, long since) {
+		long version = currentVersion();
+		if(version == 0)
+			return null;
+		long after = Math.max(since - SYNC_OVERLAP, 0);
+		ChangeSet changes = new ChangeSet(version);
+		try (PooledConnection c = borrow()) {
+			// The current blocks of every course whose links changed, or no blocks if all its links were removed.
+			Map<Integer, List<Integer>> blocks = new TreeMap<Integer, List<Integer>>();
+			try (ResultSet uc = query(c, "SELECT courseid, blockid, deleted FROM user_course WHERE userid = ? AND courseid IN (SELECT courseid FROM user_course WHERE userid = ? AND updated_at > FROM_UNIXTIME(? / 1000))", user.getID(), user.getID(), after)) {
+				while(uc.next()) {
+					int courseid = uc.getInt("courseid");
+					if(!blocks.containsKey(courseid))
+						blocks.put(courseid, new ArrayList<Integer>());
+					if(uc.getInt("deleted") == 0)
+						blocks.get(courseid).add(uc.getInt("blockid"));
+				}
+			}
+			for(int courseid : blocks.keySet())
+				changes.setBlocks(courseid, blocks.get(courseid).toArray(new Integer[0]));
+			// Courses in the schedule which changed or were just added to it.
+			try (ResultSet co = query(c, "SELECT c.id, c.name, c.abbreviation, c.teacher FROM course c WHERE c.id IN (SELECT courseid FROM user_course WHERE userid = ? AND deleted = 0) AND (c.updated_at > FROM_UNIXTIME(? / 1000) OR c.id IN (SELECT courseid FROM user_course WHERE userid = ? AND updated_at > FROM_UNIXTIME(? / 1000)))", user.getID(), after, user.getID(), after)) {
+				// New values for courses which are already live are applied to the live instance when the changes are merged.
+				while(co.next())
+					changes.addCourse(new Course(co.getInt("id"), co.getString("name"), co.getString("abbreviation"), co.getString("teacher")));
+			}
+			// Assignments of courses in the schedule which changed, were linked or unlinked, or belong to a course which was just added.
+			try (ResultSet ca = query(c, "SELECT ca.courseid, ca.deleted, a.id, a.name, a.description, a.isComplete, a.type, a.assigned, a.due FROM course_assignment ca INNER JOIN assignment a ON a.id = ca.assignmentid WHERE ca.courseid IN (SELECT courseid FROM user_course WHERE userid = ? AND deleted = 0) AND (ca.updated_at > FROM_UNIXTIME(? / 1000) OR (ca.deleted = 0 AND (a.updated_at > FROM_UNIXTIME(? / 1000) OR ca.courseid IN (SELECT courseid FROM user_course WHERE userid = ? AND updated_at > FROM_UNIXTIME(? / 1000)))))", user.getID(), after, after, user.getID(), after)) {
+				// New values for assignments which are already live are applied to the live instance when the changes are merged.
+				while(ca.next()) {
+					if(ca.getInt("deleted") == 0)
+						changes.link(ca.getInt("courseid"), buildAssignment(ca));
+					else
+						changes.unlink(ca.getInt("courseid"), ca.getInt("id"));
+				}
+			}
+			return changes;
+		} catch (SQLException e) {
+			e.printStackTrace();
+			return null;
+		}
 	}
 	
 }
@@ -0,0 +1,153 @@
+package virtualPlanner.io;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Hands out ids for new records from blocks of consecutive ids which are reserved from storage ahead of time (the hi/lo pattern).
+ * Only one round trip to storage is needed for each block, so new objects can be built with their final id before they are stored.
+ * Once prefetching is started, the next block is reserved in the background while the current one runs low, so handing out an id does not wait for storage.
+ * Ids in a block which are never used are skipped, so ids are unique but not necessarily contiguous.
+ * 
+ * @author JeremiahDeGreeff
+ */
+public class IDAllocator {
+	
+	/**
+	 * An operation which reserves a block of ids in storage.
+	 */
+	@FunctionalInterface
+	public interface Reservation {
+		/**
+		 * Reserves a block of consecutive ids which will never be handed out again.
+		 * 
+		 * @param count The number of ids to reserve.
+		 * @return The first id of the block, or -1 if the block could not be reserved.
+		 */
+		public int reserve(int count);
+	}
+	
+	/**
+	 * Reserves new blocks.
+	 */
+	private final Reservation reservation;
+	/**
+	 * The number of ids left in the current block at which the next block is reserved in the background.
+	 */
+	private final int lowWater;
+	/**
+	 * The number of ids in each block.
+	 */
+	private final int blockSize;
+	/**
+	 * The next id to hand out. Guarded by {@code this}.
+	 */
+	private int next;
+	/**
+	 * The first id after the current block. Guarded by {@code this}.
+	 */
+	private int limit;
+	/**
+	 * The first id of the block reserved in the background to follow the current one, or -1 if there is none. Guarded by {@code this}.
+	 */
+	private int spare = -1;
+	/**
+	 * The executor which reserves blocks in the background, or {@code null} if prefetching has not been started. Guarded by {@code this}.
+	 */
+	private Executor prefetcher;
+	/**
+	 * Whether a block is being reserved in the background. Guarded by {@code this}.
+	 */
+	private boolean prefetching;
+	/**
+	 * The total number of blocks reserved. Guarded by {@code this}.
+	 */
+	private long reserveCount;
+	
+	/**
+	 * Creates an allocator with no block reserved. The first block is reserved when the first id is needed.
+	 * 
+	 * @param reservation Reserves new blocks.
+	 * @param blockSize The number of ids in each block.
+	 */
+	public IDAllocator(Reservation reservation, int blockSize) {
+		this.reservation = reservation;
+		this.blockSize = blockSize;
+		lowWater = Math.max(blockSize / 4, 1);
+	}
+	
+	/**
+	 * Starts reserving blocks in the background: the first block right away, and each later block once the current one runs low.
+	 * 
+	 * @param executor The executor to reserve blocks on, which must not be the thread that hands out ids.
+	 */
+	public synchronized void prefetch(Executor executor) {
+		prefetcher = executor;
+		prefetchIfLow();
+	}
+	
+	/**
+	 * Hands out an id, moving on to the block reserved in the background if the current one has been used up.
+	 * A new block is only reserved on the calling thread if none was reserved in time.
+	 * 
+	 * @return The id, or -1 if a new block was needed and could not be reserved.
+	 */
+	public synchronized int next() {
+		if(next >= limit) {
+			int first = spare;
+			spare = -1;
+			if(first < 0) {
+				first = reservation.reserve(blockSize);
+				if(first < 0)
+					return -1;
+				reserveCount++;
+			}
+			next = first;
+			limit = first + blockSize;
+		}
+		int id = next++;
+		prefetchIfLow();
+		return id;
+	}
+	
+	/**
+	 * Reserves the next block in the background if prefetching has been started, the current block is running low, and no block is reserved or being reserved already.
+	 */
+	private synchronized void prefetchIfLow() {
+		if(prefetcher == null || prefetching || spare >= 0 || limit - next > lowWater)
+			return;
+		prefetching = true;
+		prefetcher.execute(() -> {
+			int first = reservation.reserve(blockSize);
+			synchronized (this) {
+				prefetching = false;
+				if(first >= 0) {
+					reserveCount++;
+					spare = first;
+				}
+			}
+		});
+	}
+	
+	/**
+	 * @return The number of ids which can be handed out before another block must be reserved, including the block reserved in the background.
+	 */
+	public synchronized int getRemaining() {
+		return limit - next + (spare >= 0 ? blockSize : 0);
+	}
+	
+	/**
+	 * @return The total number of blocks reserved.
+	 */
+	public synchronized long getReserveCount() {
+		return reserveCount;
+	}
+	
+	/**
+	 * Returns a String representation of the metrics of this {@code IDAllocator}.
+	 */
+	@Override
+	public synchronized String toString() {
+		return String.format("IDAllocator [block size = %d, remaining = %d, reserved = %d]", blockSize, getRemaining(), reserveCount);
+	}
+	
+}
@@ -0,0 +1,142 @@
+package virtualPlanner.io;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs blocking storage calls in the background, each on its own virtual thread when the Java runtime supports them.
+ * At most a limited number of calls run at once, which should match the number of connections storage can use concurrently.
+ * On runtimes without virtual threads, the calls run on a fixed pool of that many daemon threads instead.
+ * 
+ * @author JeremiahDeGreeff
+ */
+public class IOExecutor implements Executor {
+	
+	/**
+	 * The factory for virtual threads, or {@code null} if virtual threads are not supported.
+	 */
+	private static final ThreadFactory VIRTUAL_THREADS = virtualThreadFactory(null);
+	
+	/**
+	 * The threads which run the calls.
+	 */
+	private final ExecutorService threads;
+	/**
+	 * Permits for the calls which may run at once.
+	 */
+	private final Semaphore permits;
+	/**
+	 * The maximum number of calls which may run at once.
+	 */
+	private final int concurrency;
+	
+	/**
+	 * @param name The prefix of the names of the threads.
+	 * @param concurrency The maximum number of calls which may run at once.
+	 */
+	public IOExecutor(String name, int concurrency) {
+		this.concurrency = concurrency;
+		permits = new Semaphore(concurrency);
+		if(VIRTUAL_THREADS != null)
+			threads = newThreadPerTaskExecutor(virtualThreadFactory(name + "-"));
+		else {
+			AtomicInteger count = new AtomicInteger();
+			threads = Executors.newFixedThreadPool(concurrency, task -> {
+				Thread thread = new Thread(task, name + "-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+	
+	/**
+	 * Runs a call in the background once fewer than the maximum number of calls are running.
+	 * 
+	 * @param task The call to run.
+	 */
+	@Override
+	public void execute(Runnable task) {
+		threads.execute(() -> {
+			permits.acquireUninterruptibly();
+			try {task.run();}
+			finally {permits.release();}
+		});
+	}
+	
+	/**
+	 * Stops accepting calls and interrupts any which are running.
+	 */
+	public void shutdownNow() {
+		threads.shutdownNow();
+	}
+	
+	/**
+	 * @return {@code true} if calls run on virtual threads, {@code false} if they run on platform threads.
+	 */
+	public boolean isVirtual() {
+		return VIRTUAL_THREADS != null;
+	}
+	
+	/**
+	 * @return The maximum number of calls which may run at once.
+	 */
+	public int getConcurrency() {
+		return concurrency;
+	}
+	
+	/**
+	 * @return The number of calls which are running.
+	 */
+	public int getActiveCount() {
+		return concurrency - permits.availablePermits();
+	}
+	
+	/**
+	 * Creates a thread for a long running task, which is virtual when the runtime supports virtual threads and a daemon platform thread otherwise.
+	 * The thread is not started.
+	 * 
+	 * @param name The name of the thread.
+	 * @param task The task the thread runs.
+	 * @return The new thread.
+	 */
+	public static Thread newThread(String name, Runnable task) {
+		Thread thread = VIRTUAL_THREADS != null ? VIRTUAL_THREADS.newThread(task) : new Thread(task);
+		thread.setName(name);
+		if(!thread.isDaemon()) // Virtual threads are always daemon threads.
+			thread.setDaemon(true);
+		return thread;
+	}
+	
+	/**
+	 * Looks up a factory for virtual threads, which only exists on Java 21 and later.
+	 * It is found reflectively so that this class still compiles and runs on older versions.
+	 * 
+	 * @param prefix The prefix of the names of the threads, which is followed by a number counting from 1, or {@code null} if the threads should be unnamed.
+	 * @return The factory, or {@code null} if virtual threads are not supported.
+	 */
+	private static ThreadFactory virtualThreadFactory(String prefix) {
+		try {
+			Class<?> type = Class.forName("java.lang.Thread$Builder");
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			if(prefix != null)
+				builder = type.getMethod("name", String.class, long.class).invoke(builder, prefix, 1L);
+			return (ThreadFactory) type.getMethod("factory").invoke(builder);
+		} catch (ReflectiveOperationException | RuntimeException e) {return null;} // Virtual threads are not supported.
+	}
+	
+	/**
+	 * Creates an executor which starts a new thread from a factory for each task.
+	 * 
+	 * @param factory The factory for the threads.
+	 * @return The executor.
+	 */
+	private static ExecutorService newThreadPerTaskExecutor(ThreadFactory factory) {
+		try {return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);}
+		catch (ReflectiveOperationException e) {throw new IllegalStateException(e);} // Exists wherever virtual threads do.
+	}
+	
+}
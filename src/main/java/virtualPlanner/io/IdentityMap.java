@@ -0,0 +1,262 @@
+package virtualPlanner.io;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+/**
+ * Keeps the one live instance of each stored object of a type which has been loaded in a session, keyed by its id,
+ * so that loading the same row again returns the same object instead of a copy and does not need to build one.
+ * Instances are held by weak references, so an instance is forgotten once nothing else refers to it and this map never keeps objects alive on its own.
+ * Ids are kept as primitive {@code int}s in an open addressing table, so lookups do not allocate.
+ * 
+ * @author JeremiahDeGreeff
+ * @param <T> The type of object.
+ */
+public class IdentityMap<T> {
+	
+	/**
+	 * The number of slots in a new table. Must be a power of two.
+	 */
+	private static final int INITIAL_CAPACITY = 64;
+	
+	/**
+	 * A weak reference to an instance which remembers the instance's id so that it can be removed from the table once the instance is collected.
+	 * 
+	 * @param <T> The type of object.
+	 */
+	private static class Entry<T> extends WeakReference<T> {
+		/**
+		 * The id of the instance.
+		 */
+		private final int id;
+		
+		/**
+		 * @param id The id of the instance.
+		 * @param instance The instance.
+		 * @param queue The queue the reference is added to once the instance is collected.
+		 */
+		private Entry(int id, T instance, ReferenceQueue<T> queue) {
+			super(instance, queue);
+			this.id = id;
+		}
+	}
+	
+	/**
+	 * Receives the entries whose instances have been collected.
+	 */
+	private final ReferenceQueue<T> collected;
+	/**
+	 * The entries, each in the first free slot at or after the slot its id hashes to. Guarded by {@code this}.
+	 */
+	private Entry<T>[] table;
+	/**
+	 * The number of entries in the table. Guarded by {@code this}.
+	 */
+	private int size;
+	/**
+	 * The total number of lookups which found a live instance. Guarded by {@code this}.
+	 */
+	private long hitCount;
+	/**
+	 * The total number of lookups which found no live instance. Guarded by {@code this}.
+	 */
+	private long missCount;
+	
+	/**
+	 * Creates an empty map.
+	 */
+	public IdentityMap() {
+		collected = new ReferenceQueue<T>();
+		table = newTable(INITIAL_CAPACITY);
+	}
+	
+	/**
+	 * Finds the live instance with an id.
+	 * 
+	 * @param id The id.
+	 * @return The instance, or {@code null} if no instance with the id has been loaded or it has been collected.
+	 */
+	public synchronized T get(int id) {
+		expunge();
+		int slot = find(id);
+		T instance = slot < 0 ? null : table[slot].get();
+		if(instance == null)
+			missCount++;
+		else
+			hitCount++;
+		return instance;
+	}
+	
+	/**
+	 * Adds an instance unless there is already a live instance with the same id.
+	 * 
+	 * @param id The id of the instance.
+	 * @param instance The instance.
+	 * @return The instance which was already live, or {@code instance} if there was none.
+	 */
+	public synchronized T putIfAbsent(int id, T instance) {
+		expunge();
+		int slot = find(id);
+		if(slot >= 0) {
+			T existing = table[slot].get();
+			if(existing != null)
+				return existing;
+			table[slot] = new Entry<T>(id, instance, collected);
+			return instance;
+		}
+		insert(id, instance);
+		return instance;
+	}
+	
+	/**
+	 * Adds an instance, replacing any instance with the same id.
+	 * 
+	 * @param id The id of the instance.
+	 * @param instance The instance.
+	 */
+	public synchronized void put(int id, T instance) {
+		expunge();
+		int slot = find(id);
+		if(slot >= 0)
+			table[slot] = new Entry<T>(id, instance, collected);
+		else
+			insert(id, instance);
+	}
+	
+	/**
+	 * Forgets every instance, which starts a new session.
+	 */
+	public synchronized void clear() {
+		table = newTable(INITIAL_CAPACITY);
+		size = 0;
+		while(collected.poll() != null);
+	}
+	
+	/**
+	 * @return The number of instances which are remembered, including any which have been collected but not yet removed.
+	 */
+	public synchronized int size() {
+		expunge();
+		return size;
+	}
+	
+	/**
+	 * @return The total number of lookups which found a live instance.
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+	
+	/**
+	 * @return The total number of lookups which found no live instance.
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+	
+	/**
+	 * Returns a String representation of the metrics of this {@code IdentityMap}.
+	 */
+	@Override
+	public synchronized String toString() {
+		return String.format("IdentityMap [size = %d, hits = %d, misses = %d]", size(), hitCount, missCount);
+	}
+	
+	/**
+	 * @param id An id.
+	 * @return The slot the id hashes to.
+	 */
+	private int home(int id) {
+		int hash = id * 0x9E3779B9;
+		return (hash ^ hash >>> 16) & table.length - 1;
+	}
+	
+	/**
+	 * @param id An id.
+	 * @return The slot of the entry with the id, or -1 if there is none.
+	 */
+	private int find(int id) {
+		for(int slot = home(id); table[slot] != null; slot = slot + 1 & table.length - 1)
+			if(table[slot].id == id)
+				return slot;
+		return -1;
+	}
+	
+	/**
+	 * Adds an entry for an id which has none, doubling the table first if it is half full.
+	 * 
+	 * @param id The id of the instance.
+	 * @param instance The instance.
+	 */
+	private void insert(int id, T instance) {
+		if(2 * (size + 1) > table.length)
+			resize(2 * table.length);
+		int slot = home(id);
+		while(table[slot] != null)
+			slot = slot + 1 & table.length - 1;
+		table[slot] = new Entry<T>(id, instance, collected);
+		size++;
+	}
+	
+	/**
+	 * Removes the entry in a slot, moving back any later entries of the same run which would otherwise no longer be found.
+	 * 
+	 * @param slot The slot.
+	 */
+	private void removeAt(int slot) {
+		int mask = table.length - 1;
+		table[slot] = null;
+		size--;
+		for(int next = slot + 1 & mask; table[next] != null; next = next + 1 & mask) {
+			// An entry may move back to the empty slot only if its home is not between the empty slot and its current slot.
+			int home = home(table[next].id);
+			if((next - home & mask) >= (next - slot & mask)) {
+				table[slot] = table[next];
+				table[next] = null;
+				slot = next;
+			}
+		}
+	}
+	
+	/**
+	 * Removes the entries whose instances have been collected.
+	 */
+	private void expunge() {
+		Reference<? extends T> reference;
+		while((reference = collected.poll()) != null) {
+			int id = ((Entry<?>) reference).id;
+			int slot = find(id);
+			// The entry may already have been replaced by a newer instance with the same id.
+			if(slot >= 0 && table[slot] == reference)
+				removeAt(slot);
+		}
+	}
+	
+	/**
+	 * Moves every entry into a new table.
+	 * 
+	 * @param capacity The number of slots in the new table. Must be a power of two.
+	 */
+	private void resize(int capacity) {
+		Entry<T>[] old = table;
+		table = newTable(capacity);
+		for(Entry<T> entry : old)
+			if(entry != null) {
+				int slot = home(entry.id);
+				while(table[slot] != null)
+					slot = slot + 1 & table.length - 1;
+				table[slot] = entry;
+			}
+	}
+	
+	/**
+	 * @param capacity The number of slots.
+	 * @return A new empty table.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> Entry<T>[] newTable(int capacity) {
+		return (Entry<T>[]) new Entry<?>[capacity];
+	}
+	
+}
@@ -0,0 +1,179 @@
+package virtualPlanner.io;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The outcome of a bulk import: how many rows were read and stored, which rows were rejected and why, and how long it took.
+ * Timing starts when the report is created and stops when {@link #finish()} is called.
+ * 
+ * @author JeremiahDeGreeff
+ */
+public class ImportReport {
+	
+	/**
+	 * The maximum number of error messages which are kept. Further errors are only counted.
+	 */
+	private static final int MAX_ERRORS = 100;
+	
+	/**
+	 * The name of the file which was imported.
+	 */
+	private final String source;
+	/**
+	 * The time this report was created in nanoseconds.
+	 */
+	private final long start;
+	/**
+	 * The messages of the first {@link #MAX_ERRORS} errors.
+	 */
+	private final List<String> errors;
+	/**
+	 * The number of rows read, not including headers and blank lines.
+	 */
+	private int rowCount;
+	/**
+	 * The number of rows which passed validation.
+	 */
+	private int acceptedCount;
+	/**
+	 * The number of rows which were rejected or could not be stored.
+	 */
+	private int errorCount;
+	/**
+	 * The number of nanoseconds between the creation of this report and the call to {@link #finish()}, or -1 if it has not been called.
+	 */
+	private long elapsed = -1;
+	
+	/**
+	 * Creates a report and starts timing the import.
+	 * 
+	 * @param source The name of the file being imported.
+	 */
+	public ImportReport(String source) {
+		this.source = source;
+		start = System.nanoTime();
+		errors = new ArrayList<String>();
+	}
+	
+	/**
+	 * Records that a row has been read.
+	 */
+	public synchronized void rowRead() {
+		rowCount++;
+	}
+	
+	/**
+	 * Records that a row has passed validation.
+	 */
+	public synchronized void rowAccepted() {
+		acceptedCount++;
+	}
+	
+	/**
+	 * Records that a row has been rejected.
+	 * 
+	 * @param line The line of the file on which the row starts.
+	 * @param message Why the row was rejected.
+	 */
+	public synchronized void rowRejected(int line, String message) {
+		errorCount++;
+		keep("Line " + line + ": " + message);
+	}
+	
+	/**
+	 * Records that rows which passed validation could not be stored.
+	 * 
+	 * @param rows The number of rows which were not stored.
+	 */
+	public synchronized void writeFailed(int rows) {
+		acceptedCount -= rows;
+		errorCount += rows;
+		keep(rows + " rows could not be stored.");
+	}
+	
+	/**
+	 * Records that the file could not be read. Rows read before the failure are still reported.
+	 * 
+	 * @param message Why the file could not be read.
+	 */
+	public synchronized void readFailed(String message) {
+		keep("Unable to read " + source + ": " + message);
+	}
+	
+	/**
+	 * Stops timing the import.
+	 */
+	public synchronized void finish() {
+		elapsed = System.nanoTime() - start;
+	}
+	
+	/**
+	 * @return The name of the file which was imported.
+	 */
+	public String getSource() {
+		return source;
+	}
+	
+	/**
+	 * @return The number of rows read, not including headers and blank lines.
+	 */
+	public synchronized int getRowCount() {
+		return rowCount;
+	}
+	
+	/**
+	 * @return The number of rows which were stored, or which passed validation if the import has not finished.
+	 */
+	public synchronized int getImportedCount() {
+		return acceptedCount;
+	}
+	
+	/**
+	 * @return The number of rows which were rejected or could not be stored.
+	 */
+	public synchronized int getErrorCount() {
+		return errorCount;
+	}
+	
+	/**
+	 * @return The messages of the first errors, in the order they occurred.
+	 */
+	public synchronized List<String> getErrors() {
+		return new ArrayList<String>(errors);
+	}
+	
+	/**
+	 * @return The number of milliseconds the import took, or the number which have passed so far if it has not finished.
+	 */
+	public synchronized double getElapsedTime() {
+		return (elapsed < 0 ? System.nanoTime() - start : elapsed) / 1e6;
+	}
+	
+	/**
+	 * @return The number of rows read per second.
+	 */
+	public synchronized double getThroughput() {
+		double seconds = getElapsedTime() / 1000;
+		return seconds == 0 ? 0 : rowCount / seconds;
+	}
+	
+	/**
+	 * Returns a String representation of the metrics of this {@code ImportReport}.
+	 */
+	@Override
+	public synchronized String toString() {
+		return String.format("ImportReport [source = %s, rows = %d, imported = %d, errors = %d, time = %.2fms, throughput = %.0f rows/s]", source, rowCount, acceptedCount, errorCount, getElapsedTime(), getThroughput());
+	}
+	
+	/**
+	 * Keeps the message of an error if fewer than {@link #MAX_ERRORS} have been kept.
+	 * 
+	 * @param message The message of the error.
+	 */
+	private void keep(String message) {
+		if(errors.size() < MAX_ERRORS)
+			errors.add(message);
+	}
+	
+}
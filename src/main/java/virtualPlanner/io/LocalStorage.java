@@ -0,0 +1,1354 @@
+package virtualPlanner.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+
+import virtualPlanner.backend.Assignment;
+import virtualPlanner.backend.Course;
+import virtualPlanner.backend.Student;
+import virtualPlanner.backend.User;
+import virtualPlanner.reference.AssignmentTypes;
+import virtualPlanner.util.Block;
+import virtualPlanner.util.Date;
+
+/**
+ * Stores everything in memory and in a journal file on the local machine, so that no database server is needed.
+ * Every change is appended to the journal as one line before it is applied, and the journal is replayed when the storage is opened.
+ * The lines of a transaction are enclosed by begin and commit markers, and replay only applies a transaction once it reaches its commit marker.
+ * The journal is rewritten as a snapshot of the current records once it has grown much larger than them.
+ * Records and links are versioned by the number of changes applied when they last changed, so versions are only meaningful for the life of an instance.
+ * Behaves the same as {@link DatabaseController}.
+ * 
+ * @author JeremiahDeGreeff
+ */
+public class LocalStorage implements Storage {
+	
+	/**
+	 * The number of lines the journal may hold before it is considered for compaction.
+	 */
+	private static final int COMPACT_THRESHOLD = 1000;
+	/**
+	 * The operation of the line written before the lines of a transaction.
+	 */
+	private static final String BEGIN = "begin";
+	/**
+	 * The operation of the line written after the lines of a transaction, without which the transaction is discarded on replay.
+	 */
+	private static final String COMMIT = "commit";
+	
+	/**
+	 * A row of the user table.
+	 */
+	private static class UserRecord {
+		/**
+		 * The id of the user.
+		 */
+		private final int id;
+		/**
+		 * The username of the user.
+		 */
+		private final String username;
+		/**
+		 * The password of the user.
+		 */
+		private final String password;
+		/**
+		 * The name of the user.
+		 */
+		private final String name;
+		
+		/**
+		 * @param id The id of the user.
+		 * @param username The username of the user.
+		 * @param password The password of the user.
+		 * @param name The name of the user.
+		 */
+		private UserRecord(int id, String username, String password, String name) {
+			this.id = id;
+			this.username = username;
+			this.password = password;
+			this.name = name;
+		}
+	}
+	
+	/**
+	 * A row of the course table.
+	 */
+	private static class CourseRecord {
+		/**
+		 * The id of the course.
+		 */
+		private final int id;
+		/**
+		 * The name of the course.
+		 */
+		private final String name;
+		/**
+		 * The abbreviation of the course.
+		 */
+		private final String abbreviation;
+		/**
+		 * The teacher of the course.
+		 */
+		private final String teacher;
+		/**
+		 * The version of the course.
+		 */
+		private final long version;
+		
+		/**
+		 * @param id The id of the course.
+		 * @param name The name of the course.
+		 * @param abbreviation The abbreviation of the course.
+		 * @param teacher The teacher of the course.
+		 * @param version The version of the course.
+		 */
+		private CourseRecord(int id, String name, String abbreviation, String teacher, long version) {
+			this.id = id;
+			this.name = name;
+			this.abbreviation = abbreviation;
+			this.teacher = teacher;
+			this.version = version;
+		}
+	}
+	
+	/**
+	 * A row of the assignment table. Dates are held as sql date Strings (yyyy-MM-dd).
+	 */
+	private static class AssignmentRecord {
+		/**
+		 * The id of the assignment.
+		 */
+		private final int id;
+		/**
+		 * The name of the assignment.
+		 */
+		private final String name;
+		/**
+		 * The description of the assignment.
+		 */
+		private final String description;
+		/**
+		 * Whether the assignment is complete.
+		 */
+		private final boolean isComplete;
+		/**
+		 * The id of the type of the assignment.
+		 */
+		private final int type;
+		/**
+		 * The date when the assignment is assigned.
+		 */
+		private final String assigned;
+		/**
+		 * The date when the assignment is due.
+		 */
+		private final String due;
+		/**
+		 * The version of the assignment.
+		 */
+		private final long version;
+		
+		/**
+		 * @param id The id of the assignment.
+		 * @param name The name of the assignment.
+		 * @param description The description of the assignment.
+		 * @param isComplete Whether the assignment is complete.
+		 * @param type The id of the type of the assignment.
+		 * @param assigned The date when the assignment is assigned.
+		 * @param due The date when the assignment is due.
+		 * @param version The version of the assignment.
+		 */
+		private AssignmentRecord(int id, String name, String description, boolean isComplete, int type, String assigned, String due, long version) {
+			this.id = id;
+			this.name = name;
+			this.description = description;
+			this.isComplete = isComplete;
+			this.type = type;
+			this.assigned = assigned;
+			this.due = due;
+			this.version = version;
+		}
+	}
+	
+	/**
+	 * The journal file.
+	 */
+	private final File file;
+	/**
+	 * The writer which appends to the journal, or {@code null} if it could not be opened.
+	 */
+	private Writer journal;
+	/**
+	 * The stream under {@link #journal}, which is closed directly to discard whatever a failed write left buffered.
+	 */
+	private FileOutputStream journalStream;
+	/**
+	 * The number of lines in the journal.
+	 */
+	private int journalLines;
+	/**
+	 * The lines of the transaction in progress, which have been applied but not yet written to the journal, or {@code null} if no transaction is in progress.
+	 */
+	private List<String[]> pending;
+	/**
+	 * The actions waiting for the end of the transaction in progress, or {@code null} if no transaction is in progress.
+	 */
+	private CommitHooks hooks;
+	
+	/**
+	 * Users by id.
+	 */
+	private final Map<Integer, UserRecord> users;
+	/**
+	 * Users by username.
+	 */
+	private final Map<String, UserRecord> usernames;
+	/**
+	 * Courses by id.
+	 */
+	private final Map<Integer, CourseRecord> courses;
+	/**
+	 * Assignments by id.
+	 */
+	private final Map<Integer, AssignmentRecord> assignments;
+	/**
+	 * The blockids of each course in each user's schedule by userid and then courseid.
+	 */
+	private final Map<Integer, Map<Integer, Set<Integer>>> userCourses;
+	/**
+	 * The assignmentids of each course by courseid.
+	 */
+	private final Map<Integer, Set<Integer>> courseAssignments;
+	/**
+	 * The version of the last change to each user's links to each course by userid and then courseid, kept after the links are removed.
+	 */
+	private final Map<Integer, Map<Integer, Long>> scheduleVersions;
+	/**
+	 * The version of the last change to each course's link to each assignment by courseid and then assignmentid, kept after the link is removed.
+	 */
+	private final Map<Integer, Map<Integer, Long>> courseAssignmentVersions;
+	/**
+	 * The number of changes applied, which is the current version.
+	 */
+	private long version;
+	/**
+	 * The id which will be given to the next user, course, and assignment created.
+	 */
+	private int nextUserID, nextCourseID, nextAssignmentID;
+	/**
+	 * The live instance of each course loaded in the current session.
+	 */
+	private final IdentityMap<Course> loadedCourses;
+	/**
+	 * The live instance of each assignment loaded in the current session.
+	 */
+	private final IdentityMap<Assignment> loadedAssignments;
+	
+	/**
+	 * Opens a {@code LocalStorage}, replaying its journal if it exists.
+	 * 
+	 * @param path The path of the journal file.
+	 */
+	public LocalStorage(String path) {
+		file = new File(path);
+		users = new TreeMap<Integer, UserRecord>();
+		usernames = new TreeMap<String, UserRecord>();
+		courses = new TreeMap<Integer, CourseRecord>();
+		assignments = new TreeMap<Integer, AssignmentRecord>();
+		userCourses = new TreeMap<Integer, Map<Integer, Set<Integer>>>();
+		courseAssignments = new TreeMap<Integer, Set<Integer>>();
+		scheduleVersions = new TreeMap<Integer, Map<Integer, Long>>();
+		courseAssignmentVersions = new TreeMap<Integer, Map<Integer, Long>>();
+		nextUserID = nextCourseID = nextAssignmentID = 1;
+		loadedCourses = new IdentityMap<Course>();
+		loadedAssignments = new IdentityMap<Assignment>();
+		if(file.exists() && !replay()) {
+			System.out.println("Failed to repair local storage - changes will not be saved.");
+			return;
+		}
+		try {openJournal();}
+		catch (IOException e) {
+			System.out.println("Failed to open local storage - changes will not be saved.");
+			e.printStackTrace();
+			return;
+		}
+		System.out.println("Local Storage Loaded.");
+	}
+	
+	/**
+	 * Runs several operations as a single unit of work, which takes effect entirely or not at all.
+	 * The lines of the operations are written to the journal together with one flush once they have all succeeded.
+	 * If the current thread is already running a transaction, the work joins it.
+	 * 
+	 * @param work The operations to run.
+	 * @return {@code true} if every operation succeeded and was written, {@code false} otherwise, in which case none of them take effect.
+	 */
+	@Override
+	public synchronized boolean transaction(WriteBehindQueue.Write work) {
+		if(pending != null)
+			return work.execute(this);
+		if(journal == null)
+			return false;
+		List<String[]> lines = pending = new ArrayList<String[]>();
+		CommitHooks waiting = hooks = new CommitHooks();
+		boolean committed = false;
+		long length = file.length();
+		try {
+			if(!work.execute(this))
+				return false;
+			if(lines.isEmpty()) {
+				committed = true;
+				return true;
+			}
+			// A single line is written whole or is discarded as torn on replay, so only longer transactions need markers.
+			boolean marked = lines.size() > 1;
+			if(marked)
+				writeLine(journal, BEGIN);
+			for(String[] line : lines)
+				writeLine(journal, line);
+			if(marked)
+				writeLine(journal, COMMIT);
+			journal.flush();
+			journalLines += lines.size() + (marked ? 2 : 0);
+			committed = true;
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			recoverJournal(length);
+			return false;
+		} finally {
+			pending = null;
+			hooks = null;
+			if(!committed && !lines.isEmpty())
+				reload();
+			waiting.finish(committed);
+		}
+	}
+	
+	/**
+	 * @return 1, since every call holds the lock on this {@code LocalStorage}.
+	 */
+	@Override
+	public int getMaxConcurrency() {
+		return 1;
+	}
+	
+	/**
+	 * Closes the journal.
+	 */
+	@Override
+	public synchronized void close() {
+		if(journal == null)
+			return;
+		try {journal.close();}
+		catch (IOException e) {e.printStackTrace();}
+		journal = null;
+	}
+	
+	/**
+	 * Loads a {@code User} if the specified username password pair is correct.
+	 * 
+	 * Only the {@code Assignment}s which are assigned or due within a range of {@code Date}s are loaded.
+	 * 
+	 * @param username The {@code User}'s username.
+	 * @param password The {@code User}'s password.
+	 * @param from The first {@code Date} of the range.
+	 * @param to The last {@code Date} of the range.
+	 * @return The {@code User} with all appropriate {@code Course}s and the {@code Assignment}s in the range.
+	 * @throws LoginException if the username is not registered or the password is invalid.
+	 */
+	@Override
+	public synchronized User login(String username, String password, Date from, Date to) throws LoginException {
+		User user = loadSchedule(username, password);
+		Map<Integer, List<Assignment>> assignments = loadAssignments(user, from, to);
+		for(Course course : user.getAllCourses())
+			if(assignments.containsKey(course.getID()))
+				for(Assignment assignment : assignments.get(course.getID()))
+					course.addAssignment(assignment);
+		return user;
+	}
+	
+	/**
+	 * Loads a {@code User} and their {@code Course}s if the specified username password pair is correct, without any {@code Assignment}s.
+	 * A successful load starts a new session, so no instances loaded before it are reused.
+	 * 
+	 * @param username The {@code User}'s username.
+	 * @param password The {@code User}'s password.
+	 * @return The {@code User} with all appropriate {@code Course}s.
+	 * @throws LoginException if the username is not registered or the password is invalid.
+	 */
+	@Override
+	public synchronized User loadSchedule(String username, String password) throws LoginException {
+		UserRecord u = usernames.get(username);
+		if(u == null) // Username doesn't exist.
+			throw new LoginException(LoginException.USER_NOT_REGISTERED);
+		if(!u.password.equals(password)) // Password is incorrect.
+			throw new LoginException(LoginException.INVALID_PASSWORD);
+		loadedCourses.clear();
+		loadedAssignments.clear();
+		User user = new Student(u.id, u.name);
+		Map<Integer, Set<Integer>> schedule = userCourses.get(u.id);
+		if(schedule != null)
+			for(Map.Entry<Integer, Set<Integer>> entry : schedule.entrySet()) {
+				CourseRecord c = courses.get(entry.getKey());
+				if(c != null)
+					user.addCourse(entry.getValue().toArray(new Integer[0]), readCourse(c));
+			}
+		return user;
+	}
+	
+	/**
+	 * Loads the {@code Assignment}s in a {@code User}'s schedule which are assigned or due within a range of {@code Date}s.
+	 * 
+	 * @param user The {@code User} whose {@code Assignment}s should be loaded.
+	 * @param from The first {@code Date} of the range.
+	 * @param to The last {@code Date} of the range.
+	 * @return The {@code Assignment}s by courseid.
+	 */
+	@Override
+	public synchronized Map<Integer, List<Assignment>> loadAssignments(User user, Date from, Date to) {
+		Map<Integer, List<Assignment>> loaded = new TreeMap<Integer, List<Assignment>>();
+		Map<Integer, Set<Integer>> schedule = userCourses.get(user.getID());
+		if(schedule == null)
+			return loaded;
+		for(int courseid : schedule.keySet()) {
+			List<Assignment> list = readAssignments(courseid, from, to);
+			if(!list.isEmpty())
+				loaded.put(courseid, list);
+		}
+		return loaded;
+	}
+	
+	/**
+	 * Loads the {@code Assignment}s of a {@code Course} which are assigned or due within a range of {@code Date}s.
+	 * 
+	 * @param course The {@code Course} whose {@code Assignment}s should be loaded.
+	 * @param from The first {@code Date} of the range.
+	 * @param to The last {@code Date} of the range.
+	 * @return The {@code Assignment}s.
+	 */
+	@Override
+	public synchronized List<Assignment> loadAssignments(Course course, Date from, Date to) {
+		return readAssignments(course.getID(), from, to);
+	}
+	
+	/**
+	 * Builds the {@code Assignment}s of a {@code Course} which are assigned or due within a range of {@code Date}s from their records.
+	 * 
+	 * @param courseid The id of the {@code Course}.
+	 * @param from The first {@code Date} of the range.
+	 * @param to The last {@code Date} of the range.
+	 * @return The {@code Assignment}s.
+	 */
+	private List<Assignment> readAssignments(int courseid, Date from, Date to) {
+		List<Assignment> list = new ArrayList<Assignment>();
+		Set<Integer> assignmentids = courseAssignments.get(courseid);
+		if(assignmentids == null)
+			return list;
+		// Dates are stored as yyyy-MM-dd so they compare in order as strings.
+		String start = toSQLDate(from), end = toSQLDate(to);
+		for(int assignmentid : assignmentids) {
+			AssignmentRecord a = assignments.get(assignmentid);
+			if(a != null && (within(a.due, start, end) || within(a.assigned, start, end)))
+				list.add(readAssignment(a));
+		}
+		return list;
+	}
+	
+	/**
+	 * @param date A date in the form yyyy-MM-dd.
+	 * @param start The first date of a range in the same form.
+	 * @param end The last date of the range in the same form.
+	 * @return {@code true} if the date is within the range, {@code false} otherwise.
+	 */
+	private static boolean within(String date, String start, String end) {
+		return date.compareTo(start) >= 0 && date.compareTo(end) <= 0;
+	}
+	
+	/**
+	 * Iterates over the {@code Assignment}s of a {@code Course} in order of due date.
+	 * Only the matching records are collected up front, and each {@code Assignment} is built as it is reached.
+	 * 
+	 * @param course The {@code Course} whose {@code Assignment}s should be read.
+	 * @param from The first due {@code Date} to include, or {@code null} for no limit.
+	 * @param to The last due {@code Date} to include, or {@code null} for no limit.
+	 * @return An iterator over the {@code Assignment}s.
+	 */
+	@Override
+	public synchronized Iterator<Assignment> iterateAssignments(Course course, Date from, Date to) {
+		List<AssignmentRecord> records = new ArrayList<AssignmentRecord>();
+		Set<Integer> assignmentids = courseAssignments.get(course.getID());
+		if(assignmentids != null) {
+			String start = from == null ? "" : toSQLDate(from), end = to == null ? "\uffff" : toSQLDate(to);
+			for(int assignmentid : assignmentids) {
+				AssignmentRecord a = assignments.get(assignmentid);
+				if(a != null && within(a.due, start, end))
+					records.add(a);
+			}
+		}
+		records.sort((a, b) -> a.due.equals(b.due) ? Integer.compare(a.id, b.id) : a.due.compareTo(b.due));
+		return records.stream().map(this::readAssignment).iterator();
+	}
+	
+	/**
+	 * Loads a {@code Course} and any {@code Assignment}s which are associated with it.
+	 * If the {@code Course} has already been loaded in this session, the live instance is returned as it is.
+	 * 
+	 * @param id The id of the {@code Course}.
+	 * @return The {@code Course}, or null if no {@code Course} with the specified id exists.
+	 */
+	@Override
+	public synchronized Course loadCourse(int id) {
+		Course loaded = loadedCourses.get(id);
+		return loaded != null ? loaded : readCourse(id);
+	}
+	
+	/**
+	 * Loads an {@code Assignment}, which is the live instance if it has already been loaded in this session.
+	 * 
+	 * @param id The id of the {@code Assignment}.
+	 * @return The {@code Assignment}, or null if no {@code Assignment} with the specified id exists.
+	 */
+	@Override
+	public synchronized Assignment loadAssignment(int id) {
+		AssignmentRecord a = assignments.get(id);
+		return a == null ? null : readAssignment(a);
+	}
+	
+	/**
+	 * Builds a {@code Course} and its {@code Assignment}s from their records.
+	 * 
+	 * @param id The id of the {@code Course}.
+	 * @return The {@code Course}, or null if no {@code Course} with the specified id exists.
+	 */
+	private Course readCourse(int id) {
+		CourseRecord c = courses.get(id);
+		if(c == null)
+			return null;
+		Course course = loadedCourses.putIfAbsent(id, buildCourse(c));
+		Set<Integer> assignmentids = courseAssignments.get(id);
+		if(assignmentids != null)
+			for(int assignmentid : assignmentids) {
+				AssignmentRecord a = assignments.get(assignmentid);
+				if(a != null)
+					course.addAssignment(readAssignment(a));
+			}
+		return course;
+	}
+	
+	/**
+	 * Finds the {@code Course} of a record, reusing the live instance if it has already been loaded in this session.
+	 * 
+	 * @param c The record of the {@code Course}.
+	 * @return The {@code Course}.
+	 */
+	private Course readCourse(CourseRecord c) {
+		Course course = loadedCourses.get(c.id);
+		return course != null ? course : loadedCourses.putIfAbsent(c.id, buildCourse(c));
+	}
+	
+	/**
+	 * Finds the {@code Assignment} of a record, reusing the live instance if it has already been loaded in this session.
+	 * A live instance is returned as it is, since it may have changes which have not been stored yet.
+	 * 
+	 * @param a The record of the {@code Assignment}.
+	 * @return The {@code Assignment}.
+	 */
+	private Assignment readAssignment(AssignmentRecord a) {
+		Assignment assignment = loadedAssignments.get(a.id);
+		return assignment != null ? assignment : loadedAssignments.putIfAbsent(a.id, buildAssignment(a));
+	}
+	
+	/**
+	 * Builds a new {@code Course} from its record.
+	 * 
+	 * @param c The record of the {@code Course}.
+	 * @return The {@code Course}.
+	 */
+	private static Course buildCourse(CourseRecord c) {
+		return new Course(c.id, c.name, c.abbreviation, c.teacher);
+	}
+	
+	/**
+	 * Builds a new {@code Assignment} from its record.
+	 * 
+	 * @param a The record of the {@code Assignment}.
+	 * @return The {@code Assignment}.
+	 */
+	private static Assignment buildAssignment(AssignmentRecord a) {
+		return new Assignment(a.id, new Date(a.assigned), new Date(a.due), AssignmentTypes.getTypeFromID(a.type), a.name, a.description, a.isComplete);
+	}
+	
+	/**
+	 * Makes a {@code Course} built by {@link #sync(User, long)} the live instance for its id, once it is being added to the model,
+	 * unless another instance is already live.
+	 * 
+	 * @param course The {@code Course}.
+	 * @return The live instance, which the new values should be applied to if it is not {@code course}.
+	 */
+	@Override
+	public Course adopt(Course course) {
+		return loadedCourses.putIfAbsent(course.getID(), course);
+	}
+	
+	/**
+	 * Makes an {@code Assignment} built by {@link #sync(User, long)} the live instance for its id, once it is being added to the model,
+	 * unless another instance is already live.
+	 * 
+	 * @param assignment The {@code Assignment}.
+	 * @return The live instance, which the new values should be applied to if it is not {@code assignment}.
+	 */
+	@Override
+	public Assignment adopt(Assignment assignment) {
+		return loadedAssignments.putIfAbsent(assignment.getID(), assignment);
+	}
+	
+	/**
+	 * Creates the account for a new user.
+	 * 
+	 * @param username The username for the new user - must not already exist for operation to be successful.
+	 * @param password The password for the new user.
+	 * @param name The name for the new user
+	 * @return {@code true} if successful, {@code false} otherwise.
+	 * @throws LoginException if a user with the same username already exists.
+	 */
+	@Override
+	public synchronized boolean createUser(String username, String password, String name) throws LoginException {
+		if(usernames.containsKey(username)) // Username already exists.
+			throw new LoginException(LoginException.USERNAME_ALREADY_EXISTS);
+		return write("user", nextUserID, username, password, name);
+	}
+	
+	/**
+	 * Allocates an id for a new {@code Course}. Ids are allocated in memory, so storage is never waited on.
+	 * 
+	 * @return The id.
+	 */
+	@Override
+	public synchronized int allocateCourseID() {
+		return nextCourseID++;
+	}
+	
+	/**
+	 * Allocates an id for a new {@code Assignment}. Ids are allocated in memory, so storage is never waited on.
+	 * 
+	 * @return The id.
+	 */
+	@Override
+	public synchronized int allocateAssignmentID() {
+		return nextAssignmentID++;
+	}
+	
+	/**
+	 * Does nothing, since ids are handed out from memory without waiting.
+	 * 
+	 * @param executor Unused.
+	 */
+	@Override
+	public void prefetchIDs(Executor executor) {}
+	
+	/**
+	 * Stores a new {@code Course} and associates it with a {@code User} in particular {@code Block}s in a single transaction.
+	 * 
+	 * @param user The {@code User} to link.
+	 * @param course The new {@code Course}, whose id was allocated by {@link #allocateCourseID()}.
+	 * @param blocks The {@code Block}s to link.
+	 * @return {@code true} if successful, {@code false} otherwise, in which case nothing is stored.
+	 */
+	@Override
+	public synchronized boolean insert(User user, Course course, Block[] blocks) {
+		// Every field is stored by the insert, so the fields are only clean once it commits.
+		Course.Changes changes = course.takeDirtyFields();
+		boolean stored = transaction(db -> write("course", course.getID(), changes.getName(), changes.getAbbreviation(), changes.getTeacher())
+			&& write("link", user.getID(), course.getID(), toBlockIDs(blocks)));
+		return CommitHooks.settle(hooks, stored, () -> loadedCourses.put(course.getID(), course), () -> course.restoreDirtyFields(changes.getFields()));
+	}
+	
+	/**
+	 * Stores a new {@code Assignment} and associates it with a {@code Course} in a single transaction.
+	 * 
+	 * @param course The {@code Course} to link.
+	 * @param assignment The new {@code Assignment}, whose id was allocated by {@link #allocateAssignmentID()}.
+	 * @return {@code true} if successful, {@code false} otherwise, in which case nothing is stored.
+	 */
+	@Override
+	public synchronized boolean insert(Course course, Assignment assignment) {
+		return insert(course, Collections.singletonList(assignment));
+	}
+	
+	/**
+	 * Stores new {@code Assignment}s and associates them with a {@code Course} in a single transaction, which is written to the journal with one flush.
+	 * 
+	 * @param course The {@code Course} to link.
+	 * @param assignments The new {@code Assignment}s, whose ids were allocated by {@link #allocateAssignmentID()}.
+	 * @return {@code true} if successful, {@code false} otherwise, in which case nothing is stored.
+	 */
+	@Override
+	public synchronized boolean insert(Course course, List<Assignment> assignments) {
+		// Every field is stored by the insert, so the fields are only clean once it commits.
+		List<Assignment.Changes> changes = new ArrayList<Assignment.Changes>(assignments.size());
+		for(Assignment assignment : assignments)
+			changes.add(assignment.takeDirtyFields());
+		boolean stored = transaction(db -> {
+			for(int i = 0; i < assignments.size(); i++) {
+				Assignment.Changes values = changes.get(i);
+				if(!write("assignment", assignments.get(i).getID(), values.getName(), values.getDescrip(), values.isComplete(), values.getAssignmentType().getID(), toSQLDate(values.getAssignedDate()), toSQLDate(values.getDue()))
+						|| !write("attach", course.getID(), assignments.get(i).getID()))
+					return false;
+			}
+			return true;
+		});
+		return CommitHooks.settle(hooks, stored, () -> {
+			for(Assignment assignment : assignments)
+				loadedAssignments.put(assignment.getID(), assignment);
+		}, () -> {
+			for(int i = 0; i < assignments.size(); i++)
+				assignments.get(i).restoreDirtyFields(changes.get(i).getFields());
+		});
+	}
+	
+	/**
+	 * Associates a {@code User} with a {@code Course} in particular {@code Block}s.
+	 * 
+	 * @param user The {@code User} to link.
+	 * @param course The {@code Course} to link.
+	 * @param blocks An array of {@code Block}s to link.
+	 * @return {@code true} if successful, {@code false} otherwise.
+	 */
+	@Override
+	public synchronized boolean link(User user, Course course, Block[] blocks) {
+		return write("link", user.getID(), course.getID(), toBlockIDs(blocks));
+	}
+	
+	/**
+	 * Replaces all associations between a {@code User} and a {@code Course} with associations in a new set of {@code Block}s.
+	 * 
+	 * @param user The {@code User} to relink.
+	 * @param course The {@code Course} to relink.
+	 * @param blocks The {@code Block}s to link.
+	 * @return {@code true} if successful, {@code false} otherwise, in which case the existing associations are unchanged.
+	 */
+	@Override
+	public synchronized boolean relink(User user, Course course, Block[] blocks) {
+		return write("relink", user.getID(), course.getID(), toBlockIDs(blocks));
+	}
+	
+	/**
+	 * Associates a {@code Course} with an {@code Assignment}.
+	 * 
+	 * @param course The {@code Course} to link.
+	 * @param assignment The {@code Assignment} to link.
+	 * @return {@code true} if successful, {@code false} otherwise,.
+	 */
+	@Override
+	public synchronized boolean link(Course course, Assignment assignment) {
+		return write("attach", course.getID(), assignment.getID());
+	}
+	
+	/**
+	 * Removes all associations between a {@code User} and a {@code Course}.
+	 * 
+	 * @param user The {@code User} to unlink.
+	 * @param course The {@code Course} to unlink.
+	 * @return {@code true} if successful, {@code false} otherwise.
+	 */
+	@Override
+	public synchronized boolean unlink(User user, Course course) {
+		return write("unlink", user.getID(), course.getID());
+	}
+	
+	/**
+	 * Removes all associations between a {@code Course} and an {@code Assignment}.
+	 * 
+	 * @param course The {@code Course} to unlink.
+	 * @param assignment The {@code Assignment} to unlink.
+	 * @return {@code true} if successful, {@code false} otherwise.
+	 */
+	@Override
+	public synchronized boolean unlink(Course course, Assignment assignment) {
+		return write("detach", course.getID(), assignment.getID());
+	}
+	
+	/**
+	 * Updates a {@code User}'s record.
+	 * 
+	 * @param user The {@code User} whose record should be updated.
+	 * @return {@code true} if successful, {@code false} otherwise.
+	 */
+	@Override
+	public synchronized boolean update(User user) {
+		UserRecord u = users.get(user.getID());
+		if(u == null)
+			return false;
+		return write("user", u.id, u.username, u.password, user.getName());
+	}
+	
+	/**
+	 * Updates the fields of a {@code Course}'s record which have changed since they were last saved.
+	 * Nothing is written if nothing has changed.
+	 * 
+	 * @param course The {@code Course} whose record should be updated.
+	 * @return {@code true} if successful, {@code false} otherwise.
+	 */
+	@Override
+	public synchronized boolean update(Course course) {
+		Course.Changes changes = course.takeDirtyFields();
+		if(changes.getFields() == 0)
+			return true;
+		CourseRecord c = courses.get(course.getID());
+		if(c != null && write("course", c.id,
+				changes.isChanged(Course.NAME) ? changes.getName() : c.name,
+				changes.isChanged(Course.ABBREVIATION) ? changes.getAbbreviation() : c.abbreviation,
+				changes.isChanged(Course.TEACHER) ? changes.getTeacher() : c.teacher))
+			return true;
+		course.restoreDirtyFields(changes.getFields());
+		return false;
+	}
+	
+	/**
+	 * Updates the fields of an {@code Assignment}'s record which have changed since they were last saved.
+	 * Nothing is written if nothing has changed.
+	 * 
+	 * @param assignment The {@code Assignment} whose record should be updated.
+	 * @return {@code true} if successful, {@code false} otherwise.
+	 */
+	@Override
+	public synchronized boolean update(Assignment assignment) {
+		Assignment.Changes changes = assignment.takeDirtyFields();
+		if(changes.getFields() == 0)
+			return true;
+		AssignmentRecord a = assignments.get(assignment.getID());
+		if(a != null && write("assignment", a.id,
+				changes.isChanged(Assignment.NAME) ? changes.getName() : a.name,
+				changes.isChanged(Assignment.DESCRIPTION) ? changes.getDescrip() : a.description,
+				changes.isChanged(Assignment.COMPLETE) ? changes.isComplete() : a.isComplete,
+				changes.isChanged(Assignment.TYPE) ? changes.getAssignmentType().getID() : a.type,
+				changes.isChanged(Assignment.ASSIGNED) ? toSQLDate(changes.getAssignedDate()) : a.assigned,
+				changes.isChanged(Assignment.DUE) ? toSQLDate(changes.getDue()) : a.due))
+			return true;
+		assignment.restoreDirtyFields(changes.getFields());
+		return false;
+	}
+	
+	/**
+	 * Deletes all records of a user.
+	 * 
+	 * @param user The user to delete.
+	 * @return {@code true} if successful, {@code false} otherwise.
+	 */
+	@Override
+	public synchronized boolean delete(User user) {
+		return write("delete-user", user.getID());
+	}
+	
+	/**
+	 * Removes all links from a {@code Course}.
+	 * 
+	 * @param course The {@code Course} to remove.
+	 * @return {@code true} if successful, {@code false} otherwise.
+	 */
+	@Override
+	public synchronized boolean delete(Course course) {
+		return write("delete-course", course.getID());
+	}
+	
+	/**
+	 * Removes all links from an {@code Assignment}.
+	 * 
+	 * @param assignment The {@code Assignment} to remove.
+	 * @return {@code true} if successful, {@code false} otherwise.
+	 */
+	@Override
+	public synchronized boolean delete(Assignment assignment) {
+		return write("delete-assignment", assignment.getID());
+	}
+	
+	/**
+	 * @return The number of changes applied, which is the version of every record and link changed after now.
+	 */
+	@Override
+	public synchronized long currentVersion() {
+		return version;
+	}
+	
+	/**
+	 * Retrieves everything in a {@code User}'s schedule which has changed since a particular version.
+	 * 
+	 * @param user The {@code User} whose schedule should be synced.
+	 * @param since The version returned by the previous sync or by {@link #currentVersion()} before the {@code User} was loaded, or 0 for everything.
+	 * @return The changes.
+	 */
+	@Override
+	public synchronized ChangeSet sync(User user, long since) {
+		ChangeSet changes = new ChangeSet(version);
+		Map<Integer, Set<Integer>> schedule = userCourses.get(user.getID());
+		Map<Integer, Long> scheduleChanges = scheduleVersions.get(user.getID());
+		// Courses whose links changed, all of whose assignments must be included if they were just added.
+		Set<Integer> relinked = new TreeSet<Integer>();
+		if(scheduleChanges != null)
+			for(Map.Entry<Integer, Long> entry : scheduleChanges.entrySet())
+				if(entry.getValue() > since) {
+					Set<Integer> blockids = schedule == null ? null : schedule.get(entry.getKey());
+					changes.setBlocks(entry.getKey(), blockids == null ? new Integer[0] : blockids.toArray(new Integer[0]));
+					relinked.add(entry.getKey());
+				}
+		if(schedule != null)
+			for(int courseid : schedule.keySet()) {
+				CourseRecord c = courses.get(courseid);
+				// New values for courses which are already live are applied to the live instance when the changes are merged.
+				if(c != null && (c.version > since || relinked.contains(courseid)))
+					changes.addCourse(buildCourse(c));
+				Map<Integer, Long> links = courseAssignmentVersions.get(courseid);
+				if(links == null)
+					continue;
+				Set<Integer> assignmentids = courseAssignments.get(courseid);
+				for(Map.Entry<Integer, Long> entry : links.entrySet()) {
+					AssignmentRecord a = assignments.get(entry.getKey());
+					if(assignmentids == null || !assignmentids.contains(entry.getKey())) {
+						if(entry.getValue() > since)
+							changes.unlink(courseid, entry.getKey());
+					} else if(a != null && (entry.getValue() > since || a.version > since || relinked.contains(courseid)))
+						// New values for assignments which are already live are applied to the live instance when the changes are merged.
+						changes.link(courseid, buildAssignment(a));
+				}
+			}
+		return changes;
+	}
+	
+	/**
+	 * Appends a change to the journal and then applies it, compacting the journal if it has grown too large.
+	 * 
+	 * @param fields The fields of the change, starting with its operation.
+	 * @return {@code true} if successful, {@code false} otherwise, in which case the change is not applied.
+	 */
+	private boolean write(Object... fields) {
+		if(journal == null)
+			return false;
+		String[] line = new String[fields.length];
+		for(int i = 0; i < fields.length; i++)
+			line[i] = fields[i] instanceof Boolean ? ((Boolean) fields[i] ? "1" : "0") : String.valueOf(fields[i]);
+		if(pending != null) {
+			pending.add(line);
+			apply(line);
+			return true;
+		}
+		long length = file.length();
+		try {
+			writeLine(journal, line);
+			journal.flush();
+		} catch (IOException e) {
+			e.printStackTrace();
+			recoverJournal(length);
+			return false;
+		}
+		journalLines++;
+		apply(line);
+		if(journalLines > COMPACT_THRESHOLD && journalLines > 2 * (users.size() + courses.size() + assignments.size() + userCourses.size() + courseAssignments.size()))
+			compact();
+		return true;
+	}
+	
+	/**
+	 * Discards the changes of a failed transaction by rebuilding every record from the journal.
+	 */
+	private void reload() {
+		long current = version;
+		users.clear();
+		usernames.clear();
+		courses.clear();
+		assignments.clear();
+		userCourses.clear();
+		courseAssignments.clear();
+		scheduleVersions.clear();
+		courseAssignmentVersions.clear();
+		int currentCourseID = nextCourseID, currentAssignmentID = nextAssignmentID;
+		nextUserID = nextCourseID = nextAssignmentID = 1;
+		version = journalLines = 0;
+		replay();
+		// Versions which have already been handed out must not be reused or a later sync could miss changes.
+		version = Math.max(version, current);
+		// Neither may ids, since objects which have not been stored yet may already hold them.
+		nextCourseID = Math.max(nextCourseID, currentCourseID);
+		nextAssignmentID = Math.max(nextAssignmentID, currentAssignmentID);
+	}
+	
+	/**
+	 * Applies a change from the journal to the records.
+	 * 
+	 * @param line The fields of the change, starting with its operation.
+	 * @throws RuntimeException if the change is malformed.
+	 */
+	private void apply(String[] line) {
+		version++;
+		switch(line[0]) {
+			case "user": {
+				UserRecord u = new UserRecord(Integer.parseInt(line[1]), line[2], line[3], line[4]);
+				users.put(u.id, u);
+				usernames.put(u.username, u);
+				nextUserID = Math.max(nextUserID, u.id + 1);
+				break;
+			}
+			case "course": {
+				CourseRecord c = new CourseRecord(Integer.parseInt(line[1]), line[2], line[3], line[4], version);
+				courses.put(c.id, c);
+				nextCourseID = Math.max(nextCourseID, c.id + 1);
+				break;
+			}
+			case "assignment": {
+				AssignmentRecord a = new AssignmentRecord(Integer.parseInt(line[1]), line[2], line[3], line[4].equals("1"), Integer.parseInt(line[5]), line[6], line[7], version);
+				assignments.put(a.id, a);
+				nextAssignmentID = Math.max(nextAssignmentID, a.id + 1);
+				break;
+			}
+			case "relink":
+				removeUserCourse(Integer.parseInt(line[1]), Integer.parseInt(line[2]));
+				addUserCourse(Integer.parseInt(line[1]), Integer.parseInt(line[2]), line[3]);
+				break;
+			case "link":
+				addUserCourse(Integer.parseInt(line[1]), Integer.parseInt(line[2]), line[3]);
+				break;
+			case "unlink":
+				removeUserCourse(Integer.parseInt(line[1]), Integer.parseInt(line[2]));
+				touch(scheduleVersions, Integer.parseInt(line[1]), Integer.parseInt(line[2]));
+				break;
+			case "attach": {
+				int courseid = Integer.parseInt(line[1]);
+				Set<Integer> assignmentids = courseAssignments.get(courseid);
+				if(assignmentids == null)
+					courseAssignments.put(courseid, assignmentids = new LinkedHashSet<Integer>());
+				assignmentids.add(Integer.parseInt(line[2]));
+				touch(courseAssignmentVersions, courseid, Integer.parseInt(line[2]));
+				break;
+			}
+			case "detach":
+				removeCourseAssignment(Integer.parseInt(line[1]), Integer.parseInt(line[2]));
+				break;
+			case "delete-user": {
+				UserRecord u = users.remove(Integer.parseInt(line[1]));
+				if(u != null)
+					usernames.remove(u.username);
+				userCourses.remove(Integer.parseInt(line[1]));
+				scheduleVersions.remove(Integer.parseInt(line[1]));
+				break;
+			}
+			case "delete-course": {
+				int courseid = Integer.parseInt(line[1]);
+				Set<Integer> assignmentids = courseAssignments.get(courseid);
+				if(assignmentids != null)
+					for(int assignmentid : new ArrayList<Integer>(assignmentids))
+						removeCourseAssignment(courseid, assignmentid);
+				for(int userid : new ArrayList<Integer>(userCourses.keySet()))
+					if(userCourses.get(userid).containsKey(courseid)) {
+						removeUserCourse(userid, courseid);
+						touch(scheduleVersions, userid, courseid);
+					}
+				break;
+			}
+			case "delete-assignment": {
+				int assignmentid = Integer.parseInt(line[1]);
+				for(int courseid : new ArrayList<Integer>(courseAssignments.keySet()))
+					if(courseAssignments.get(courseid).contains(assignmentid))
+						removeCourseAssignment(courseid, assignmentid);
+				break;
+			}
+			default:
+				throw new IllegalArgumentException("Unknown journal operation: " + line[0]);
+		}
+	}
+	
+	/**
+	 * Associates a user with a course in some blocks, in addition to any blocks they are already associated in.
+	 * 
+	 * @param userid The id of the user.
+	 * @param courseid The id of the course.
+	 * @param blockids The ids of the blocks separated by commas.
+	 */
+	private void addUserCourse(int userid, int courseid, String blockids) {
+		Map<Integer, Set<Integer>> schedule = userCourses.get(userid);
+		if(schedule == null)
+			userCourses.put(userid, schedule = new TreeMap<Integer, Set<Integer>>());
+		Set<Integer> linked = schedule.get(courseid);
+		if(linked == null)
+			schedule.put(courseid, linked = new LinkedHashSet<Integer>());
+		if(!blockids.isEmpty())
+			for(String blockid : blockids.split(","))
+				linked.add(Integer.parseInt(blockid));
+		if(linked.isEmpty())
+			removeUserCourse(userid, courseid);
+		touch(scheduleVersions, userid, courseid);
+	}
+	
+	/**
+	 * Removes all associations between a user and a course.
+	 * 
+	 * @param userid The id of the user.
+	 * @param courseid The id of the course.
+	 */
+	private void removeUserCourse(int userid, int courseid) {
+		Map<Integer, Set<Integer>> schedule = userCourses.get(userid);
+		if(schedule != null && schedule.remove(courseid) != null && schedule.isEmpty())
+			userCourses.remove(userid);
+	}
+	
+	/**
+	 * Removes the association between a course and an assignment.
+	 * 
+	 * @param courseid The id of the course.
+	 * @param assignmentid The id of the assignment.
+	 */
+	private void removeCourseAssignment(int courseid, int assignmentid) {
+		Set<Integer> assignmentids = courseAssignments.get(courseid);
+		if(assignmentids != null && assignmentids.remove(assignmentid) && assignmentids.isEmpty())
+			courseAssignments.remove(courseid);
+		touch(courseAssignmentVersions, courseid, assignmentid);
+	}
+	
+	/**
+	 * Records that a link changed in the current version.
+	 * 
+	 * @param versions The versions of the links by the first id and then the second id.
+	 * @param first The first id of the link.
+	 * @param second The second id of the link.
+	 */
+	private void touch(Map<Integer, Map<Integer, Long>> versions, int first, int second) {
+		if(!versions.containsKey(first))
+			versions.put(first, new TreeMap<Integer, Long>());
+		versions.get(first).put(second, version);
+	}
+	
+	/**
+	 * Reads every change in the journal and applies it, holding back the lines of each transaction until its commit marker is read.
+	 * Stops at the first malformed or unterminated line, which can only be the last line if the program exited while writing it,
+	 * and then truncates the journal after the last good line or committed transaction,
+	 * so that new changes are not appended to a broken line or an unfinished transaction and lost on the next replay.
+	 * 
+	 * @return {@code true} if the journal was read and ends with a good line, {@code false} if it could not be read or truncated.
+	 */
+	private boolean replay() {
+		long good = 0;
+		try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			List<String[]> transaction = null;
+			long offset = 0;
+			int b;
+			while((b = in.read()) != -1) {
+				offset++;
+				if(b != '\n') {
+					bytes.write(b);
+					continue;
+				}
+				String line = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+				bytes.reset();
+				String[] fields = readLine(line);
+				if(fields[0].equals(BEGIN) && transaction == null) {
+					transaction = new ArrayList<String[]>();
+					continue;
+				}
+				if(transaction != null && !fields[0].equals(COMMIT)) {
+					transaction.add(fields);
+					continue;
+				}
+				try {
+					if(transaction == null)
+						apply(fields);
+					else
+						for(String[] change : transaction)
+							apply(change);
+				} catch (RuntimeException e) {
+					System.out.println("Ignoring malformed local storage entry: " + line);
+					break;
+				}
+				journalLines += transaction == null ? 1 : transaction.size() + 2;
+				transaction = null;
+				good = offset;
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+		if(good == file.length())
+			return true;
+		System.out.println("Discarding the end of the local storage journal after its last good entry.");
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {channel.truncate(good);}
+		catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Rewrites the journal as one line for each current record.
+	 * If this fails, the existing journal is kept.
+	 */
+	private void compact() {
+		File temp = new File(file.getPath() + ".tmp");
+		int lines = 0;
+		try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8))) {
+			for(UserRecord u : users.values())
+				lines += writeLine(out, "user", "" + u.id, u.username, u.password, u.name);
+			for(CourseRecord c : courses.values())
+				lines += writeLine(out, "course", "" + c.id, c.name, c.abbreviation, c.teacher);
+			for(AssignmentRecord a : assignments.values())
+				lines += writeLine(out, "assignment", "" + a.id, a.name, a.description, a.isComplete ? "1" : "0", "" + a.type, a.assigned, a.due);
+			for(Map.Entry<Integer, Map<Integer, Set<Integer>>> schedule : userCourses.entrySet())
+				for(Map.Entry<Integer, Set<Integer>> entry : schedule.getValue().entrySet())
+					lines += writeLine(out, "link", "" + schedule.getKey(), "" + entry.getKey(), join(entry.getValue()));
+			for(Map.Entry<Integer, Set<Integer>> entry : courseAssignments.entrySet())
+				for(int assignmentid : entry.getValue())
+					lines += writeLine(out, "attach", "" + entry.getKey(), "" + assignmentid);
+		} catch (IOException e) {
+			e.printStackTrace();
+			temp.delete();
+			return;
+		}
+		try {
+			journal.close();
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			journalLines = lines;
+		} catch (IOException e) {e.printStackTrace();}
+		try {openJournal();}
+		catch (IOException e) {
+			e.printStackTrace();
+			journal = null;
+		}
+	}
+	
+	/**
+	 * Opens a writer which appends to the journal.
+	 * 
+	 * @throws IOException if the journal cannot be opened.
+	 */
+	private void openJournal() throws IOException {
+		journalStream = new FileOutputStream(file, true);
+		journal = new BufferedWriter(new OutputStreamWriter(journalStream, StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * Recovers from a failed write by discarding the writer without flushing what it has buffered,
+	 * cutting off whatever part of the write reached the journal, and opening the journal again.
+	 * If this fails, changes are no longer saved.
+	 * 
+	 * @param length The length of the journal before the write.
+	 */
+	private void recoverJournal(long length) {
+		journal = null;
+		try {journalStream.close();}
+		catch (IOException e) {e.printStackTrace();}
+		try {
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {channel.truncate(length);}
+			openJournal();
+		} catch (IOException e) {
+			System.out.println("Failed to reopen local storage - changes will not be saved.");
+			e.printStackTrace();
+			journal = null;
+		}
+	}
+	
+	/**
+	 * Writes one line of tab separated fields. Backslashes, tabs, and line breaks within a field are escaped.
+	 * 
+	 * @param out The writer to write to.
+	 * @param fields The fields of the line.
+	 * @return 1, the number of lines written.
+	 * @throws IOException if the line cannot be written.
+	 */
+	private static int writeLine(Writer out, String... fields) throws IOException {
+		StringBuilder line = new StringBuilder();
+		for(int i = 0; i < fields.length; i++) {
+			if(i > 0)
+				line.append('\t');
+			for(char ch : fields[i].toCharArray())
+				switch(ch) {
+					case '\\': line.append("\\\\"); break;
+					case '\t': line.append("\\t"); break;
+					case '\n': line.append("\\n"); break;
+					case '\r': line.append("\\r"); break;
+					default: line.append(ch);
+				}
+		}
+		out.write(line.append('\n').toString());
+		return 1;
+	}
+	
+	/**
+	 * Splits a line written by {@link #writeLine(Writer, String...)} back into its fields.
+	 * 
+	 * @param line The line to split.
+	 * @return The fields of the line.
+	 */
+	private static String[] readLine(String line) {
+		List<String> fields = new ArrayList<String>();
+		StringBuilder field = new StringBuilder();
+		for(int i = 0; i < line.length(); i++) {
+			char ch = line.charAt(i);
+			if(ch == '\t') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else if(ch == '\\' && i + 1 < line.length()) {
+				char escaped = line.charAt(++i);
+				field.append(escaped == 't' ? '\t' : escaped == 'n' ? '\n' : escaped == 'r' ? '\r' : escaped);
+			} else
+				field.append(ch);
+		}
+		fields.add(field.toString());
+		return fields.toArray(new String[0]);
+	}
+	
+	/**
+	 * @param blocks An array of {@code Block}s.
+	 * @return The ids of the {@code Block}s separated by commas.
+	 */
+	private static String toBlockIDs(Block[] blocks) {
+		Set<Integer> blockids = new LinkedHashSet<Integer>();
+		for(Block block : blocks)
+			blockids.add(block.getID());
+		return join(blockids);
+	}
+	
+	/**
+	 * @param ids A collection of ids.
+	 * @return The ids separated by commas.
+	 */
+	private static String join(Iterable<Integer> ids) {
+		StringBuilder joined = new StringBuilder();
+		for(int id : ids)
+			joined.append(joined.length() > 0 ? "," : "").append(id);
+		return joined.toString();
+	}
+	
+	/**
+	 * Converts a {@code Date} to an sql date String.
+	 * 
+	 * @param date The {@code Date} to convert.
+	 * @return The date String (yyyy-MM-dd).
+	 */
+	private static String toSQLDate(Date date) {
+		return String.format("%04d-%02d-%02d", date.getYear(), date.getMonth() + 1, date.getDay());
+	}
+	
+}
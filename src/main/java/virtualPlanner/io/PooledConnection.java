@@ -0,0 +1,102 @@
+package virtualPlanner.io;
+
+import java.sql.Connection;
+
+/**
+ * A {@code Connection} which has been borrowed from a {@link ConnectionPool}.
+ * Closing a {@code PooledConnection} returns it to its pool rather than closing the underlying {@code Connection}.
+ * 
+ * @author JeremiahDeGreeff
+ */
+public class PooledConnection implements AutoCloseable {
+	
+	/**
+	 * The pool to which this connection belongs.
+	 */
+	private final ConnectionPool pool;
+	/**
+	 * The underlying connection.
+	 */
+	private final Connection connection;
+	/**
+	 * The time in milliseconds when this connection was last returned to its pool.
+	 */
+	private long lastUsed;
+	/**
+	 * Whether this connection has failed and should not be reused.
+	 */
+	private boolean broken;
+	/**
+	 * The number of times this connection has been retained which have not yet been matched by a call to {@link #close()}.
+	 */
+	private int holds;
+	
+	/**
+	 * @param pool The pool to which this connection belongs.
+	 * @param connection The underlying connection.
+	 */
+	PooledConnection(ConnectionPool pool, Connection connection) {
+		this.pool = pool;
+		this.connection = connection;
+		lastUsed = System.currentTimeMillis();
+	}
+	
+	/**
+	 * @return The underlying connection.
+	 */
+	public Connection getConnection() {
+		return connection;
+	}
+	
+	/**
+	 * Marks this connection as broken so that it is closed rather than reused when it is returned.
+	 */
+	public void invalidate() {
+		broken = true;
+	}
+	
+	/**
+	 * @return Whether this connection has been marked as broken.
+	 */
+	boolean isBroken() {
+		return broken;
+	}
+	
+	/**
+	 * Records that this connection has just been used.
+	 */
+	void touch() {
+		lastUsed = System.currentTimeMillis();
+	}
+	
+	/**
+	 * @return The number of milliseconds since this connection was last returned to its pool.
+	 */
+	long getIdleTime() {
+		return System.currentTimeMillis() - lastUsed;
+	}
+	
+	/**
+	 * Lends this connection out again while it is already borrowed, such as to a statement which runs inside a transaction.
+	 * The connection is only returned to its pool once it has been closed one more time than it has been retained.
+	 * 
+	 * @return This connection.
+	 */
+	PooledConnection retain() {
+		holds++;
+		return this;
+	}
+	
+	/**
+	 * Returns this connection to its pool, unless it has been retained.
+	 */
+	@Override
+	public void close() {
+		if(holds > 0) {
+			holds--;
+			return;
+		}
+		pool.release(this);
+	}
+	
+}
@@ -0,0 +1,193 @@
+package virtualPlanner.io;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Brings the database schema up to date by applying an ordered list of versioned migrations.
+ * The versions which have been applied are recorded in the schema_version table so that each migration runs exactly once.
+ * 
+ * @author JeremiahDeGreeff
+ */
+public class SchemaMigrator {
+	
+	/**
+	 * The name of the lock which prevents two clients from migrating at the same time.
+	 */
+	private static final String LOCK = "virtualplanner.migrate";
+	/**
+	 * The number of seconds to wait for another client to finish migrating.
+	 */
+	private static final int LOCK_TIMEOUT = 30;
+	
+	/**
+	 * A single versioned change to the schema.
+	 */
+	private static class Migration {
+		/**
+		 * The version of the schema after this migration is applied.
+		 */
+		private final int version;
+		/**
+		 * A short description of the change.
+		 */
+		private final String description;
+		/**
+		 * The sql statements which make the change, in order.
+		 */
+		private final String[] statements;
+		
+		/**
+		 * @param version The version of the schema after this migration is applied.
+		 * @param description A short description of the change.
+		 * @param statements The sql statements which make the change, in order.
+		 */
+		private Migration(int version, String description, String... statements) {
+			this.version = version;
+			this.description = description;
+			this.statements = statements;
+		}
+	}
+	
+	/**
+	 * Every migration in order of version. Applied migrations must never be edited; add a new one instead.
+	 */
+	private static final Migration[] MIGRATIONS = {
+		new Migration(1, "Create tables",
+			"CREATE TABLE IF NOT EXISTS `assignment` ("
+				+ "`id` int(11) unsigned NOT NULL AUTO_INCREMENT, "
+				+ "`name` varchar(40) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL DEFAULT '', "
+				+ "`description` varchar(100) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL DEFAULT '', "
+				+ "`isComplete` tinyint(1) NOT NULL DEFAULT '0', "
+				+ "`type` tinyint(4) NOT NULL, "
+				+ "`assigned` date NOT NULL, "
+				+ "`due` date DEFAULT NULL, "
+				+ "PRIMARY KEY (`id`)"
+				+ ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci",
+			"CREATE TABLE IF NOT EXISTS `course` ("
+				+ "`id` int(11) unsigned NOT NULL AUTO_INCREMENT, "
+				+ "`name` varchar(40) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL DEFAULT '', "
+				+ "`abbreviation` varchar(10) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL DEFAULT '', "
+				+ "`teacher` varchar(40) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL DEFAULT '', "
+				+ "PRIMARY KEY (`id`)"
+				+ ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci",
+			"CREATE TABLE IF NOT EXISTS `course_assignment` ("
+				+ "`id` int(11) unsigned NOT NULL AUTO_INCREMENT, "
+				+ "`courseid` int(11) NOT NULL, "
+				+ "`assignmentid` int(11) NOT NULL, "
+				+ "PRIMARY KEY (`id`)"
+				+ ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci",
+			"CREATE TABLE IF NOT EXISTS `user` ("
+				+ "`id` int(11) unsigned NOT NULL AUTO_INCREMENT, "
+				+ "`username` varchar(20) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL, "
+				+ "`password` varchar(20) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL, "
+				+ "`name` varchar(40) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL DEFAULT '', "
+				+ "PRIMARY KEY (`id`), "
+				+ "UNIQUE KEY `username` (`username`)"
+				+ ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci",
+			"CREATE TABLE IF NOT EXISTS `user_course` ("
+				+ "`id` int(11) unsigned NOT NULL AUTO_INCREMENT, "
+				+ "`userid` int(11) NOT NULL, "
+				+ "`courseid` int(11) NOT NULL, "
+				+ "`blockid` smallint(6) DEFAULT NULL, "
+				+ "PRIMARY KEY (`id`)"
+				+ ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci"),
+		new Migration(2, "Index and deduplicate the link tables",
+			// Duplicate links must be removed before the unique keys can be added.
+			"DELETE a FROM user_course a INNER JOIN user_course b ON a.userid = b.userid AND a.courseid = b.courseid AND a.blockid <=> b.blockid AND a.id > b.id",
+			"DELETE a FROM course_assignment a INNER JOIN course_assignment b ON a.courseid = b.courseid AND a.assignmentid = b.assignmentid AND a.id > b.id",
+			// Covers WHERE userid = ? when loading a schedule and WHERE userid = ? AND courseid = ? when unlinking.
+			"ALTER TABLE user_course ADD UNIQUE KEY `user_course_link` (`userid`, `courseid`, `blockid`), ADD KEY `user_course_courseid` (`courseid`, `userid`)",
+			// Covers WHERE courseid = ? when loading a course and WHERE assignmentid = ? when deleting an assignment.
+			"ALTER TABLE course_assignment ADD UNIQUE KEY `course_assignment_link` (`courseid`, `assignmentid`), ADD KEY `course_assignment_assignmentid` (`assignmentid`, `courseid`)"),
+		new Migration(3, "Version rows and soft delete links for syncing",
+			// updated_at is maintained by the server so that changes from every client are versioned on one clock.
+			"ALTER TABLE assignment ADD COLUMN `updated_at` timestamp(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)",
+			"ALTER TABLE course ADD COLUMN `updated_at` timestamp(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)",
+			// Removed links are kept with deleted = 1 so that a sync can report their removal.
+			"ALTER TABLE user_course ADD COLUMN `deleted` tinyint(1) NOT NULL DEFAULT '0', ADD COLUMN `updated_at` timestamp(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)",
+			"ALTER TABLE course_assignment ADD COLUMN `deleted` tinyint(1) NOT NULL DEFAULT '0', ADD COLUMN `updated_at` timestamp(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)"),
+		new Migration(4, "Index assignment dates for windowed and paged reads",
+			// Covers the date range of a window and the keyset of each page ordered by due date and then id.
+			"ALTER TABLE assignment ADD KEY `assignment_due` (`due`, `id`), ADD KEY `assignment_assigned` (`assigned`, `id`)"),
+		new Migration(5, "Reserve ids for new courses and assignments in blocks",
+			// Holds the next free id of each table, so that clients can build new rows before inserting them.
+			"CREATE TABLE IF NOT EXISTS `id_block` ("
+				+ "`name` varchar(20) NOT NULL, "
+				+ "`next` int(11) unsigned NOT NULL, "
+				+ "PRIMARY KEY (`name`)"
+				+ ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci",
+			"INSERT INTO id_block (name, next) SELECT 'course', COALESCE(MAX(id), 0) + 1 FROM course",
+			"INSERT INTO id_block (name, next) SELECT 'assignment', COALESCE(MAX(id), 0) + 1 FROM assignment"),
+	};
+	
+	/**
+	 * The pool to borrow a connection from.
+	 */
+	private final ConnectionPool pool;
+	
+	/**
+	 * @param pool The pool to borrow a connection from.
+	 */
+	public SchemaMigrator(ConnectionPool pool) {
+		this.pool = pool;
+	}
+	
+	/**
+	 * @return The version of the schema once every migration has been applied.
+	 */
+	public static int getLatestVersion() {
+		return MIGRATIONS[MIGRATIONS.length - 1].version;
+	}
+	
+	/**
+	 * Applies every migration which has not yet been applied to the database, in order of version.
+	 * 
+	 * @return The number of migrations applied.
+	 * @throws SQLException if a migration fails, in which case later migrations are not attempted.
+	 */
+	public int migrate() throws SQLException {
+		try (PooledConnection c = pool.borrow()) {
+			return migrate(c);
+		}
+	}
+	
+	/**
+	 * Applies every migration which has not yet been applied to the database, in order of version, over a connection which is already open.
+	 * 
+	 * @param c The connection to migrate over, which is left open.
+	 * @return The number of migrations applied.
+	 * @throws SQLException if a migration fails, in which case later migrations are not attempted.
+	 */
+	public int migrate(PooledConnection c) throws SQLException {
+		try (Statement s = c.getConnection().createStatement()) {
+			try (ResultSet r = s.executeQuery("SELECT GET_LOCK('" + LOCK + "', " + LOCK_TIMEOUT + ")")) {
+				if(!r.next() || r.getInt(1) != 1)
+					throw new SQLException("Timed out waiting for another client to finish migrating the schema.");
+			}
+			try {
+				s.executeUpdate("CREATE TABLE IF NOT EXISTS schema_version (version int(11) NOT NULL, description varchar(100) NOT NULL DEFAULT '', applied timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP, PRIMARY KEY (version)) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci");
+				int current;
+				try (ResultSet r = s.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+					r.next();
+					current = r.getInt(1);
+				}
+				int applied = 0;
+				for(Migration migration : MIGRATIONS) {
+					if(migration.version <= current)
+						continue;
+					System.out.println("Migrating database schema to version " + migration.version + ": " + migration.description + ".");
+					for(String sql : migration.statements)
+						s.execute(sql);
+					s.executeUpdate("INSERT INTO schema_version (version, description) VALUES (" + migration.version + ", '" + migration.description.replace("'", "''") + "')");
+					applied++;
+				}
+				return applied;
+			} finally {
+				s.execute("SELECT RELEASE_LOCK('" + LOCK + "')");
+			}
+		}
+	}
+	
+}
@@ -0,0 +1,222 @@
+package virtualPlanner.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Set;
+
+import virtualPlanner.backend.Assignment;
+import virtualPlanner.backend.Course;
+import virtualPlanner.backend.Student;
+import virtualPlanner.backend.User;
+import virtualPlanner.reference.AssignmentTypes;
+import virtualPlanner.util.Date;
+
+/**
+ * Keeps a copy of the last logged in {@code User} and all their {@code Course}s and {@code Assignment}s in a local file,
+ * so that the next login can be displayed without waiting for {@link Storage}.
+ * The file is protected by a salted hash of the username and password, and is only loaded if they match.
+ * 
+ * @author JeremiahDeGreeff
+ */
+public class SnapshotCache {
+	
+	/**
+	 * Identifies the layout of the snapshot file. Snapshots with any other format are ignored.
+	 */
+	private static final int FORMAT = 1;
+	/**
+	 * The number of random bytes mixed into the hash of the credentials.
+	 */
+	private static final int SALT_LENGTH = 16;
+	
+	/**
+	 * The snapshot file.
+	 */
+	private final File file;
+	/**
+	 * The salt for the credentials of the current session, or {@code null} if none have been set.
+	 */
+	private byte[] salt;
+	/**
+	 * The salted hash of the credentials of the current session, or {@code null} if none have been set.
+	 */
+	private byte[] hash;
+	
+	/**
+	 * @param path The path of the snapshot file.
+	 */
+	public SnapshotCache(String path) {
+		file = new File(path);
+	}
+	
+	/**
+	 * Sets the credentials which protect snapshots saved by this instance.
+	 * 
+	 * @param username The {@code User}'s username.
+	 * @param password The {@code User}'s password.
+	 */
+	public synchronized void setCredentials(String username, String password) {
+		salt = new byte[SALT_LENGTH];
+		new SecureRandom().nextBytes(salt);
+		hash = hash(salt, username, password);
+	}
+	
+	/**
+	 * Loads the {@code User} in the snapshot if the snapshot was saved with the specified credentials.
+	 * 
+	 * @param username The {@code User}'s username.
+	 * @param password The {@code User}'s password.
+	 * @return The {@code User} with all of their {@code Course}s and {@code Assignment}s, or {@code null} if there is no matching snapshot.
+	 */
+	public synchronized User load(String username, String password) {
+		if(!file.exists())
+			return null;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if(in.readInt() != FORMAT)
+				return null;
+			byte[] salt = new byte[in.readUnsignedByte()];
+			in.readFully(salt);
+			byte[] hash = new byte[in.readUnsignedByte()];
+			in.readFully(hash);
+			if(!MessageDigest.isEqual(hash, hash(salt, username, password)))
+				return null;
+			User user = new Student(in.readInt(), in.readUTF());
+			for(int courses = in.readInt(); courses > 0; courses--) {
+				Course course = new Course(in.readInt(), in.readUTF(), in.readUTF(), in.readUTF());
+				Integer[] blockids = new Integer[in.readUnsignedByte()];
+				for(int i = 0; i < blockids.length; i++)
+					blockids[i] = (int) in.readShort();
+				for(int assignments = in.readInt(); assignments > 0; assignments--) {
+					int id = in.readInt();
+					String name = in.readUTF(), description = in.readUTF();
+					boolean isComplete = in.readBoolean();
+					AssignmentTypes type = AssignmentTypes.getTypeFromID(in.readByte());
+					course.addAssignment(new Assignment(id, readDate(in), readDate(in), type, name, description, isComplete));
+				}
+				user.addCourse(blockids, course);
+			}
+			return user;
+		} catch (IOException | RuntimeException e) {
+			System.out.println("Ignoring unreadable snapshot.");
+			e.printStackTrace();
+			return null;
+		}
+	}
+	
+	/**
+	 * Replaces the snapshot with a {@code User} and all of their {@code Course}s and {@code Assignment}s.
+	 * Nothing is saved if no credentials have been set.
+	 * 
+	 * @param user The {@code User} to save.
+	 * @return {@code true} if successful, {@code false} otherwise.
+	 */
+	public synchronized boolean save(User user) {
+		if(hash == null)
+			return false;
+		File temp = new File(file.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+			out.writeInt(FORMAT);
+			out.writeByte(salt.length);
+			out.write(salt);
+			out.writeByte(hash.length);
+			out.write(hash);
+			out.writeInt(user.getID());
+			out.writeUTF(user.getName());
+			Course[] courses = user.getAllCourses();
+			out.writeInt(courses.length);
+			for(Course course : courses) {
+				out.writeInt(course.getID());
+				out.writeUTF(course.getName());
+				out.writeUTF(course.getAbbreviation());
+				out.writeUTF(course.getTeacher());
+				Integer[] blockids = user.getBlockIDs(course);
+				out.writeByte(blockids.length);
+				for(int blockid : blockids)
+					out.writeShort(blockid);
+				Set<Assignment> assignments = course.getAllAssignments();
+				out.writeInt(assignments.size());
+				for(Assignment assignment : assignments) {
+					out.writeInt(assignment.getID());
+					out.writeUTF(assignment.getName());
+					out.writeUTF(assignment.getDescrip());
+					out.writeBoolean(assignment.isComplete());
+					out.writeByte(assignment.getAssignmentType().getID());
+					writeDate(out, assignment.getAssignedDate());
+					writeDate(out, assignment.getDue());
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			temp.delete();
+			return false;
+		}
+		try {Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);}
+		catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Deletes the snapshot and forgets the credentials of the current session.
+	 */
+	public synchronized void clear() {
+		salt = hash = null;
+		file.delete();
+	}
+	
+	/**
+	 * Writes a {@code Date} as its year, month, and day.
+	 * 
+	 * @param out The stream to write to.
+	 * @param date The {@code Date} to write.
+	 * @throws IOException if the {@code Date} cannot be written.
+	 */
+	private static void writeDate(DataOutputStream out, Date date) throws IOException {
+		out.writeShort(date.getYear());
+		out.writeByte(date.getMonth() + 1);
+		out.writeByte(date.getDay());
+	}
+	
+	/**
+	 * Reads a {@code Date} written by {@link #writeDate(DataOutputStream, Date)}.
+	 * 
+	 * @param in The stream to read from.
+	 * @return The {@code Date}.
+	 * @throws IOException if the {@code Date} cannot be read.
+	 */
+	private static Date readDate(DataInputStream in) throws IOException {
+		int year = in.readShort(), month = in.readByte(), day = in.readByte();
+		return new Date(day, month, year);
+	}
+	
+	/**
+	 * @param salt The salt to mix into the hash.
+	 * @param username The {@code User}'s username.
+	 * @param password The {@code User}'s password.
+	 * @return The SHA-256 hash of the salt and credentials.
+	 */
+	private static byte[] hash(byte[] salt, String username, String password) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(salt);
+			digest.update(username.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			return digest.digest(password.getBytes(StandardCharsets.UTF_8));
+		} catch (NoSuchAlgorithmException e) {throw new IllegalStateException(e);} // Every Java platform supports SHA-256.
+	}
+	
+}
@@ -0,0 +1,334 @@
+package virtualPlanner.io;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+import virtualPlanner.backend.Assignment;
+import virtualPlanner.backend.Course;
+import virtualPlanner.backend.User;
+import virtualPlanner.reference.Paths;
+import virtualPlanner.util.Block;
+import virtualPlanner.util.Date;
+
+/**
+ * Defines the operations for storing users, courses, and assignments.
+ * Implemented by {@link DatabaseController} for a MySQL database and by {@link LocalStorage} for a local file.
+ * 
+ * @author JeremiahDeGreeff
+ */
+public interface Storage {
+	
+	/**
+	 * Opens the {@code Storage} selected by the storage settings.
+	 * The settings are read from {@link Paths#STORAGE_DEFAULT} and overridden by {@link Paths#STORAGE} if it exists.
+	 * The database server and its credentials are not kept in the defaults, which only hold placeholders,
+	 * so they must be given in {@link Paths#STORAGE} or in environment variables such as {@code VIRTUALPLANNER_MYSQL_USER}, which take precedence.
+	 * 
+	 * @return The selected {@code Storage}.
+	 * @throws IllegalStateException if the database is selected but its server or credentials are not given.
+	 */
+	public static Storage open() {
+		Properties defaults = new Properties();
+		try (InputStream in = new FileInputStream(Paths.STORAGE_DEFAULT)) {defaults.load(in);}
+		catch (IOException e) {e.printStackTrace();}
+		Properties settings = new Properties(defaults);
+		try (InputStream in = new FileInputStream(Paths.STORAGE)) {settings.load(in);}
+		catch (IOException e) {} // No overrides.
+		if(settings.getProperty("storage", "mysql").equals("local"))
+			return new LocalStorage(settings.getProperty("local.file"));
+		String[] keys = {"mysql.url", "mysql.user", "mysql.password"};
+		String[] values = new String[keys.length];
+		for(int i = 0; i < keys.length; i++) {
+			String variable = "VIRTUALPLANNER_" + keys[i].toUpperCase().replace('.', '_');
+			values[i] = System.getenv(variable) != null ? System.getenv(variable) : settings.getProperty(keys[i], "");
+			if(values[i].isEmpty() || values[i].equals(defaults.getProperty(keys[i]))) // Still the placeholder.
+				throw new IllegalStateException("The database setting " + keys[i] + " is missing - set it in " + Paths.STORAGE + " or in the " + variable + " environment variable.");
+		}
+		return new DatabaseController(values[0], values[1], values[2], Integer.parseInt(settings.getProperty("mysql.poolSize", "4")));
+	}
+	
+	/**
+	 * Loads a {@code User} if the specified username password pair is correct.
+	 * Only the {@code Assignment}s which are assigned or due within a range of {@code Date}s are loaded.
+	 * 
+	 * @param username The {@code User}'s username.
+	 * @param password The {@code User}'s password.
+	 * @param from The first {@code Date} of the range.
+	 * @param to The last {@code Date} of the range.
+	 * @return The {@code User} with all appropriate {@code Course}s and the {@code Assignment}s in the range.
+	 * @throws LoginException if the username is not registered or the password is invalid.
+	 */
+	public User login(String username, String password, Date from, Date to) throws LoginException;
+	
+	/**
+	 * Loads a {@code User} and their {@code Course}s if the specified username password pair is correct, without any {@code Assignment}s.
+	 * 
+	 * @param username The {@code User}'s username.
+	 * @param password The {@code User}'s password.
+	 * @return The {@code User} with all appropriate {@code Course}s.
+	 * @throws LoginException if the username is not registered or the password is invalid.
+	 */
+	public User loadSchedule(String username, String password) throws LoginException;
+	
+	/**
+	 * Loads the {@code Assignment}s of a {@code Course} which are assigned or due within a range of {@code Date}s.
+	 * 
+	 * @param course The {@code Course} whose {@code Assignment}s should be loaded.
+	 * @param from The first {@code Date} of the range.
+	 * @param to The last {@code Date} of the range.
+	 * @return The {@code Assignment}s, or {@code null} if an error occurs.
+	 */
+	public List<Assignment> loadAssignments(Course course, Date from, Date to);
+	
+	/**
+	 * Loads the {@code Assignment}s in a {@code User}'s schedule which are assigned or due within a range of {@code Date}s.
+	 * 
+	 * @param user The {@code User} whose {@code Assignment}s should be loaded.
+	 * @param from The first {@code Date} of the range.
+	 * @param to The last {@code Date} of the range.
+	 * @return The {@code Assignment}s by courseid, or {@code null} if an error occurs.
+	 */
+	public Map<Integer, List<Assignment>> loadAssignments(User user, Date from, Date to);
+	
+	/**
+	 * Iterates over the {@code Assignment}s of a {@code Course} in order of due date,
+	 * reading them a little at a time so that large histories can be read in constant memory.
+	 * 
+	 * @param course The {@code Course} whose {@code Assignment}s should be read.
+	 * @param from The first due {@code Date} to include, or {@code null} for no limit.
+	 * @param to The last due {@code Date} to include, or {@code null} for no limit.
+	 * @return An iterator over the {@code Assignment}s, whose {@code next()} throws an {@code IllegalStateException} if they cannot be read.
+	 */
+	public Iterator<Assignment> iterateAssignments(Course course, Date from, Date to);
+	
+	/**
+	 * Loads a {@code Course} and any {@code Assignment}s which are associated with it.
+	 * 
+	 * @param id The id of the {@code Course}.
+	 * @return The {@code Course}, or null if no {@code Course} with the specified id exists.
+	 */
+	public Course loadCourse(int id);
+	
+	/**
+	 * Loads an {@code Assignment}.
+	 * 
+	 * @param id The id of the {@code Assignment}.
+	 * @return The {@code Assignment}, or null if no {@code Assignment} with the specified id exists.
+	 */
+	public Assignment loadAssignment(int id);
+	
+	/**
+	 * Makes a {@code Course} built by {@link #sync(User, long)} the live instance for its id, once it is being added to the model,
+	 * unless another instance is already live.
+	 * 
+	 * @param course The {@code Course}.
+	 * @return The live instance, which the new values should be applied to if it is not {@code course}.
+	 */
+	public Course adopt(Course course);
+	
+	/**
+	 * Makes an {@code Assignment} built by {@link #sync(User, long)} the live instance for its id, once it is being added to the model,
+	 * unless another instance is already live.
+	 * 
+	 * @param assignment The {@code Assignment}.
+	 * @return The live instance, which the new values should be applied to if it is not {@code assignment}.
+	 */
+	public Assignment adopt(Assignment assignment);
+	
+	/**
+	 * Creates the account for a new user.
+	 * 
+	 * @param username The username for the new user - must not already exist for operation to be successful.
+	 * @param password The password for the new user.
+	 * @param name The name for the new user
+	 * @return {@code true} if successful, {@code false} otherwise.
+	 * @throws LoginException if a user with the same username already exists.
+	 */
+	public boolean createUser(String username, String password, String name) throws LoginException;
+	
+	/**
+	 * Allocates an id for a new {@code Course}, so that the {@code Course} can be built before it is stored with {@link #insert(User, Course, Block[])}.
+	 * Ids are handed out from blocks reserved ahead of time, so most calls do not wait for storage.
+	 * 
+	 * @return The id, or -1 if no id could be allocated.
+	 */
+	public int allocateCourseID();
+	
+	/**
+	 * Allocates an id for a new {@code Assignment}, so that the {@code Assignment} can be built before it is stored with {@link #insert(Course, Assignment)}.
+	 * Ids are handed out from blocks reserved ahead of time, so most calls do not wait for storage.
+	 * 
+	 * @return The id, or -1 if no id could be allocated.
+	 */
+	public int allocateAssignmentID();
+	
+	/**
+	 * Starts reserving ids in the background, so that {@link #allocateCourseID()} and {@link #allocateAssignmentID()} do not wait for storage.
+	 * 
+	 * @param executor The executor to reserve ids on, which must not be the thread that allocates them.
+	 */
+	public void prefetchIDs(Executor executor);
+	
+	/**
+	 * Stores a new {@code Course} and associates it with a {@code User} in particular {@code Block}s in a single transaction.
+	 * 
+	 * @param user The {@code User} to link.
+	 * @param course The new {@code Course}, whose id was allocated by {@link #allocateCourseID()}.
+	 * @param blocks The {@code Block}s to link.
+	 * @return {@code true} if successful, {@code false} otherwise, in which case nothing is stored.
+	 */
+	public boolean insert(User user, Course course, Block[] blocks);
+	
+	/**
+	 * Stores a new {@code Assignment} and associates it with a {@code Course} in a single transaction.
+	 * 
+	 * @param course The {@code Course} to link.
+	 * @param assignment The new {@code Assignment}, whose id was allocated by {@link #allocateAssignmentID()}.
+	 * @return {@code true} if successful, {@code false} otherwise, in which case nothing is stored.
+	 */
+	public boolean insert(Course course, Assignment assignment);
+	
+	/**
+	 * Stores new {@code Assignment}s and associates them with a {@code Course} in a single transaction.
+	 * 
+	 * @param course The {@code Course} to link.
+	 * @param assignments The new {@code Assignment}s, whose ids were allocated by {@link #allocateAssignmentID()}.
+	 * @return {@code true} if successful, {@code false} otherwise, in which case nothing is stored.
+	 */
+	public boolean insert(Course course, List<Assignment> assignments);
+	
+	/**
+	 * Associates a {@code User} with a {@code Course} in particular {@code Block}s.
+	 * 
+	 * @param user The {@code User} to link.
+	 * @param course The {@code Course} to link.
+	 * @param blocks An array of {@code Block}s to link.
+	 * @return {@code true} if successful, {@code false} otherwise.
+	 */
+	public boolean link(User user, Course course, Block[] blocks);
+	
+	/**
+	 * Replaces all associations between a {@code User} and a {@code Course} with associations in a new set of {@code Block}s.
+	 * 
+	 * @param user The {@code User} to relink.
+	 * @param course The {@code Course} to relink.
+	 * @param blocks The {@code Block}s to link.
+	 * @return {@code true} if successful, {@code false} otherwise, in which case the existing associations are unchanged.
+	 */
+	public boolean relink(User user, Course course, Block[] blocks);
+	
+	/**
+	 * Associates a {@code Course} with an {@code Assignment}.
+	 * 
+	 * @param course The {@code Course} to link.
+	 * @param assignment The {@code Assignment} to link.
+	 * @return {@code true} if successful, {@code false} otherwise.
+	 */
+	public boolean link(Course course, Assignment assignment);
+	
+	/**
+	 * Removes all associations between a {@code User} and a {@code Course}.
+	 * 
+	 * @param user The {@code User} to unlink.
+	 * @param course The {@code Course} to unlink.
+	 * @return {@code true} if successful, {@code false} otherwise.
+	 */
+	public boolean unlink(User user, Course course);
+	
+	/**
+	 * Removes all associations between a {@code Course} and an {@code Assignment}.
+	 * 
+	 * @param course The {@code Course} to unlink.
+	 * @param assignment The {@code Assignment} to unlink.
+	 * @return {@code true} if successful, {@code false} otherwise.
+	 */
+	public boolean unlink(Course course, Assignment assignment);
+	
+	/**
+	 * Updates a {@code User}'s record.
+	 * 
+	 * @param user The {@code User} whose record should be updated.
+	 * @return {@code true} if successful, {@code false} otherwise.
+	 */
+	public boolean update(User user);
+	
+	/**
+	 * Updates the fields of a {@code Course}'s record which have changed since they were last saved.
+	 * 
+	 * @param course The {@code Course} whose record should be updated.
+	 * @return {@code true} if successful, {@code false} otherwise.
+	 */
+	public boolean update(Course course);
+	
+	/**
+	 * Updates the fields of an {@code Assignment}'s record which have changed since they were last saved.
+	 * 
+	 * @param assignment The {@code Assignment} whose record should be updated.
+	 * @return {@code true} if successful, {@code false} otherwise.
+	 */
+	public boolean update(Assignment assignment);
+	
+	/**
+	 * Deletes all records of a user.
+	 * 
+	 * @param user The user to delete.
+	 * @return {@code true} if successful, {@code false} otherwise.
+	 */
+	public boolean delete(User user);
+	
+	/**
+	 * Removes all links from a {@code Course}.
+	 * 
+	 * @param course The {@code Course} to remove.
+	 * @return {@code true} if successful, {@code false} otherwise.
+	 */
+	public boolean delete(Course course);
+	
+	/**
+	 * Removes all links from an {@code Assignment}.
+	 * 
+	 * @param assignment The {@code Assignment} to remove.
+	 * @return {@code true} if successful, {@code false} otherwise.
+	 */
+	public boolean delete(Assignment assignment);
+	
+	/**
+	 * Runs several operations as a single unit of work, which takes effect entirely or not at all.
+	 * 
+	 * @param work The operations to run, which should return {@code false} as soon as any of them fails.
+	 * @return {@code true} if every operation succeeded and took effect, {@code false} otherwise, in which case none of them take effect.
+	 */
+	public boolean transaction(WriteBehindQueue.Write work);
+	
+	/**
+	 * @return The current version, which a later {@link #sync(User, long)} can be given to retrieve only the changes made after now.
+	 */
+	public long currentVersion();
+	
+	/**
+	 * Retrieves everything in a {@code User}'s schedule which has changed since a particular version.
+	 * Changes may be repeated in later syncs, so applying them must be idempotent.
+	 * 
+	 * @param user The {@code User} whose schedule should be synced.
+	 * @param since The version returned by the previous sync or by {@link #currentVersion()} before the {@code User} was loaded, or 0 for everything.
+	 * @return The changes, or {@code null} if an error occurs.
+	 */
+	public ChangeSet sync(User user, long since);
+	
+	/**
+	 * @return The maximum number of calls to this {@code Storage} which can usefully run at once.
+	 */
+	public int getMaxConcurrency();
+	
+	/**
+	 * Releases any resources held by this {@code Storage}.
+	 */
+	public void close();
+	
+}
@@ -0,0 +1,403 @@
+package virtualPlanner.io;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persists changes to storage on a background thread so that callers do not wait for storage.
+ * Writes are executed one at a time in the order they were queued, since later writes may depend on earlier ones, and are retried with a backoff if they fail.
+ * A write with a key is dropped if a write with the same key is already waiting,
+ * so writes which save the current state of an object should use a key which identifies that object.
+ * A write may name the keys of the records it creates. Once it is abandoned, the writes with those keys which were queued before then are abandoned too instead of being executed,
+ * since they depend on the records existing. Other writes are still executed after a failure, so writes with a key should save every change which has not been saved yet.
+ * Queuing never blocks: a write is refused if the queue is full, so callers should check {@link #isFull()} before changing the model.
+ * 
+ * @author JeremiahDeGreeff
+ */
+public class WriteBehindQueue {
+	
+	/**
+	 * The maximum number of writes which may be waiting at once. Writes are refused while the queue is full.
+	 */
+	private static final int CAPACITY = 1024;
+	/**
+	 * The number of times a write is attempted before it is abandoned.
+	 */
+	private static final int MAX_ATTEMPTS = 5;
+	/**
+	 * The number of times a write which can be undone is attempted before it is abandoned,
+	 * which is fewer than {@link #MAX_ATTEMPTS} so that the model is restored soon after the write starts failing.
+	 */
+	private static final int UNDOABLE_ATTEMPTS = 2;
+	/**
+	 * The number of milliseconds to wait after the first failed attempt of a write. Doubles after each subsequent failure.
+	 */
+	private static final long INITIAL_BACKOFF = 500;
+	/**
+	 * The keys of a write which creates no records.
+	 */
+	private static final String[] NO_KEYS = new String[0];
+	
+	/**
+	 * An operation which persists a change.
+	 */
+	@FunctionalInterface
+	public interface Write {
+		/**
+		 * Persists the change.
+		 * 
+		 * @param storage The {@code Storage} to write with.
+		 * @return {@code true} if successful, {@code false} if the write should be retried.
+		 */
+		public boolean execute(Storage storage);
+	}
+	
+	/**
+	 * A {@code Write} waiting in the queue.
+	 */
+	private static class Entry {
+		/**
+		 * The key of the write, or {@code null} if it should never be coalesced.
+		 */
+		private final String key;
+		/**
+		 * The write.
+		 */
+		private final Write write;
+		/**
+		 * Called if the write is abandoned, or {@code null} if nothing should be done.
+		 */
+		private final Runnable onFailure;
+		/**
+		 * The keys of the records the write creates.
+		 */
+		private final String[] creates;
+		/**
+		 * The number of writes which had been queued when this write was queued, including this one.
+		 */
+		private final long sequence;
+		
+		/**
+		 * @param key The key of the write, or {@code null} if it should never be coalesced.
+		 * @param write The write.
+		 * @param onFailure Called if the write is abandoned, or {@code null} if nothing should be done.
+		 * @param creates The keys of the records the write creates.
+		 * @param sequence The number of writes which had been queued when this write was queued, including this one.
+		 */
+		private Entry(String key, Write write, Runnable onFailure, String[] creates, long sequence) {
+			this.key = key;
+			this.write = write;
+			this.onFailure = onFailure;
+			this.creates = creates;
+			this.sequence = sequence;
+		}
+	}
+	
+	/**
+	 * The {@code Storage} to write with.
+	 */
+	private final Storage storage;
+	/**
+	 * The writes waiting to be executed.
+	 */
+	private final BlockingQueue<Entry> queue;
+	/**
+	 * The keys of the writes waiting to be executed.
+	 */
+	private final Set<String> pendingKeys;
+	/**
+	 * The key of each record whose creating write was abandoned, mapped to the number of writes which had been queued by then.
+	 * Only used by the writer thread.
+	 */
+	private final Map<String, Long> failedKeys;
+	/**
+	 * The thread which executes the writes.
+	 */
+	private final Thread writer;
+	/**
+	 * Whether this queue has stopped accepting writes.
+	 */
+	private volatile boolean closed;
+	
+	/**
+	 * The number of writes which have been queued but have not finished executing. Guarded by {@code this}.
+	 */
+	private int outstanding;
+	/**
+	 * The total number of writes which have been queued, including those which were coalesced.
+	 */
+	private final AtomicLong enqueueCount;
+	/**
+	 * The total number of writes which have succeeded.
+	 */
+	private final AtomicLong writeCount;
+	/**
+	 * The total number of writes which were dropped because a write with the same key was already waiting.
+	 */
+	private final AtomicLong coalescedCount;
+	/**
+	 * The total number of failed attempts which were retried.
+	 */
+	private final AtomicLong retryCount;
+	/**
+	 * The total number of writes which were abandoned after failing every attempt.
+	 */
+	private final AtomicLong failureCount;
+	
+	/**
+	 * Creates a queue and starts its writer thread.
+	 * 
+	 * @param storage The {@code Storage} to write with.
+	 */
+	public WriteBehindQueue(Storage storage) {
+		this.storage = storage;
+		queue = new LinkedBlockingQueue<Entry>(CAPACITY);
+		pendingKeys = ConcurrentHashMap.newKeySet();
+		failedKeys = new HashMap<String, Long>();
+		enqueueCount = new AtomicLong();
+		writeCount = new AtomicLong();
+		coalescedCount = new AtomicLong();
+		retryCount = new AtomicLong();
+		failureCount = new AtomicLong();
+		writer = IOExecutor.newThread("WriteBehindQueue-writer", this::run);
+		writer.start();
+	}
+	
+	/**
+	 * Queues a write which will never be coalesced.
+	 * 
+	 * @param write The write to queue.
+	 * @return {@code true} if the write was queued, {@code false} if it was refused because the queue is full.
+	 */
+	public boolean enqueue(Write write) {
+		return enqueue(null, write, null, NO_KEYS);
+	}
+	
+	/**
+	 * Queues a write which will never be coalesced, with an action to take if it is abandoned after failing every attempt.
+	 * A write which can be undone is attempted fewer times, so that it is undone soon after it starts failing.
+	 * If it is abandoned, the writes with the keys of the records it creates which were queued before then are abandoned too.
+	 * 
+	 * @param write The write to queue.
+	 * @param onFailure Called on the writer thread if the write is abandoned.
+	 * @param creates The keys of the records the write creates.
+	 * @return {@code true} if the write was queued, {@code false} if it was refused because the queue is full, in which case {@code onFailure} is not called.
+	 */
+	public boolean enqueue(Write write, Runnable onFailure, String... creates) {
+		return enqueue(null, write, onFailure, creates);
+	}
+	
+	/**
+	 * Queues a write. If a write with the same key is already waiting, the new write is dropped.
+	 * 
+	 * @param key The key of the write, or {@code null} if it should never be coalesced.
+	 * @param write The write to queue.
+	 * @return {@code true} if the write was queued or coalesced, {@code false} if it was refused because the queue is full.
+	 * @throws IllegalStateException if this queue has been closed.
+	 */
+	public boolean enqueue(String key, Write write) {
+		return enqueue(key, write, null, NO_KEYS);
+	}
+	
+	/**
+	 * Queues a write without waiting. If it has a key and a write with the same key is already waiting, the new write is dropped.
+	 * 
+	 * @param key The key of the write, or {@code null} if it should never be coalesced.
+	 * @param write The write to queue.
+	 * @param onFailure Called on the writer thread if the write is abandoned, or {@code null} if nothing should be done.
+	 * @param creates The keys of the records the write creates.
+	 * @return {@code true} if the write was queued or coalesced, {@code false} if it was refused because the queue is full.
+	 * @throws IllegalStateException if this queue has been closed.
+	 */
+	private boolean enqueue(String key, Write write, Runnable onFailure, String[] creates) {
+		if(closed)
+			throw new IllegalStateException("WriteBehindQueue has been closed.");
+		long sequence = enqueueCount.incrementAndGet();
+		if(key != null && !pendingKeys.add(key)) {
+			coalescedCount.incrementAndGet();
+			return true;
+		}
+		synchronized (this) {outstanding++;}
+		if(queue.offer(new Entry(key, write, onFailure, creates, sequence)))
+			return true;
+		if(key != null)
+			pendingKeys.remove(key);
+		finished();
+		return false;
+	}
+	
+	/**
+	 * @return {@code true} if the queue is full and would refuse a write, {@code false} otherwise.
+	 */
+	public boolean isFull() {
+		return queue.remainingCapacity() == 0;
+	}
+	
+	/**
+	 * Waits for every write queued so far to finish executing.
+	 * 
+	 * @param timeout The maximum number of milliseconds to wait.
+	 * @return {@code true} if all writes finished, {@code false} if the timeout elapsed first.
+	 */
+	public synchronized boolean flush(long timeout) {
+		long deadline = System.currentTimeMillis() + timeout;
+		try {
+			while(outstanding > 0) {
+				long remaining = deadline - System.currentTimeMillis();
+				if(remaining <= 0)
+					return false;
+				wait(remaining);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Stops accepting writes and waits for every queued write to finish executing.
+	 * 
+	 * @param timeout The maximum number of milliseconds to wait.
+	 * @return {@code true} if all writes finished, {@code false} if the timeout elapsed first.
+	 */
+	public boolean close(long timeout) {
+		closed = true;
+		boolean flushed = flush(timeout);
+		writer.interrupt();
+		return flushed;
+	}
+	
+	/**
+	 * @return The number of writes waiting to be executed.
+	 */
+	public int getDepth() {
+		return queue.size();
+	}
+	
+	/**
+	 * @return The total number of writes which have been queued, including those which were coalesced.
+	 */
+	public long getEnqueueCount() {
+		return enqueueCount.get();
+	}
+	
+	/**
+	 * @return The total number of writes which have succeeded.
+	 */
+	public long getWriteCount() {
+		return writeCount.get();
+	}
+	
+	/**
+	 * @return The total number of writes which were dropped because a write with the same key was already waiting.
+	 */
+	public long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+	
+	/**
+	 * @return The total number of failed attempts which were retried.
+	 */
+	public long getRetryCount() {
+		return retryCount.get();
+	}
+	
+	/**
+	 * @return The total number of writes which were abandoned after failing every attempt.
+	 */
+	public long getFailureCount() {
+		return failureCount.get();
+	}
+	
+	/**
+	 * Returns a String representation of the metrics of this {@code WriteBehindQueue}.
+	 */
+	@Override
+	public String toString() {
+		return String.format("WriteBehindQueue [depth = %d, written = %d, coalesced = %d, retried = %d, failed = %d]", getDepth(), getWriteCount(), getCoalescedCount(), getRetryCount(), getFailureCount());
+	}
+	
+	/**
+	 * Executes queued writes until this queue is closed and empty.
+	 */
+	private void run() {
+		while(!closed || !queue.isEmpty()) {
+			Entry entry;
+			try {entry = queue.poll(1, TimeUnit.SECONDS);}
+			catch (InterruptedException e) {continue;}
+			if(entry == null) {
+				// Every write queued before a failure has been executed by the time the queue is empty.
+				failedKeys.clear();
+				continue;
+			}
+			// Released before executing so that changes made during the write are queued again.
+			if(entry.key != null)
+				pendingKeys.remove(entry.key);
+			if(!execute(entry)) {
+				// Writes of the records it would have created which were queued before now would act on records which do not exist.
+				for(String key : entry.creates)
+					failedKeys.put(key, enqueueCount.get());
+				if(entry.onFailure != null)
+					entry.onFailure.run();
+			}
+			finished();
+		}
+	}
+	
+	/**
+	 * Executes a write, retrying with an exponential backoff if it fails.
+	 * The write is abandoned without being executed if the record it writes was to be created by a write which was abandoned after it was queued.
+	 * 
+	 * @param entry The write to execute.
+	 * @return {@code true} if the write succeeded, {@code false} if it was abandoned.
+	 */
+	private boolean execute(Entry entry) {
+		if(entry.key != null && failedKeys.containsKey(entry.key)) {
+			if(entry.sequence <= failedKeys.get(entry.key)) {
+				failureCount.incrementAndGet();
+				System.out.println("Write follows the failed creation of its record - abandoning.");
+				return false;
+			}
+			failedKeys.remove(entry.key);
+		}
+		int maxAttempts = entry.onFailure != null ? UNDOABLE_ATTEMPTS : MAX_ATTEMPTS;
+		long backoff = INITIAL_BACKOFF;
+		for(int attempt = 1; ; attempt++) {
+			boolean success;
+			try {success = entry.write.execute(storage);}
+			catch (RuntimeException e) {
+				e.printStackTrace();
+				success = false;
+			}
+			if(success) {
+				writeCount.incrementAndGet();
+				return true;
+			}
+			if(attempt == maxAttempts) {
+				failureCount.incrementAndGet();
+				System.out.println("Write failed after " + maxAttempts + " attempts - abandoning.");
+				return false;
+			}
+			retryCount.incrementAndGet();
+			try {Thread.sleep(backoff);}
+			catch (InterruptedException e) {} // Interrupted by close - keep retrying so the write is not lost.
+			backoff *= 2;
+		}
+	}
+	
+	/**
+	 * Records that a queued write has finished and wakes any threads waiting in {@link #flush(long)}.
+	 */
+	private synchronized void finished() {
+		outstanding--;
+		notifyAll();
+	}
+	
+}
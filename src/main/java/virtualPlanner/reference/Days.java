@@ -12,71 +12,82 @@ import virtualPlanner.util.Time;
 public enum Days {
 	
 	MONDAY("Monday", new Block[] {
-			new Block(Blocks.C, new Time(8, 00), new Time(8, 40), 0x20),
-			new Block(Blocks.F, new Time(8, 45), new Time(9, 25), 0x50),
-			new Block(Blocks.MEETING, new Time(9, 30), new Time(10, 00), 0xA0),
-			new Block(Blocks.D, new Time(10, 00), new Time(10, 40), 0x30),
-			new Block(Blocks.E, new Time(10, 45), new Time(11, 25), 0x40),
-			new Block(Blocks.G, new Time(11, 30), new Time(12, 10), 0x60),
-			new Block(Blocks.LUNCH, new Time(12, 10), new Time(12, 55), 0x90),
-			new Block(Blocks.B, new Time(12, 55), new Time(13, 35), 0x10),
-			new Block(Blocks.A, new Time(13, 40), new Time(14, 20), 0x00),
-			new Block(Blocks.L, new Time(14, 20), new Time(15, 00), 0x80)
+			new Block(Blocks.C, Time.of(8, 00), Time.of(8, 40), 0x20),
+			new Block(Blocks.F, Time.of(8, 45), Time.of(9, 25), 0x50),
+			new Block(Blocks.MEETING, Time.of(9, 30), Time.of(10, 00), 0xA0),
+			new Block(Blocks.D, Time.of(10, 00), Time.of(10, 40), 0x30),
+			new Block(Blocks.E, Time.of(10, 45), Time.of(11, 25), 0x40),
+			new Block(Blocks.G, Time.of(11, 30), Time.of(12, 10), 0x60),
+			new Block(Blocks.LUNCH, Time.of(12, 10), Time.of(12, 55), 0x90),
+			new Block(Blocks.B, Time.of(12, 55), Time.of(13, 35), 0x10),
+			new Block(Blocks.A, Time.of(13, 40), Time.of(14, 20), 0x00),
+			new Block(Blocks.L, Time.of(14, 20), Time.of(15, 00), 0x80)
 		}),
 	TUESDAY("Tuesday", new Block[] {
-			new Block(Blocks.D, new Time(8, 00), new Time(8, 40), 0x31),
-			new Block(Blocks.A, new Time(8, 45), new Time(9, 25), 0x01),
-			new Block(Blocks.ASSEMBLY, new Time(9, 30), new Time(10, 10), 0xB1),
-			new Block(Blocks.C, new Time(10, 15), new Time(10, 55), 0x21),
-			new Block(Blocks.B, new Time(11, 00), new Time(11, 40), 0x11),
-			new Block(Blocks.H, new Time(11, 45), new Time(12, 25), 0x71),
-			new Block(Blocks.LUNCH, new Time(12, 25), new Time(13, 05), 0x91),
-			new Block(Blocks.F, new Time(13, 05), new Time(13, 45), 0x51),
-			new Block(Blocks.E, new Time(13, 50), new Time(14, 30), 0x41),
-			new Block(Blocks.L, new Time(14, 30), new Time(15, 10), 0x81)
+			new Block(Blocks.D, Time.of(8, 00), Time.of(8, 40), 0x31),
+			new Block(Blocks.A, Time.of(8, 45), Time.of(9, 25), 0x01),
+			new Block(Blocks.ASSEMBLY, Time.of(9, 30), Time.of(10, 10), 0xB1),
+			new Block(Blocks.C, Time.of(10, 15), Time.of(10, 55), 0x21),
+			new Block(Blocks.B, Time.of(11, 00), Time.of(11, 40), 0x11),
+			new Block(Blocks.H, Time.of(11, 45), Time.of(12, 25), 0x71),
+			new Block(Blocks.LUNCH, Time.of(12, 25), Time.of(13, 05), 0x91),
+			new Block(Blocks.F, Time.of(13, 05), Time.of(13, 45), 0x51),
+			new Block(Blocks.E, Time.of(13, 50), Time.of(14, 30), 0x41),
+			new Block(Blocks.L, Time.of(14, 30), Time.of(15, 10), 0x81)
 		}),
 	WEDNESDAY("Wednesday", new Block[] {
-			new Block(Blocks.B, new Time(8, 00), new Time(8, 40), 0x12),
-			new Block(Blocks.C, new Time(8, 45), new Time(9, 25), 0x22),
-			new Block(Blocks.CHAPEL, new Time(9, 30), new Time(10, 10), 0xC2),
-			new Block(Blocks.A, new Time(10, 15), new Time(10, 55), 0x02),
-			new Block(Blocks.F, new Time(11, 00), new Time(11, 40), 0x52),
-			new Block(Blocks.G, new Time(11, 45), new Time(12, 25), 0x62),
-			new Block(Blocks.LUNCH, new Time(12, 25), new Time(13, 00), 0x92)
+			new Block(Blocks.B, Time.of(8, 00), Time.of(8, 40), 0x12),
+			new Block(Blocks.C, Time.of(8, 45), Time.of(9, 25), 0x22),
+			new Block(Blocks.CHAPEL, Time.of(9, 30), Time.of(10, 10), 0xC2),
+			new Block(Blocks.A, Time.of(10, 15), Time.of(10, 55), 0x02),
+			new Block(Blocks.F, Time.of(11, 00), Time.of(11, 40), 0x52),
+			new Block(Blocks.G, Time.of(11, 45), Time.of(12, 25), 0x62),
+			new Block(Blocks.LUNCH, Time.of(12, 25), Time.of(13, 00), 0x92)
 		}),
 	THURSDAY("Thursday", new Block[] {
-			new Block(Blocks.FACULTY, new Time(8, 00), new Time(8, 55), 0xD3),
-			new Block(Blocks.E, new Time(9, 15), new Time(9, 55), 0x43),
-			new Block(Blocks.D, new Time(10, 00), new Time(10, 40), 0x33),
-			new Block(Blocks.H, new Time(10, 45), new Time(11, 25), 0x73),
-			new Block(Blocks.F, new Time(11, 30), new Time(12, 10), 0x53),
-			new Block(Blocks.LUNCH, new Time(12, 10), new Time(12, 55), 0x93),
-			new Block(Blocks.B, new Time(12, 55), new Time(13, 35), 0x13),
-			new Block(Blocks.C, new Time(13, 40), new Time(14, 20), 0x23),
-			new Block(Blocks.L, new Time(14, 20), new Time(15, 00), 0x83)
+			new Block(Blocks.FACULTY, Time.of(8, 00), Time.of(8, 55), 0xD3),
+			new Block(Blocks.E, Time.of(9, 15), Time.of(9, 55), 0x43),
+			new Block(Blocks.D, Time.of(10, 00), Time.of(10, 40), 0x33),
+			new Block(Blocks.H, Time.of(10, 45), Time.of(11, 25), 0x73),
+			new Block(Blocks.F, Time.of(11, 30), Time.of(12, 10), 0x53),
+			new Block(Blocks.LUNCH, Time.of(12, 10), Time.of(12, 55), 0x93),
+			new Block(Blocks.B, Time.of(12, 55), Time.of(13, 35), 0x13),
+			new Block(Blocks.C, Time.of(13, 40), Time.of(14, 20), 0x23),
+			new Block(Blocks.L, Time.of(14, 20), Time.of(15, 00), 0x83)
 		}),
 	FRIDAY("Friday", new Block[] {
-			new Block(Blocks.F, new Time(8, 00), new Time(8, 40), 0x54),
-			new Block(Blocks.E, new Time(8, 45), new Time(9, 25), 0x44),
-			new Block(Blocks.SENATE, new Time(9, 30), new Time(10, 00), 0xE4),
-			new Block(Blocks.B, new Time(10, 00), new Time(10, 40), 0x14),
-			new Block(Blocks.C, new Time(10, 45), new Time(11, 25), 0x24),
-			new Block(Blocks.G, new Time(11, 30), new Time(12, 10), 0x64),
-			new Block(Blocks.LUNCH, new Time(12, 10), new Time(12, 55), 0x94),
-			new Block(Blocks.A, new Time(12, 55), new Time(13, 35), 0x04),
-			new Block(Blocks.D, new Time(13, 40), new Time(14, 20), 0x34),
-			new Block(Blocks.L, new Time(14, 20), new Time(15, 00), 0x84)
+			new Block(Blocks.F, Time.of(8, 00), Time.of(8, 40), 0x54),
+			new Block(Blocks.E, Time.of(8, 45), Time.of(9, 25), 0x44),
+			new Block(Blocks.SENATE, Time.of(9, 30), Time.of(10, 00), 0xE4),
+			new Block(Blocks.B, Time.of(10, 00), Time.of(10, 40), 0x14),
+			new Block(Blocks.C, Time.of(10, 45), Time.of(11, 25), 0x24),
+			new Block(Blocks.G, Time.of(11, 30), Time.of(12, 10), 0x64),
+			new Block(Blocks.LUNCH, Time.of(12, 10), Time.of(12, 55), 0x94),
+			new Block(Blocks.A, Time.of(12, 55), Time.of(13, 35), 0x04),
+			new Block(Blocks.D, Time.of(13, 40), Time.of(14, 20), 0x34),
+			new Block(Blocks.L, Time.of(14, 20), Time.of(15, 00), 0x84)
 		}),
 	SATURDAY("Saturday", new Block[] {
-			new Block(Blocks.A, new Time(8, 00), new Time(8, 40), 0x05),
-			new Block(Blocks.H, new Time(8, 45), new Time(9, 25), 0x75),
-			new Block(Blocks.ASSEMBLY, new Time(9, 30), new Time(10, 00), 0xB5),
-			new Block(Blocks.E, new Time(10, 00), new Time(10, 40), 0x45),
-			new Block(Blocks.D, new Time(10, 45), new Time(11, 25), 0x35),
-			new Block(Blocks.LUNCH, new Time(11, 30), new Time(12, 10), 0x95)
+			new Block(Blocks.A, Time.of(8, 00), Time.of(8, 40), 0x05),
+			new Block(Blocks.H, Time.of(8, 45), Time.of(9, 25), 0x75),
+			new Block(Blocks.ASSEMBLY, Time.of(9, 30), Time.of(10, 00), 0xB5),
+			new Block(Blocks.E, Time.of(10, 00), Time.of(10, 40), 0x45),
+			new Block(Blocks.D, Time.of(10, 45), Time.of(11, 25), 0x35),
+			new Block(Blocks.LUNCH, Time.of(11, 30), Time.of(12, 10), 0x95)
 		}),
 	SUNDAY("Sunday", new Block[] {});
 	
+	/**
+	 * Every {@code Block} in a normal Middlesex Schedule indexed by its id.
+	 */
+	private static final Block[] BLOCKS_BY_ID = new Block[Block.ID_COUNT];
+	
+	static {
+		for(Days day : values())
+			for(Block block : day.blocks)
+				BLOCKS_BY_ID[block.getID()] = block;
+	}
+	
 	/**
 	 * The name of this day.
 	 */
@@ -87,6 +98,11 @@ public enum Days {
 	 */
 	private final Block[] blocks;
 	
+	/**
+	 * The blocks which occur on this day indexed by the ordinal of their type from {@link Blocks}, or {@code null} for types which don't occur.
+	 */
+	private final Block[] blocksByType;
+	
 	/**
 	 * @param name The name of this day.
 	 * @param blocks The blocks which occur on this day in a normal Middlesex Schedule.
@@ -94,6 +110,9 @@ public enum Days {
 	Days(String name, Block[] blocks) {
 		this.name = name;
 		this.blocks = blocks;
+		blocksByType = new Block[Blocks.values().length];
+		for(Block block : blocks)
+			blocksByType[block.getBlock().ordinal()] = block;
 	}
 	
 	/**
@@ -121,6 +140,26 @@ public enum Days {
 		return blocks[n];
 	}
 	
+	/**
+	 * Retrieves the {@code Block} of a particular type in this day.
+	 * 
+	 * @param type The type of the {@code Block}.
+	 * @return The {@code Block} of the specified type in this day, or {@code null} if there is none.
+	 */
+	public Block getBlock(Blocks type) {
+		return blocksByType[type.ordinal()];
+	}
+	
+	/**
+	 * Retrieves a {@code Block} by its id.
+	 * 
+	 * @param id The id of the {@code Block}.
+	 * @return The {@code Block} in a normal Middlesex Schedule with the specified id, or {@code null} if there is none.
+	 */
+	public static Block getBlockByID(int id) {
+		return id >= 0 && id < Block.ID_COUNT ? BLOCKS_BY_ID[id] : null;
+	}
+	
 	/**
 	 * Retrieves the all the {@code Block}s which occur on a particular {@code Date}.
 	 * 
@@ -14,6 +14,18 @@ public class Paths {
 	 * Path to the default preferences file.
 	 */
 	public static final String PREFERENCES_DEFAULT = "config_default.properties";
+	/**
+	 * Path to the storage settings file.
+	 */
+	public static final String STORAGE = "storage.properties";
+	/**
+	 * Path to the default storage settings file.
+	 */
+	public static final String STORAGE_DEFAULT = "storage_default.properties";
+	/**
+	 * Path to the snapshot of the last logged in user.
+	 */
+	public static final String SNAPSHOT = "snapshot.dat";
 	
 	/**
 	 * Path to the previous arrow image.
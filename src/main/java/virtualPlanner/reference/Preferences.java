@@ -112,6 +112,31 @@ public class Preferences {
 		savePreferences();
 	}
 	
+	/**
+	 * @return The number of days before and after today whose assignments should be loaded at login.
+	 */
+	public static int loadDaysAround() {
+		return Integer.parseInt(properties.getProperty("loadDaysAround"));
+	}
+	
+	/**
+	 * Sets the loadDaysAround preference to a specified value.
+	 * 
+	 * @param value The value to set.
+	 */
+	public static void setLoadDaysAround(int value) {
+		properties.setProperty("loadDaysAround", "" + value);
+		savePreferences();
+	}
+	
+	/**
+	 * Restores the default loadDaysAround preference.
+	 */
+	public static void removeLoadDaysAround() {
+		properties.remove("loadDaysAround");
+		savePreferences();
+	}
+	
 	/**
 	 * @return {@code true} if assignments should be displayed on the day when they are due; {@code false} if assignments should be displayed on the day when they are assigned.
 	 */
@@ -9,30 +9,39 @@ import virtualPlanner.reference.Blocks;
  */
 public class Block {
 	
+	/**
+	 * The number of possible {@code Block} ids. Every id is in the range [0, ID_COUNT).
+	 */
+	public static final int ID_COUNT = 256;
+	
 	/**
 	 * The type of this {@code Block} from {@code Blocks}.
 	 */
-	private Blocks block;
+	private final Blocks block;
 	/**
 	 * The start time of this {@code Block}.
 	 */
-	private Time start;
+	private final Time start;
 	/**
 	 * The end time of this {@code Block}.
 	 */
-	private Time end;
+	private final Time end;
 	/**
 	 * Used for identifying the block for integration with the database and for special schedules.
+	 * The high four bits identify the type of the block and the low four bits identify the day, so every id is in the range [0, 256).
 	 */
-	private int id;
+	private final int id;
 	
 	/**
 	 * @param block The type of this {@code Block} from {@code Blocks}.
 	 * @param start The start time of this {@code Block}.
 	 * @param end The end time of this {@code Block}.
-	 * @param id Used for identifying the block for integration with the database and for special schedules.
+	 * @param id Used for identifying the block for integration with the database and for special schedules. Must be in the range [0, 256).
+	 * @throws IllegalArgumentException If {@code id} is out of its valid range.
 	 */
 	public Block(Blocks block, Time start, Time end, int id) {
+		if(id < 0 || id >= ID_COUNT)
+			throw new IllegalArgumentException("Argument id has illegal value: " + id + ". It must be in the range [0, " + ID_COUNT + ").");
 		this.block = block;
 		this.start = start;
 		this.end = end;
@@ -81,17 +90,20 @@ public class Block {
 	 * The {@code Object}s are considered equal if they are both instances of {@code Block} and satisfy either of the following:
 	 * <ul>
 	 * <li>both references point to the same {@code Object}</li>
-	 * <li>both {@code Object}s have the same block, start, and end fields</li>
+	 * <li>both {@code Object}s have the same id</li>
 	 * </ul>
 	 */
 	@Override
 	public boolean equals(Object o) {
-		return o != null && o instanceof Block && (this == o || this.block == ((Block) o).block && this.start == ((Block) o).start && this.end == ((Block) o).end);
+		return this == o || o instanceof Block && this.id == ((Block) o).id;
 	}
 	
+	/**
+	 * Returns a hash code for this {@code Block}, which is its id.
+	 */
 	@Override
 	public int hashCode() {
-		return toString().hashCode();
+		return id;
 	}
 	
 }
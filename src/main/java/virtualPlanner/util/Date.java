@@ -1,47 +1,47 @@
 package virtualPlanner.util;
 
 import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.GregorianCalendar;
+import java.time.LocalDate;
+import java.time.ZoneId;
 
 import virtualPlanner.reference.Days;
 
 /**
  * Represents a date and automatically determines the day of the week from {@link Days}.
+ * A {@code Date} is immutable and stores only the number of days since 1970-01-01,
+ * so comparing and hashing {@code Date}s and moving between them is simple arithmetic.
  * 
  * @author JeremiahDeGreeff
  */
 public class Date implements Comparable<Date> {
 	
 	/**
-	 * The {@code Calendar} for this {@code Date}.
+	 * The days of the week in order starting from Monday.
 	 */
-	private Calendar calendar;
+	private static final Days[] WEEK = Days.values();
+	
 	/**
-	 * The day of the week of this {@code Date}.
+	 * The number of days from 1970-01-01 to this {@code Date}.
 	 */
-	private Days dayOfWeek;
+	private final int epochDay;
 	
 	/**
 	 * Creates a new {@code Date} instance for the current day.
 	 */
 	public Date() {
-		calendar = new GregorianCalendar();
-		dayOfWeek = Days.getDay(calendar.get(Calendar.DAY_OF_WEEK));
+		this(LocalDate.now().toEpochDay());
 	}
 	
 	/**
 	 * Creates a new {@code Date} instance from a day, month, and year.
+	 * A {@code day} or {@code month} past the end of its range rolls over into the following month or year.
 	 * 
 	 * @param day The day of the month. (1-indexed)
 	 * @param month The month of the year. (1-indexed)
 	 * @param year The year of this {@code Date}.
-	 * @throws IllegalArgumentException If either {@code day} or {@code month} is out of its valid range.
 	 */
 	public Date(int day, int month, int year) {
-		calendar = new GregorianCalendar(year, month - 1, day);
-		dayOfWeek = Days.getDay(calendar.get(Calendar.DAY_OF_WEEK));
+		this(LocalDate.of(year, 1, 1).plusMonths(month - 1).plusDays(day - 1).toEpochDay());
 	}
 	
 	/**
@@ -53,41 +53,69 @@ public class Date implements Comparable<Date> {
 		this(Integer.parseInt(sqlDate.substring(8)), Integer.parseInt(sqlDate.substring(5, 7)), Integer.parseInt(sqlDate.substring(0, 4)));
 	}
 	
+	/**
+	 * Creates a new {@code Date} instance from a number of days since 1970-01-01.
+	 * 
+	 * @param epochDay The number of days from 1970-01-01.
+	 * @throws ArithmeticException If {@code epochDay} does not fit in an {@code int}.
+	 */
+	private Date(long epochDay) {
+		this.epochDay = Math.toIntExact(epochDay);
+	}
+	
 	/**
 	 * @return The day of the month.
 	 */
 	public int getDay() {
-		return calendar.get(Calendar.DAY_OF_MONTH);
+		return toLocalDate().getDayOfMonth();
 	}
 	
 	/**
-	 * @return The month of the year.
+	 * @return The month of the year. (0-indexed)
 	 */
 	public int getMonth() {
-		return calendar.get(Calendar.MONTH);
+		return toLocalDate().getMonthValue() - 1;
 	}
 	
 	/**
 	 * @return The year of this {@code Date}.
 	 */
 	public int getYear() {
-		return calendar.get(Calendar.YEAR);
+		return toLocalDate().getYear();
 	}
 	
 	/**
 	 * @return The day of the week of this {@code Date}.
 	 */
 	public Days getDayOfWeek() {
-		return dayOfWeek;
+		// 1970-01-01 was a Thursday, 3 days after Monday
+		return WEEK[Math.floorMod(epochDay + 3, 7)];
+	}
+	
+	/**
+	 * @return The number of days from 1970-01-01 to this {@code Date}.
+	 */
+	public long getEpochDay() {
+		return epochDay;
+	}
+	
+	/**
+	 * Creates a {@code Date} instance from a number of days since 1970-01-01.
+	 * 
+	 * @param epochDay The number of days from 1970-01-01.
+	 * @return The specified {@code Date} object.
+	 */
+	public static Date ofEpochDay(long epochDay) {
+		return new Date(epochDay);
 	}
 	
 	/**
-	 * Creates a Unix timestamp (milliseconds since Epoch) for this {@code Date} object.
+	 * Creates a Unix timestamp (milliseconds since Epoch) for the start of this {@code Date} in the default time zone.
 	 * 
 	 * @return The Unis timestamp.
 	 */
 	public long getTimestamp() {
-		return calendar.getTimeInMillis();
+		return toLocalDate().atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
 	}
 	
 	/**
@@ -106,7 +134,7 @@ public class Date implements Comparable<Date> {
 	 * @return A string representation of this {@code Date} with the specified format.
 	 */
 	public String toString(int format) {
-		return DateFormat.getDateInstance(format).format(calendar.getTime());
+		return DateFormat.getDateInstance(format).format(new java.util.Date(getTimestamp()));
 	}
 	
 	/**
@@ -115,9 +143,7 @@ public class Date implements Comparable<Date> {
 	 * @return The String representation.
 	 */
 	public String toStringSQL() {
-		SimpleDateFormat format = new SimpleDateFormat();
-		format.applyPattern("yyyy-MM-dd");
-		return format.format(calendar.getTime());
+		return toLocalDate().toString();
 	}
 	
 	/**
@@ -131,12 +157,15 @@ public class Date implements Comparable<Date> {
 	 */
 	@Override
 	public boolean equals(Object o) {
-		return o != null && o instanceof Date && this.calendar.equals(((Date) o).calendar);
+		return o instanceof Date && this.epochDay == ((Date) o).epochDay;
 	}
 	
+	/**
+	 * Returns a hash code for this {@code Date}, which is its number of days from 1970-01-01.
+	 */
 	@Override
 	public int hashCode() {
-		return toString().hashCode();
+		return epochDay;
 	}
 	
 	/**
@@ -144,7 +173,7 @@ public class Date implements Comparable<Date> {
 	 */
 	@Override
 	public int compareTo(Date o) {
-		return this.calendar.compareTo(o.calendar);
+		return Integer.compare(this.epochDay, o.epochDay);
 	}
 	
 	/**
@@ -153,11 +182,7 @@ public class Date implements Comparable<Date> {
 	 * @return The specified {@code Date} object.
 	 */
 	public Date getWeekStartDate() {
-		Calendar clone = (Calendar)calendar.clone();
-		if(clone.get(Calendar.DAY_OF_WEEK) == 1)
-			clone.set(Calendar.WEEK_OF_MONTH, clone.get(Calendar.WEEK_OF_MONTH) - 1);
-		clone.set(Calendar.DAY_OF_WEEK, 2);
-		return new Date(clone.get(Calendar.DAY_OF_MONTH), clone.get(Calendar.MONTH) + 1, clone.get(Calendar.YEAR));
+		return new Date(epochDay - (long) Math.floorMod(epochDay + 3, 7));
 	}
 	
 	/**
@@ -167,9 +192,14 @@ public class Date implements Comparable<Date> {
 	 * @return The specified {@code Date} object.
 	 */
 	public Date getUpcomingDate(int increment) {
-		Calendar clone = (Calendar)calendar.clone();
-		clone.add(Calendar.DAY_OF_MONTH, increment);
-		return new Date(clone.get(Calendar.DAY_OF_MONTH), clone.get(Calendar.MONTH) + 1, clone.get(Calendar.YEAR));
+		return increment == 0 ? this : new Date((long) epochDay + increment);
+	}
+	
+	/**
+	 * @return This {@code Date} as a {@code LocalDate}.
+	 */
+	private LocalDate toLocalDate() {
+		return LocalDate.ofEpochDay(epochDay);
 	}
 	
 }
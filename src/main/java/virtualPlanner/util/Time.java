@@ -2,59 +2,86 @@ package virtualPlanner.util;
 
 /**
  * Represents a time of day with minute precision.
+ * There is only one instance for each minute of the day, which is retrieved with {@link #of(int, int)},
+ * so {@code Time}s can be compared by reference and cost nothing to create.
  * 
  * @author JeremiahDeGreeff
  */
 public class Time implements Comparable<Time> {
 	
 	/**
-	 * The hour represented by this {@code Time}. Must be in the range [0, 24).
+	 * The number of minutes in a day.
 	 */
-	private int hour;
+	private static final int MINUTES_PER_DAY = 24 * 60;
 	/**
-	 * The minute represented by this {@code Time}. Must be in the range [0, 60).
+	 * Every {@code Time} indexed by its number of minutes since midnight.
 	 */
-	private int minute;
+	private static final Time[] TIMES = new Time[MINUTES_PER_DAY];
+	
+	static {
+		for(int minutes = 0; minutes < MINUTES_PER_DAY; minutes++)
+			TIMES[minutes] = new Time(minutes);
+	}
+	
+	/**
+	 * The number of minutes since midnight represented by this {@code Time}. Must be in the range [0, 1440).
+	 */
+	private final short minutes;
 	
 	/**
-	 * Constructs a {@code Time} at a specified hour.
+	 * @param minutes The number of minutes since midnight represented by this {@code Time}. Must be in the range [0, 1440).
+	 */
+	private Time(int minutes) {
+		this.minutes = (short) minutes;
+	}
+	
+	/**
+	 * Retrieves the {@code Time} at a specified hour.
 	 * 
-	 * @param hour The hour represented by this {@code Time}. Must be in the range [0, 24).
+	 * @param hour The hour represented by the {@code Time}. Must be in the range [0, 24).
+	 * @return The {@code Time}.
 	 * @throws IllegalArgumentException If {@code hour} is out of its valid range.
 	 */
-	public Time(int hour) {
-		this(hour, 0);
+	public static Time of(int hour) {
+		return of(hour, 0);
 	}
 	
 	/**
-	 * Constructs a {@code Time} at a specified hour and minute.
+	 * Retrieves the {@code Time} at a specified hour and minute.
 	 * 
-	 * @param hour The hour represented by this {@code Time}. Must be in the range [0, 24).
-	 * @param minute The minute represented by this {@code Time}. Must be in the range [0, 60).
+	 * @param hour The hour represented by the {@code Time}. Must be in the range [0, 24).
+	 * @param minute The minute represented by the {@code Time}. Must be in the range [0, 60).
+	 * @return The {@code Time}.
 	 * @throws IllegalArgumentException If either {@code hour} or {@code minute} is out of its valid range.
 	 */
-	public Time(int hour, int minute) {
+	public static Time of(int hour, int minute) {
 		if(hour < 0 || hour >= 24)
 			throw new IllegalArgumentException("Argument hour has illegal value: " + hour + ". It must be in the range [0, 24).");
 		if(minute < 0 || minute >= 60)
 			throw new IllegalArgumentException("Argument minute has illegal value: " + minute + ". It must be in the range [0, 60).");
-		
-		this.hour = hour;
-		this.minute = minute;
+			
+		return TIMES[hour * 60 + minute];
 	}
 	
 	/**
 	 * @return The hour represented by this {@code Time}.
 	 */
 	public int getHour() {
-		return hour;
+		return minutes / 60;
 	}
 	
 	/**
 	 * @return The minute represented by this {@code Time}.
 	 */
 	public int getMinute() {
-		return minute;
+		return minutes % 60;
+	}
+	
+	/**
+	 * @return The number of minutes since midnight represented by this {@code Time}.
+	 */
+	public int getMinutesOfDay() {
+		return minutes;
 	}
 	
 	/**
@@ -62,26 +89,26 @@ public class Time implements Comparable<Time> {
 	 */
 	@Override
 	public String toString() {
-		return hour + ":" + String.format("%02d", minute);
+		return getHour() + (getMinute() < 10 ? ":0" : ":") + getMinute();
 	}
 	
 	/**
 	 * Indicates whether another {@code Object} is equal to this one.
 	 * 
-	 * The {@code Object}s are considered equal if they are both instances of {@code Time} and satisfy either of the following:
-	 * <ul>
-	 * <li>both references point to the same {@code Object}</li>
-	 * <li>both {@code Object}s have the same hour and minute fields</li>
-	 * </ul>
+	 * The {@code Object}s are considered equal if they are both instances of {@code Time} and have the same hour and minute fields.
+	 * Since each {@code Time} has only one instance, this is the case only if both references point to the same {@code Object}.
 	 */
 	@Override
 	public boolean equals(Object o) {
-		return o != null && o instanceof Time && (this == o || this.hour == ((Time) o).hour && this.minute == ((Time) o).minute);
+		return this == o;
 	}
 	
+	/**
+	 * Returns a hash code for this {@code Time}, which is its number of minutes since midnight.
+	 */
 	@Override
 	public int hashCode() {
-		return toString().hashCode();
+		return minutes;
 	}
 	
 	/**
@@ -89,7 +116,7 @@ public class Time implements Comparable<Time> {
 	 */
 	@Override
 	public int compareTo(Time o) {
-		return (this.hour * 60 + this.minute) - (o.hour * 60 + o.minute);
+		return this.minutes - o.minutes;
 	}
 	
 }